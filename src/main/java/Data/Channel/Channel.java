@@ -0,0 +1,31 @@
+package Data.Channel;
+
+import java.awt.Color;
+
+/**
+ * One separation of a channel set: how its source is extracted, the screen
+ * angle it is rendered at, the ink it is printed with and how it is blended
+ * over the channels before it.
+ */
+public class Channel {
+    public final String name;
+    public final ChannelExtractor extractor;
+    public final double angle;
+    public final Color ink;
+    public final ChannelBlend blend;
+
+    /**
+     * @param name Short label used in logs (e.g. "C").
+     * @param extractor Produces the channel's source image.
+     * @param angle Screen angle in degrees.
+     * @param ink Color of the channel's ink (or light, for Screen channels).
+     * @param blend How the channel is combined with the channels before it.
+     */
+    public Channel(String name, ChannelExtractor extractor, double angle, Color ink, ChannelBlend blend) {
+        this.name = name;
+        this.extractor = extractor;
+        this.angle = angle;
+        this.ink = ink;
+        this.blend = blend;
+    }
+}
@@ -0,0 +1,12 @@
+package Data.Channel;
+
+/**
+ * How a rendered channel is combined with the channels before it.
+ * Multiply lays an ink on white paper (subtractive, e.g. CMYK); Screen adds
+ * a light on a black base (additive, e.g. RGB). The first channel of a set
+ * is laid down as-is.
+ */
+public enum ChannelBlend {
+    Multiply,
+    Screen;
+}
@@ -0,0 +1,41 @@
+package Data.Channel;
+
+import java.awt.image.BufferedImage;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Produces the source image of one channel from the full-color image. The
+ * result is read like a grayscale image: darker pixels get more ink.
+ */
+@FunctionalInterface
+public interface ChannelExtractor {
+    BufferedImage extract(BufferedImage source);
+
+    /**
+     * Builds an extractor from a per-pixel function that maps a packed ARGB
+     * pixel to the channel's gray level (0 = full ink, 255 = no ink). Alpha
+     * is carried over from the source.
+     *
+     * @param grayLevel Per-pixel gray level function.
+     * @return An extractor producing a TYPE_INT_ARGB gray image.
+     */
+    static ChannelExtractor perPixel(IntUnaryOperator grayLevel) {
+        return source -> {
+            int width = source.getWidth();
+            int height = source.getHeight();
+
+            int[] pixels = source.getRGB(0, 0, width, height, null, 0, width);
+
+            for (int i = 0; i < pixels.length; i++) {
+                int gray = Math.max(0, Math.min(255, grayLevel.applyAsInt(pixels[i])));
+
+                pixels[i] = (pixels[i] & 0xff000000) | (gray << 16) | (gray << 8) | gray;
+            }
+
+            BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            out.setRGB(0, 0, width, height, pixels, 0, width);
+
+            return out;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package Data.Channel;
+
+import java.awt.Color;
+import java.util.List;
+
+/**
+ * An ordered group of channels that are rendered independently and then
+ * composited in order, each with its own blend mode.
+ */
+public class ChannelSet {
+    public final String name;
+    public final List<Channel> channels;
+
+    /**
+     * @param name Label used in logs and saved file names (e.g. "CMYK").
+     * @param channels Channels in compositing order; at least two.
+     * @throws IllegalArgumentException if fewer than two channels are given.
+     */
+    public ChannelSet(String name, List<Channel> channels) {
+        if (channels == null || channels.size() < 2) {
+            throw new IllegalArgumentException(
+                "A channel set must contain at least two channels."
+            );
+        }
+
+        this.name = name;
+        this.channels = List.copyOf(channels);
+    }
+
+    /**
+     * @return The blend mode of every channel, in compositing order.
+     */
+    public ChannelBlend[] blends() {
+        ChannelBlend[] blends = new ChannelBlend[channels.size()];
+
+        for (int i = 0; i < blends.length; i++) {
+            blends[i] = channels.get(i).blend;
+        }
+
+        return blends;
+    }
+
+    /**
+     * Color of uncovered pixels in a channel: white paper for Multiply, the
+     * channel's own light for Screen.
+     */
+    public Color backgroundOf(Channel channel) {
+        return (channel.blend == ChannelBlend.Multiply) ? Color.WHITE : channel.ink;
+    }
+
+    /**
+     * Color of fully covered pixels in a channel: the ink for Multiply, a
+     * black mask for Screen.
+     */
+    public Color foregroundOf(Channel channel) {
+        return (channel.blend == ChannelBlend.Multiply) ? channel.ink : Color.BLACK;
+    }
+}
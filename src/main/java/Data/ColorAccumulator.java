@@ -25,6 +25,20 @@ public class ColorAccumulator {
         count++;
     }
     
+    /**
+     * Adds the RGBA components of a packed ARGB pixel to this accumulator.
+     *
+     * @param argb Pixel to add, packed as 0xAARRGGBB.
+     */
+    public void add(int argb) {
+        sumA += argb >>> 24;
+        sumR += (argb >> 16) & 0xff;
+        sumG += (argb >> 8) & 0xff;
+        sumB += argb & 0xff;
+        
+        count++;
+    }
+    
     /**
      * Computes and returns the average color of all added samples.
      *
@@ -47,7 +61,7 @@ public class ColorAccumulator {
     }
     /**
      * Computes the grayscale (luminance) value of the accumulated color average
-     * by using the provided Grayscale.bt709 method (ITU-R BT.709 weights).
+     * by using the Grayscale.luminance method with ITU-R BT.709 weights.
      *
      * @return A double in [0,255] representing the grayscale intensity of the
      * average color. If no samples have been added (count == 0), returns 0.
@@ -57,19 +71,9 @@ public class ColorAccumulator {
             return 0;
         }
         
-        Color avg = getAverage();
-        
-        // Prepare RGBA array for bt709: {alpha, red, green, blue}
-        int[] rgba = new int[4];
-        rgba[0] = avg.getAlpha();
-        rgba[1] = avg.getRed();
-        rgba[2] = avg.getGreen();
-        rgba[3] = avg.getBlue();
-        
-        // Perform BT.709 grayscale conversion
-        Grayscale gs = new Grayscale();
-        int[] grayRGBA = gs.bt709(rgba);
+        // Pack the average RGB without building a Color
+        int argb = ((sumR / count) << 16) | ((sumG / count) << 8) | (sumB / count);
         
-        return grayRGBA[1]; // Gray RED
+        return Grayscale.luminance(argb, GrayscaleMethod.Bt709);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package Data;
 
+import Data.FlowLine.CurveMode;
+import Data.FlowLine.FlowLineEngine;
 import java.awt.Color;
 
 /**
@@ -17,6 +19,21 @@ public class ConfigData {
     // ===== GLOBAL CONFIGS =====
     public long rngSeed = 123456789L;
     public boolean debugState = false;
+    public boolean indexedOutput = false; // Grayscale mode renders a two-tone 8-bit palette image
+    public boolean plateOutput = false; // Grayscale mode renders a non-antialiased 1-bit plate saved as TIFF
+    public int plateScale = 4; // Plate pixels per input pixel along each axis
+    public boolean streamingInput = false; // Grayscale mode reads the input in row bands straight into the kernel grid
+    public boolean fastAnalysis = false; // Decodes a subsampled input for the kernel averages when kernels are large
+    public double analysisErrorBudget = 0.2; // Largest fraction of a kernel's area subsampling may misplace
+    public boolean tiledOutput = false; // Grayscale mode renders tile by tile straight into a tiled BigTIFF
+    public int tileSize = 1024; // Tile width and height in input pixels, 16 to 4096
+    public boolean streamingOutput = false; // Grayscale mode encodes the PNG band by band while rendering
+    public boolean offHeapRasters = false; // Renders into off-heap rasters released when each job ends
+    public boolean diskBackedRasters = false; // Keeps the off-heap rasters in memory-mapped scratch files
+    public String scratchDirectory = ""; // Directory of the scratch files; empty for the system temp directory
+    public int residentTileMegabytes = 512; // Megabytes of scratch tiles kept mapped at most
+    public int pngCompressionLevel = PngPreset.Default.level; // Deflate level of saved PNGs, 0-9
+    public PngFilter pngFilter = PngPreset.Default.filter; // Scanline filter of saved PNGs
     
     // ===== TYPE-SPECIFIC CONFIGS =====
     // Polygons
@@ -40,4 +57,75 @@ public class ConfigData {
     public int flowLineSmoothRadius = 2;
     public int minLineSize = 2;
     public int blurRadius = 2;
+    public CurveMode flowLineCurveMode = CurveMode.Bezier;
+    public FlowLineEngine flowLineEngine = FlowLineEngine.KernelLinking;
+    public double flowLineSeparation = 1.0; // Streamline spacing in kernels (EvenlySpaced engine)
+
+    /**
+     * Creates the copy a job runs with: an independent copy (see
+     * {@link #copy()}) with the values normalised that the job relies on,
+     * so the job never has to adjust it afterwards. The kernel size is at
+     * least 1.
+     *
+     * @return A normalised copy of this configuration.
+     */
+    public ConfigData snapshot() {
+        ConfigData snapshot = copy();
+        snapshot.scale = Math.max(1, scale);
+
+        return snapshot;
+    }
+
+    /**
+     * Creates an independent copy of this configuration, so a job can keep
+     * the values it started with while the UI keeps editing the original.
+     *
+     * @return A copy sharing no mutable state with this configuration.
+     */
+    public ConfigData copy() {
+        ConfigData copy = new ConfigData();
+
+        copy.scale = scale;
+        copy.angle = angle;
+        copy.type = type;
+        copy.opType = opType;
+        copy.colors = colors.clone();
+
+        copy.rngSeed = rngSeed;
+        copy.debugState = debugState;
+        copy.indexedOutput = indexedOutput;
+        copy.plateOutput = plateOutput;
+        copy.plateScale = plateScale;
+        copy.streamingInput = streamingInput;
+        copy.fastAnalysis = fastAnalysis;
+        copy.analysisErrorBudget = analysisErrorBudget;
+        copy.tiledOutput = tiledOutput;
+        copy.tileSize = tileSize;
+        copy.streamingOutput = streamingOutput;
+        copy.offHeapRasters = offHeapRasters;
+        copy.diskBackedRasters = diskBackedRasters;
+        copy.scratchDirectory = scratchDirectory;
+        copy.residentTileMegabytes = residentTileMegabytes;
+        copy.pngCompressionLevel = pngCompressionLevel;
+        copy.pngFilter = pngFilter;
+
+        copy.polySides = polySides;
+        copy.stipplingDensity = stipplingDensity;
+        copy.invertRowSelection = invertRowSelection;
+        copy.rowProbability = rowProbability;
+        copy.amplitudeScalar = amplitudeScalar;
+        copy.frequencyScalar = frequencyScalar;
+
+        copy.minStep = minStep;
+        copy.maxStep = maxStep;
+        copy.followMaxChange = followMaxChange;
+        copy.flowLineSmoothRadius = flowLineSmoothRadius;
+        copy.minLineSize = minLineSize;
+        copy.blurRadius = blurRadius;
+        copy.flowLineCurveMode = flowLineCurveMode;
+        copy.flowLineEngine = flowLineEngine;
+        copy.flowLineSeparation = flowLineSeparation;
+
+        return copy;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package Data.FlowLine;
+
+/**
+ * Curve model used to turn the kernel positions of a flow line into a smooth
+ * ribbon centerline.
+ */
+public enum CurveMode {
+    Bezier,
+    CatmullRom,
+    BSpline;
+}
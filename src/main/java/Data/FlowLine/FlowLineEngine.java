@@ -0,0 +1,12 @@
+package Data.FlowLine;
+
+/**
+ * Algorithm used to build flow lines from the Sobel field.
+ * KernelLinking merges whole kernels along rounded steps (FlowLineGenerator);
+ * EvenlySpaced traces sub-kernel streamlines at a fixed separation
+ * (StreamlineGenerator).
+ */
+public enum FlowLineEngine {
+    KernelLinking,
+    EvenlySpaced;
+}
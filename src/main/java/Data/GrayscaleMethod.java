@@ -0,0 +1,11 @@
+package Data;
+
+public enum GrayscaleMethod {
+    MaxValue,
+    MinValue,
+    Bt601,
+    Bt709,
+    WeightedAverage,
+    Average,
+    HsbSaturation;
+}
@@ -1,13 +1,21 @@
 package Data;
 
+import FileManager.BandReader;
 import Halftone.GetDataFromImage;
+import Util.RasterPool;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
 
 public class ImageData {
     public ColorAccumulator[][] avgGrid;
     public AffineTransform rotation;
     public double[] bounds;
+    public int width, height; // Dimensions of the analyzed image in pixels
+    public int rowFrom, rowTo, colFrom, colTo; // Kernel range renderers draw; the whole grid unless this is a tile view
+    private boolean tile = false;
+    private boolean[] occupiedRows; // Rows with at least one sampled kernel, shared with tile views
     
     /**
      * Constructs an ImageData object that precomputes geometric and color
@@ -45,23 +53,331 @@ public class ImageData {
      * values after computation (0 = no blur).
      */
     public ImageData(BufferedImage input, int kernelSize, double angle, boolean computeSobel, int sobelBlurRadius) {
+        this(input.getWidth(), input.getHeight(), kernelSize, angle);
+        
+        // Compute color accumulators per kernel
+        GetDataFromImage dataFetcher = new GetDataFromImage();
+        avgGrid = dataFetcher.computeColorAccumulators(input, angle, kernelSize, bounds, rotation);
+        
+        // Optionally compute Sobel gradient angles
+        if (computeSobel) {
+            dataFetcher.computeSobelAngles(input, kernelSize, bounds, rotation, avgGrid);
+            dataFetcher.blurSobelValues(avgGrid, sobelBlurRadius);
+        }
+    }
+
+    
+    /**
+     * Constructs an ImageData object with the rotation, bounds and an empty
+     * kernel grid for a width × height image. Pixels are added afterwards
+     * with GetDataFromImage.accumulateRow.
+     *
+     * @param width Width of the image in pixels.
+     * @param height Height of the image in pixels.
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param angle Rotation angle in degrees (0–360) used to orient the kernel grid.
+     */
+    public ImageData(int width, int height, int kernelSize, double angle) {
+        this.width = width;
+        this.height = height;
+        
         // Prepare rotation transform
         double theta = Math.toRadians(angle);
-        double centerX = input.getWidth() / 2.0;
-        double centerY = input.getHeight() / 2.0;
+        double centerX = width / 2.0;
+        double centerY = height / 2.0;
         rotation = AffineTransform.getRotateInstance(theta, centerX, centerY);
         
         // Calculate rotated bounds
         GetDataFromImage dataFetcher = new GetDataFromImage();
-        bounds = dataFetcher.calculateRotatedBounds(input, rotation);
+        bounds = dataFetcher.calculateRotatedBounds(width, height, rotation);
         
-        // Compute color accumulators per kernel
-        avgGrid = dataFetcher.computeColorAccumulators(input, angle, kernelSize, bounds, rotation);
+        avgGrid = dataFetcher.createAccumulators(kernelSize, bounds);
+        
+        rowTo = avgGrid.length;
+        colTo = (avgGrid.length > 0) ? avgGrid[0].length : 0;
+    }
+    
+    private ImageData() {
+    }
+    
+    /**
+     * Creates a view of this data for rendering one rectangular region of the
+     * image on its own, with the region's top-left corner as origin.
+     *
+     * The view shares the kernel grid and bounds; its rotation is shifted to
+     * the region and its kernel range is cut down to the kernels whose cells
+     * reach into the region, plus margin kernels on every side for shapes
+     * that spill over their cell. Renderers given the view draw the region
+     * exactly as they would draw it in the whole image.
+     *
+     * @param x Left edge of the region, in image pixels.
+     * @param y Top edge of the region, in image pixels.
+     * @param regionWidth Width of the region in pixels.
+     * @param regionHeight Height of the region in pixels.
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param margin Extra kernels included on every side of the range.
+     * @return The tile view.
+     */
+    public ImageData tile(int x, int y, int regionWidth, int regionHeight, int kernelSize, int margin) {
+        ImageData view = new ImageData();
+        view.tile = true;
+        view.avgGrid = avgGrid;
+        view.bounds = bounds;
+        view.occupiedRows = occupiedRows();
+        view.width = regionWidth;
+        view.height = regionHeight;
+        
+        // Region coordinates are shifted into image coordinates before rotating
+        view.rotation = new AffineTransform(rotation);
+        view.rotation.translate(x, y);
+        
+        // Rotated bounding box of the region
+        double[] corners = {x, y, x + regionWidth, y, x, y + regionHeight, x + regionWidth, y + regionHeight};
+        rotation.transform(corners, 0, corners, 0, 4);
+        
+        double minXr = Math.min(Math.min(corners[0], corners[2]), Math.min(corners[4], corners[6]));
+        double maxXr = Math.max(Math.max(corners[0], corners[2]), Math.max(corners[4], corners[6]));
+        double minYr = Math.min(Math.min(corners[1], corners[3]), Math.min(corners[5], corners[7]));
+        double maxYr = Math.max(Math.max(corners[1], corners[3]), Math.max(corners[5], corners[7]));
+        
+        view.rowFrom = clamp((int) Math.floor((minYr - bounds[2]) / kernelSize) - margin, rowFrom, rowTo);
+        view.rowTo = clamp((int) Math.floor((maxYr - bounds[2]) / kernelSize) + 1 + margin, view.rowFrom, rowTo);
+        view.colFrom = clamp((int) Math.floor((minXr - bounds[0]) / kernelSize) - margin, colFrom, colTo);
+        view.colTo = clamp((int) Math.floor((maxXr - bounds[0]) / kernelSize) + 1 + margin, view.colFrom, colTo);
+        
+        return view;
+    }
+    
+    /**
+     * Whether any kernel of a grid row received samples. Computed once for
+     * the whole grid and shared by its tile views.
+     *
+     * @param row Kernel row in the grid.
+     * @return True if at least one kernel of the row has samples.
+     */
+    public boolean rowHasData(int row) {
+        return occupiedRows()[row];
+    }
+    
+    private synchronized boolean[] occupiedRows() {
+        if (occupiedRows == null) {
+            occupiedRows = new boolean[avgGrid.length];
+            
+            for (int row = 0; row < avgGrid.length; row++) {
+                for (ColorAccumulator acc : avgGrid[row]) {
+                    if (acc.count > 0) {
+                        occupiedRows[row] = true;
+                        
+                        break;
+                    }
+                }
+            }
+        }
+        
+        return occupiedRows;
+    }
+    
+    /**
+     * @return True if this is a view created by {@link #tile}.
+     */
+    public boolean isTile() {
+        return tile;
+    }
+    
+    /**
+     * Builds the ImageData of an image expanded by border pixels on every
+     * side (as ResizeImage.expandBorder does) by streaming the source in row
+     * bands, without holding the source or the expanded image in memory.
+     *
+     * The source is decoded once; each band is widened with replicated edge
+     * columns and scattered into the kernel grid, and the first and last rows
+     * are repeated for the top and bottom borders. Peak memory is the grid plus one band, and the
+     * result matches the ImageData of the expanded image.
+     *
+     * @param reader Reader positioned on the source image.
+     * @param border Thickness of the replicated border, in pixels.
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param angle Rotation angle in degrees (0–360) used to orient the kernel grid.
+     * @param computeSobel If true, computes Sobel gradient angles for each kernel (used by FlowLine).
+     * @param sobelBlurRadius Radius of the box blur applied to Sobel angle and magnitude
+     * values after computation (0 = no blur).
+     * @param bandBytes Bytes one decoded band may take.
+     * @param pool Pool the band buffer is acquired from and released to.
+     * @return The ImageData of the expanded image.
+     * @throws IOException if decoding a band fails.
+     */
+    public static ImageData fromBands(BandReader reader, int border, int kernelSize, double angle, boolean computeSobel, int sobelBlurRadius, long bandBytes, RasterPool pool) throws IOException {
+        BandAccumulator accumulator = new BandAccumulator(reader.getWidth(), reader.getHeight(), border, kernelSize, angle);
+        
+        int bandRows = reader.bandRows(bandBytes);
+        int[] band = pool.acquireInts(reader.getWidth() * bandRows);
+        
+        reader.readBands(bandRows, band, accumulator);
+        
+        pool.release(band);
+        
+        return accumulator.finish(computeSobel, sobelBlurRadius);
+    }
+    
+    /**
+     * Scatters the rows of a source image, received in bands, into the kernel
+     * grid of the image expanded by border pixels on every side, as
+     * {@link #fromBands} does. Each band is widened with replicated edge
+     * columns, and the first and last rows are repeated for the top and
+     * bottom borders.
+     *
+     * Several accumulators can be fed from one decode, e.g. one per color
+     * channel, each with its own screen angle.
+     */
+    public static class BandAccumulator implements BandReader.BandConsumer {
+        private final int width;
+        private final int height;
+        private final int border;
+        private final int kernelSize;
+        private final ImageData data;
+        private final GetDataFromImage dataFetcher = new GetDataFromImage();
+        private final int[] row;
+        
+        /**
+         * @param width Width of the source image.
+         * @param height Height of the source image.
+         * @param border Thickness of the replicated border, in pixels.
+         * @param kernelSize Size (in pixels) of each square kernel.
+         * @param angle Rotation angle in degrees (0–360) used to orient the kernel grid.
+         */
+        public BandAccumulator(int width, int height, int border, int kernelSize, double angle) {
+            this.width = width;
+            this.height = height;
+            this.border = border;
+            this.kernelSize = kernelSize;
+            this.data = new ImageData(width + 2 * border, height + 2 * border, kernelSize, angle);
+            this.row = new int[width + 2 * border];
+        }
+        
+        @Override
+        public void accept(int y0, int rows, int[] pixels) {
+            int expandedWidth = row.length;
+            
+            for (int r = 0; r < rows; r++) {
+                int y = y0 + r;
+                
+                // Widen the row with its first/last pixel repeated on each side
+                System.arraycopy(pixels, r * width, row, border, width);
+                Arrays.fill(row, 0, border, row[border]);
+                Arrays.fill(row, border + width, expandedWidth, row[border + width - 1]);
+                
+                dataFetcher.accumulateRow(row, 0, expandedWidth, y + border, kernelSize, data.bounds, data.rotation, data.avgGrid);
+                
+                // The first and last rows also fill the top and bottom borders
+                for (int t = 0; t < border; t++) {
+                    if (y == 0) {
+                        dataFetcher.accumulateRow(row, 0, expandedWidth, t, kernelSize, data.bounds, data.rotation, data.avgGrid);
+                    }
+                    
+                    if (y == height - 1) {
+                        dataFetcher.accumulateRow(row, 0, expandedWidth, border + height + t, kernelSize, data.bounds, data.rotation, data.avgGrid);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Completes the grid once every row was accumulated.
+         *
+         * @param computeSobel If true, computes Sobel gradient angles for each kernel (used by FlowLine).
+         * @param sobelBlurRadius Radius of the box blur applied to Sobel angle and magnitude
+         * values after computation (0 = no blur).
+         * @return The ImageData of the expanded image.
+         */
+        public ImageData finish(boolean computeSobel, int sobelBlurRadius) {
+            // Optionally compute Sobel gradient angles
+            if (computeSobel) {
+                dataFetcher.computeSobelAngles(null, kernelSize, data.bounds, data.rotation, data.avgGrid);
+                dataFetcher.blurSobelValues(data.avgGrid, sobelBlurRadius);
+            }
+            
+            return data;
+        }
+    }
+    
+    /**
+     * Builds the ImageData of a full-resolution image expanded by border
+     * pixels on every side from a subsampled decode of it. The grid, rotation
+     * and bounds are those of the full-resolution expanded image, so
+     * renderers still draw at full output resolution.
+     *
+     * The expanded image is sampled every step pixels along each axis, each
+     * sample taking the decoded pixel at or just before its source position
+     * (edges replicated as in ResizeImage.expandBorder). Every kernel then
+     * averages about (kernelSize / step)² evenly spread samples.
+     *
+     * @param reduced The subsampled image, holding source pixel (i * step, j * step) at (i, j).
+     * @param width Width of the source at full resolution.
+     * @param height Height of the source at full resolution.
+     * @param border Thickness of the replicated border, in full-resolution pixels.
+     * @param step Subsampling factor the image was decoded with.
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param angle Rotation angle in degrees (0–360) used to orient the kernel grid.
+     * @param computeSobel If true, computes Sobel gradient angles for each kernel (used by FlowLine).
+     * @param sobelBlurRadius Radius of the box blur applied to Sobel angle and magnitude
+     * values after computation (0 = no blur).
+     * @return The ImageData of the full-resolution expanded image.
+     */
+    public static ImageData fromSubsampled(BufferedImage reduced, int width, int height, int border, int step, int kernelSize, double angle, boolean computeSobel, int sobelBlurRadius) {
+        int expandedWidth = width + 2 * border;
+        int expandedHeight = height + 2 * border;
+        int reducedWidth = reduced.getWidth();
+        int reducedHeight = reduced.getHeight();
+        
+        ImageData data = new ImageData(expandedWidth, expandedHeight, kernelSize, angle);
+        GetDataFromImage dataFetcher = new GetDataFromImage();
+        
+        // Decoded column sampled at each expanded column 0, step, 2 * step, ...
+        int samples = (expandedWidth + step - 1) / step;
+        int[] columns = new int[samples];
+        
+        for (int i = 0; i < samples; i++) {
+            columns[i] = reducedIndex(i * step - border, width, step, reducedWidth);
+        }
+        
+        int[] source = new int[reducedWidth];
+        int[] row = new int[samples];
+        int loadedRow = -1;
+        
+        for (int y = 0; y < expandedHeight; y += step) {
+            int sourceRow = reducedIndex(y - border, height, step, reducedHeight);
+            
+            // Border rows repeat the first/last decoded row
+            if (sourceRow != loadedRow) {
+                reduced.getRGB(0, sourceRow, reducedWidth, 1, source, 0, reducedWidth);
+                
+                for (int i = 0; i < samples; i++) {
+                    row[i] = source[columns[i]];
+                }
+                
+                loadedRow = sourceRow;
+            }
+            
+            dataFetcher.accumulateRow(row, 0, samples, step, y, kernelSize, data.bounds, data.rotation, data.avgGrid);
+        }
         
         // Optionally compute Sobel gradient angles
         if (computeSobel) {
-            dataFetcher.computeSobelAngles(input, kernelSize, bounds, rotation, avgGrid);
-            dataFetcher.blurSobelValues(avgGrid, sobelBlurRadius);
+            dataFetcher.computeSobelAngles(null, kernelSize, data.bounds, data.rotation, data.avgGrid);
+            dataFetcher.blurSobelValues(data.avgGrid, sobelBlurRadius);
         }
+        
+        return data;
+    }
+    
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+    
+    // Index of the decoded sample at or before full-resolution position p, clamped to the image
+    private static int reducedIndex(int p, int size, int step, int reducedSize) {
+        int clamped = Math.max(0, Math.min(size - 1, p));
+        
+        return Math.min(reducedSize - 1, clamped / step);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package Data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Scratch storage for rasters larger than memory, backed by a temporary file
+ * that is memory-mapped one tile at a time.
+ *
+ * Rasters reserve their tiles as byte ranges of the file. A tile is mapped
+ * (FileChannel.map) when it is first accessed and stays mapped while it is
+ * among the most recently used tiles; once the mapped tiles exceed the
+ * resident budget, the least recently used ones are unmapped. Their pixels
+ * live on in the file, and the OS pages in or writes back whatever part of
+ * the mapped tiles it needs, so a job is bound by disk space instead of heap.
+ *
+ * Tiles are pinned while a thread copies pixels in or out and are never
+ * unmapped while pinned, so the cache can be used from several threads.
+ * {@link #close()} unmaps every tile and deletes the file.
+ */
+public class MappedTileCache implements Closeable {
+    private final FileChannel channel;
+    private final long residentBytes;
+
+    // Mapped tiles by file offset, least recently used first
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long mappedBytes = 0;
+    private long end = 0; // Next unreserved byte of the file
+
+    /**
+     * A mapped byte range of the scratch file and the Arena that unmaps it.
+     */
+    static final class Tile {
+        private final long size;
+        private final Arena arena;
+        private final MemorySegment segment;
+        private int pins = 0;
+
+        private Tile(long size, Arena arena, MemorySegment segment) {
+            this.size = size;
+            this.arena = arena;
+            this.segment = segment;
+        }
+
+        MemorySegment segment() {
+            return segment;
+        }
+    }
+
+    /**
+     * Creates the scratch file.
+     *
+     * @param directory Directory of the scratch file, or null for the system temp directory.
+     * @param residentBytes Bytes of tiles kept mapped at most while none of them is pinned.
+     * @throws IOException if the scratch file cannot be created.
+     */
+    public MappedTileCache(Path directory, long residentBytes) throws IOException {
+        Path file = (directory != null)
+            ? Files.createTempFile(directory, "halftone-", ".tiles")
+            : Files.createTempFile("halftone-", ".tiles");
+
+        this.residentBytes = Math.max(0, residentBytes);
+
+        channel = FileChannel.open(file,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Reserves a range of the scratch file. The file grows sparsely when a
+     * tile of the range is first mapped; unwritten bytes read as zero.
+     *
+     * @param bytes Size of the range.
+     * @return File offset of the range.
+     */
+    synchronized long reserve(long bytes) {
+        long offset = end;
+        end += bytes;
+
+        return offset;
+    }
+
+    /**
+     * Maps a tile, or finds it already mapped, and pins it until
+     * {@link #release} is called.
+     *
+     * @param offset File offset of the tile, as reserved.
+     * @param size Size of the tile in bytes.
+     * @return The pinned tile.
+     * @throws UncheckedIOException if the tile cannot be mapped.
+     */
+    synchronized Tile acquire(long offset, long size) {
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("Tile cache is closed.");
+        }
+
+        Tile tile = tiles.get(offset);
+
+        if (tile == null) {
+            evict(size);
+
+            Arena arena = Arena.ofShared();
+
+            try {
+                tile = new Tile(size, arena, channel.map(FileChannel.MapMode.READ_WRITE, offset, size, arena));
+            } catch (IOException e) {
+                arena.close();
+
+                throw new UncheckedIOException("Error during tile mapping", e);
+            }
+
+            tiles.put(offset, tile);
+            mappedBytes += size;
+        }
+
+        tile.pins++;
+
+        return tile;
+    }
+
+    /**
+     * Unpins a tile returned by {@link #acquire}. The tile stays mapped until
+     * it is evicted.
+     */
+    synchronized void release(Tile tile) {
+        tile.pins--;
+
+        // Tiles pinned while the budget was full may have pushed it over
+        if (mappedBytes > residentBytes) {
+            evict(0);
+        }
+    }
+
+    /**
+     * @return Bytes of tiles currently mapped.
+     */
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * @return Bytes reserved in the scratch file.
+     */
+    public synchronized long getReservedBytes() {
+        return end;
+    }
+
+    /**
+     * Unmaps all tiles and deletes the scratch file. Rasters stored in the
+     * cache must not be used afterwards.
+     *
+     * @throws IOException if closing the file fails.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            for (Tile tile : tiles.values()) {
+                tile.arena.close();
+            }
+
+            tiles.clear();
+            mappedBytes = 0;
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Unmaps least recently used, unpinned tiles until the incoming bytes fit the budget
+    private void evict(long incoming) {
+        Iterator<Tile> iterator = tiles.values().iterator();
+
+        while (mappedBytes + incoming > residentBytes && iterator.hasNext()) {
+            Tile tile = iterator.next();
+
+            if (tile.pins == 0) {
+                iterator.remove();
+                tile.arena.close();
+                mappedBytes -= tile.size;
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package Data;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * A raster held outside the Java heap in a MemorySegment, so rasters larger
+ * than the 2 GB array limit can be built and multi-GB pixel data does not
+ * weigh on the garbage collector.
+ *
+ * Pixels are stored row after row, either as packed ARGB ints or as one gray
+ * byte (a coverage plane). The memory belongs to the Arena the raster was
+ * allocated from and is released when that arena is closed; the raster must
+ * not be used afterwards.
+ *
+ * A raster can also be stored in a {@link MappedTileCache} instead, as
+ * square tiles of {@link #MAPPED_TILE_SIZE} pixels in a memory-mapped scratch
+ * file, for rasters larger than memory. The row, region, tile and image
+ * methods work the same on both; only {@link #segment()} needs the in-memory
+ * layout. Region copies pin each mapped tile they touch once, so bulk copies
+ * should go through them rather than row by row.
+ *
+ * Java2D cannot draw into a segment, so shapes are drawn into a small
+ * BufferedImage tile and copied in with {@link #draw}; {@link #toImage}
+ * copies a region back out, for display or for encoding.
+ */
+public class OffHeapRaster {
+    // Width and height of the tiles of a disk-backed raster
+    public static final int MAPPED_TILE_SIZE = 512;
+
+    public final int width, height;
+    public final int bytesPerPixel; // 4 for packed ARGB, 1 for gray
+
+    private final MemorySegment segment; // Null if disk-backed
+
+    // Disk-backed storage: tiles follow each other row by row from base
+    private final MappedTileCache cache;
+    private final long base;
+    private final int tilesAcross;
+    private final long tileBytes;
+
+    private OffHeapRaster(MemorySegment segment, int width, int height, int bytesPerPixel) {
+        this.segment = segment;
+        this.width = width;
+        this.height = height;
+        this.bytesPerPixel = bytesPerPixel;
+
+        this.cache = null;
+        this.base = 0;
+        this.tilesAcross = 0;
+        this.tileBytes = 0;
+    }
+
+    private OffHeapRaster(MappedTileCache cache, int width, int height, int bytesPerPixel) {
+        this.segment = null;
+        this.width = width;
+        this.height = height;
+        this.bytesPerPixel = bytesPerPixel;
+
+        this.cache = cache;
+        this.tilesAcross = (width + MAPPED_TILE_SIZE - 1) / MAPPED_TILE_SIZE;
+        this.tileBytes = (long) MAPPED_TILE_SIZE * MAPPED_TILE_SIZE * bytesPerPixel;
+
+        int tilesDown = (height + MAPPED_TILE_SIZE - 1) / MAPPED_TILE_SIZE;
+        this.base = cache.reserve(tileBytes * tilesAcross * tilesDown);
+    }
+
+    /**
+     * Allocates a packed ARGB raster, initially transparent black.
+     *
+     * @param arena Arena that owns the memory; use a shared arena if several threads access the raster.
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @return The new raster.
+     */
+    public static OffHeapRaster allocateArgb(Arena arena, int width, int height) {
+        return new OffHeapRaster(arena.allocate((long) width * height * 4, 8), width, height, 4);
+    }
+
+    /**
+     * Allocates a gray raster, initially black (full coverage for a
+     * coverage plane).
+     *
+     * @param arena Arena that owns the memory; use a shared arena if several threads access the raster.
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @return The new raster.
+     */
+    public static OffHeapRaster allocateGray(Arena arena, int width, int height) {
+        return new OffHeapRaster(arena.allocate((long) width * height, 8), width, height, 1);
+    }
+
+    /**
+     * Allocates a disk-backed packed ARGB raster, initially transparent
+     * black.
+     *
+     * @param cache Scratch storage that holds the tiles until it is closed.
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @return The new raster.
+     */
+    public static OffHeapRaster allocateArgb(MappedTileCache cache, int width, int height) {
+        return new OffHeapRaster(cache, width, height, 4);
+    }
+
+    /**
+     * Allocates a disk-backed gray raster, initially black.
+     *
+     * @param cache Scratch storage that holds the tiles until it is closed.
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @return The new raster.
+     */
+    public static OffHeapRaster allocateGray(MappedTileCache cache, int width, int height) {
+        return new OffHeapRaster(cache, width, height, 1);
+    }
+
+    /**
+     * @return True if the raster is stored in a MappedTileCache.
+     */
+    public boolean isDiskBacked() {
+        return cache != null;
+    }
+
+    /**
+     * @return The memory holding the pixels, for direct access by custom rasterizers.
+     * @throws IllegalStateException if the raster is disk-backed.
+     */
+    public MemorySegment segment() {
+        if (cache != null) {
+            throw new IllegalStateException("Disk-backed rasters are only accessible by row or tile.");
+        }
+
+        return segment;
+    }
+
+    /**
+     * @return Byte offset of pixel (x, y) in the segment of an in-memory raster.
+     */
+    public long offset(int x, int y) {
+        return ((long) y * width + x) * bytesPerPixel;
+    }
+
+    /**
+     * @return True if the whole raster fits into a single BufferedImage.
+     */
+    public boolean fitsImage() {
+        return (long) width * height <= Integer.MAX_VALUE - 8;
+    }
+
+    public int getArgb(int x, int y) {
+        if (cache == null) {
+            return segment.get(ValueLayout.JAVA_INT, offset(x, y));
+        }
+
+        int[] pixel = new int[1];
+        readRow(y, x, 1, pixel, 0);
+
+        return pixel[0];
+    }
+
+    public void setArgb(int x, int y, int argb) {
+        if (cache == null) {
+            segment.set(ValueLayout.JAVA_INT, offset(x, y), argb);
+        } else {
+            writeRow(y, x, 1, new int[]{argb}, 0);
+        }
+    }
+
+    public int getGray(int x, int y) {
+        if (cache == null) {
+            return segment.get(ValueLayout.JAVA_BYTE, offset(x, y)) & 0xFF;
+        }
+
+        byte[] sample = new byte[1];
+        readRow(y, x, 1, sample, 0);
+
+        return sample[0] & 0xFF;
+    }
+
+    public void setGray(int x, int y, int gray) {
+        if (cache == null) {
+            segment.set(ValueLayout.JAVA_BYTE, offset(x, y), (byte) gray);
+        } else {
+            writeRow(y, x, 1, new byte[]{(byte) gray}, 0);
+        }
+    }
+
+    /**
+     * Copies count ARGB pixels of row y, starting at column x, into dest.
+     */
+    public void readRow(int y, int x, int count, int[] dest, int destIndex) {
+        copyRow(y, x, count, dest, destIndex, ValueLayout.JAVA_INT, true);
+    }
+
+    /**
+     * Copies count ARGB pixels from src into row y, starting at column x.
+     */
+    public void writeRow(int y, int x, int count, int[] src, int srcIndex) {
+        copyRow(y, x, count, src, srcIndex, ValueLayout.JAVA_INT, false);
+    }
+
+    /**
+     * Copies count gray samples of row y, starting at column x, into dest.
+     */
+    public void readRow(int y, int x, int count, byte[] dest, int destIndex) {
+        copyRow(y, x, count, dest, destIndex, ValueLayout.JAVA_BYTE, true);
+    }
+
+    /**
+     * Copies count gray samples from src into row y, starting at column x.
+     */
+    public void writeRow(int y, int x, int count, byte[] src, int srcIndex) {
+        copyRow(y, x, count, src, srcIndex, ValueLayout.JAVA_BYTE, false);
+    }
+
+    /**
+     * Copies a region of ARGB pixels into dest, its rows back to back.
+     */
+    public void readRegion(int x, int y, int regionWidth, int regionHeight, int[] dest, int destIndex) {
+        copyRegion(x, y, regionWidth, regionHeight, dest, destIndex, ValueLayout.JAVA_INT, true);
+    }
+
+    /**
+     * Copies ARGB pixels from src, rows back to back, into a region.
+     */
+    public void writeRegion(int x, int y, int regionWidth, int regionHeight, int[] src, int srcIndex) {
+        copyRegion(x, y, regionWidth, regionHeight, src, srcIndex, ValueLayout.JAVA_INT, false);
+    }
+
+    /**
+     * Copies a region of gray samples into dest, its rows back to back.
+     */
+    public void readRegion(int x, int y, int regionWidth, int regionHeight, byte[] dest, int destIndex) {
+        copyRegion(x, y, regionWidth, regionHeight, dest, destIndex, ValueLayout.JAVA_BYTE, true);
+    }
+
+    /**
+     * Copies gray samples from src, rows back to back, into a region.
+     */
+    public void writeRegion(int x, int y, int regionWidth, int regionHeight, byte[] src, int srcIndex) {
+        copyRegion(x, y, regionWidth, regionHeight, src, srcIndex, ValueLayout.JAVA_BYTE, false);
+    }
+
+    /**
+     * Copies a tile into the raster with its top-left corner at (x, y).
+     * Parts of the tile outside the raster are dropped. ARGB rasters take
+     * any image type; gray rasters take the first band of the tile.
+     *
+     * @param tile The tile, e.g. drawn with Java2D.
+     * @param x Column of the tile's left edge.
+     * @param y Row of the tile's top edge.
+     */
+    public void draw(BufferedImage tile, int x, int y) {
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + tile.getWidth());
+        int count = x1 - x0;
+
+        int y1 = Math.min(height, y + tile.getHeight());
+
+        if (count <= 0) return;
+
+        // Bands end on mapped tile rows, so every mapped tile is pinned once per tile drawn
+        int bandRows = Math.min(MAPPED_TILE_SIZE, Math.max(0, y1 - Math.max(0, y)));
+        int[] argb = (bytesPerPixel == 4) ? new int[count * bandRows] : null;
+        int[] samples = (bytesPerPixel == 1) ? new int[count * bandRows] : null;
+        byte[] gray = (bytesPerPixel == 1) ? new byte[count * bandRows] : null;
+
+        for (int row = Math.max(0, y); row < y1; ) {
+            int rows = Math.min(y1, (row / MAPPED_TILE_SIZE + 1) * MAPPED_TILE_SIZE) - row;
+
+            if (argb != null) {
+                tile.getRGB(x0 - x, row - y, count, rows, argb, 0, count);
+                writeRegion(x0, row, count, rows, argb, 0);
+            } else {
+                tile.getRaster().getSamples(x0 - x, row - y, count, rows, 0, samples);
+
+                for (int i = 0; i < count * rows; i++) {
+                    gray[i] = (byte) samples[i];
+                }
+
+                writeRegion(x0, row, count, rows, gray, 0);
+            }
+
+            row += rows;
+        }
+    }
+
+    /**
+     * Copies a region into a new BufferedImage: TYPE_INT_ARGB for ARGB
+     * rasters, TYPE_BYTE_GRAY for gray ones.
+     *
+     * @param x Left edge of the region.
+     * @param y Top edge of the region.
+     * @param regionWidth Width of the region.
+     * @param regionHeight Height of the region.
+     * @return The region as a heap image.
+     */
+    public BufferedImage toImage(int x, int y, int regionWidth, int regionHeight) {
+        if (bytesPerPixel == 4) {
+            BufferedImage image = new BufferedImage(regionWidth, regionHeight, BufferedImage.TYPE_INT_ARGB);
+            readRegion(x, y, regionWidth, regionHeight, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0);
+
+            return image;
+        }
+
+        BufferedImage image = new BufferedImage(regionWidth, regionHeight, BufferedImage.TYPE_BYTE_GRAY);
+        readRegion(x, y, regionWidth, regionHeight, ((DataBufferByte) image.getRaster().getDataBuffer()).getData(), 0);
+
+        return image;
+    }
+
+    /**
+     * Copies the whole raster into a new BufferedImage, see {@link #toImage(int, int, int, int)}.
+     *
+     * @return The raster as a heap image.
+     * @throws IllegalStateException if the raster is too large for a BufferedImage.
+     */
+    public BufferedImage toImage() {
+        if (!fitsImage()) {
+            throw new IllegalStateException("Raster of " + width + "x" + height + " is too large for a BufferedImage.");
+        }
+
+        return toImage(0, 0, width, height);
+    }
+
+    // Copies a run of row y between the raster and an array, one tile at a time if disk-backed
+    private void copyRow(int y, int x, int count, Object array, int index, ValueLayout layout, boolean read) {
+        if (cache == null) {
+            if (read) {
+                MemorySegment.copy(segment, layout, offset(x, y), array, index, count);
+            } else {
+                MemorySegment.copy(array, index, segment, layout, offset(x, y), count);
+            }
+
+            return;
+        }
+
+        // Tiles are contiguous, so a run past the row end would land in another tile
+        Objects.checkIndex(y, height);
+        Objects.checkFromIndexSize(x, count, width);
+
+        int tileY = y / MAPPED_TILE_SIZE;
+        long rowOffset = (long) (y - tileY * MAPPED_TILE_SIZE) * MAPPED_TILE_SIZE;
+
+        while (count > 0) {
+            int tileX = x / MAPPED_TILE_SIZE;
+            int column = x - tileX * MAPPED_TILE_SIZE;
+            int run = Math.min(count, MAPPED_TILE_SIZE - column);
+            long position = (rowOffset + column) * bytesPerPixel;
+
+            MappedTileCache.Tile tile = cache.acquire(base + ((long) tileY * tilesAcross + tileX) * tileBytes, tileBytes);
+
+            try {
+                if (read) {
+                    MemorySegment.copy(tile.segment(), layout, position, array, index, run);
+                } else {
+                    MemorySegment.copy(array, index, tile.segment(), layout, position, run);
+                }
+            } finally {
+                cache.release(tile);
+            }
+
+            x += run;
+            index += run;
+            count -= run;
+        }
+    }
+
+    // Copies a region between the raster and an array, pinning each disk-backed tile once for all its rows
+    private void copyRegion(int x, int y, int regionWidth, int regionHeight, Object array, int index, ValueLayout layout, boolean read) {
+        Objects.checkFromIndexSize(x, regionWidth, width);
+        Objects.checkFromIndexSize(y, regionHeight, height);
+
+        if (cache == null) {
+            // Full-width rows are contiguous in the segment
+            if (regionWidth == width) {
+                copyRow(y, 0, regionWidth * regionHeight, array, index, layout, read);
+            } else {
+                for (int row = 0; row < regionHeight; row++) {
+                    copyRow(y + row, x, regionWidth, array, index + row * regionWidth, layout, read);
+                }
+            }
+
+            return;
+        }
+
+        for (int tileY = y / MAPPED_TILE_SIZE; tileY * MAPPED_TILE_SIZE < y + regionHeight; tileY++) {
+            int top = Math.max(y, tileY * MAPPED_TILE_SIZE);
+            int bottom = Math.min(y + regionHeight, (tileY + 1) * MAPPED_TILE_SIZE);
+
+            for (int tileX = x / MAPPED_TILE_SIZE; tileX * MAPPED_TILE_SIZE < x + regionWidth; tileX++) {
+                int left = Math.max(x, tileX * MAPPED_TILE_SIZE);
+                int run = Math.min(x + regionWidth, (tileX + 1) * MAPPED_TILE_SIZE) - left;
+
+                MappedTileCache.Tile tile = cache.acquire(base + ((long) tileY * tilesAcross + tileX) * tileBytes, tileBytes);
+
+                try {
+                    for (int row = top; row < bottom; row++) {
+                        long position = ((long) (row - tileY * MAPPED_TILE_SIZE) * MAPPED_TILE_SIZE + (left - tileX * MAPPED_TILE_SIZE)) * bytesPerPixel;
+                        int i = index + (row - y) * regionWidth + (left - x);
+
+                        if (read) {
+                            MemorySegment.copy(tile.segment(), layout, position, array, i, run);
+                        } else {
+                            MemorySegment.copy(array, i, tile.segment(), layout, position, run);
+                        }
+                    }
+                } finally {
+                    cache.release(tile);
+                }
+            }
+        }
+    }
+}
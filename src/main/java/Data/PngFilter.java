@@ -0,0 +1,16 @@
+package Data;
+
+/**
+ * Scanline filter applied before a PNG is deflated.
+ * Sub, Up, Average and Paeth use the same filter for every row; Adaptive
+ * picks the one with the smallest sum of absolute differences per row, as
+ * libpng does. None is fastest and suits palette images.
+ */
+public enum PngFilter {
+    None,
+    Sub,
+    Up,
+    Average,
+    Paeth,
+    Adaptive;
+}
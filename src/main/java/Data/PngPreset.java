@@ -0,0 +1,19 @@
+package Data;
+
+/**
+ * Named PNG compression settings. Fast skips filtering and deflates at
+ * level 1; Best filters adaptively and deflates at level 9.
+ */
+public enum PngPreset {
+    Fast(1, PngFilter.None),
+    Default(6, PngFilter.Adaptive),
+    Best(9, PngFilter.Adaptive);
+
+    public final int level;
+    public final PngFilter filter;
+
+    PngPreset(int level, PngFilter filter) {
+        this.level = level;
+        this.filter = filter;
+    }
+}
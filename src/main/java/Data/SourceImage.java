@@ -0,0 +1,36 @@
+package Data;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A decoded input image, possibly subsampled: image holds every step-th pixel
+ * of each step-th row of a width × height source. A step of 1 is the full
+ * image.
+ */
+public class SourceImage {
+    public final BufferedImage image;
+    public final int width, height; // Dimensions of the source at full resolution
+    public final int step; // Source pixels between two decoded samples along each axis
+
+    /**
+     * Wraps a fully decoded image.
+     *
+     * @param image The decoded image.
+     */
+    public SourceImage(BufferedImage image) {
+        this(image, image.getWidth(), image.getHeight(), 1);
+    }
+
+    /**
+     * @param image The decoded (reduced) image.
+     * @param width Width of the source at full resolution.
+     * @param height Height of the source at full resolution.
+     * @param step Subsampling factor the image was decoded with.
+     */
+    public SourceImage(BufferedImage image, int width, int height, int step) {
+        this.image = image;
+        this.width = width;
+        this.height = height;
+        this.step = step;
+    }
+}
@@ -0,0 +1,425 @@
+package FileManager;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import org.w3c.dom.Node;
+
+/**
+ * Decodes an image file in horizontal bands of rows, so callers can consume
+ * the pixels without the whole image ever being resident.
+ *
+ * The image is decoded once, top to bottom, into a {@link RowSink}: a
+ * destination raster that keeps no pixels but converts every row the
+ * decoder writes into the current band, and hands each full band to the
+ * caller. This covers the PNG and JPEG readers, which write their rows in
+ * order by setRect or setPixel.
+ *
+ * Readers that write rows out of order or through other accessors (e.g.
+ * interlaced PNGs, bottom-up BMPs) are detected before the first band is
+ * handed over, and progressive JPEGs, which write every row once per scan,
+ * are recognised from their metadata. Those images are read band by band with
+ * {@link ImageReadParam#setSourceRegion} instead, which decodes the stream
+ * from its start for every band. Netpbm files are read through a
+ * {@link PnmReader}, which converts each band straight from the
+ * memory-mapped file.
+ */
+public class BandReader implements Closeable {
+    // Default amount of decoded ARGB data per band
+    public static final long DEFAULT_BAND_BYTES = 32L * 1024 * 1024;
+
+    private final String fileLocation;
+    private ImageInputStream stream;
+    private ImageReader reader;
+    private final PnmReader pnm; // Set instead of the ImageIO reader for Netpbm files
+    private final int width;
+    private final int height;
+
+    private BufferedImage destination; // Band image of the region fallback
+
+    // Native metadata of the JDK JPEG reader, whose start-of-frame marker tells progressive images apart
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    /**
+     * Receives the bands of {@link #readBands}.
+     */
+    public interface BandConsumer {
+        /**
+         * @param y First row of the band.
+         * @param rows Number of rows of the band.
+         * @param band Packed ARGB pixels of the band, row after row with a
+         * scanline stride of the image width; overwritten by the next band.
+         */
+        void accept(int y, int rows, int[] band);
+    }
+
+    /**
+     * Opens the file and reads its header.
+     *
+     * @param fileLocation Path to the image file.
+     * @throws IOException if the file cannot be opened or no reader supports it.
+     */
+    public BandReader(String fileLocation) throws IOException {
+        this.fileLocation = fileLocation;
+
+        if (PnmReader.isPnm(fileLocation)) {
+            pnm = new PnmReader(fileLocation);
+            stream = null;
+            reader = null;
+
+            width = pnm.getWidth();
+            height = pnm.getHeight();
+
+            return;
+        }
+
+        pnm = null;
+        openReader();
+
+        width = reader.getWidth(0);
+        height = reader.getHeight(0);
+    }
+
+    private void openReader() throws IOException {
+        stream = ImageIO.createImageInputStream(new File(fileLocation));
+
+        if (stream == null) {
+            throw new IOException("Error when reading image: " + fileLocation);
+        }
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+
+        if (!readers.hasNext()) {
+            stream.close();
+
+            throw new IOException("No image reader available for: " + fileLocation);
+        }
+
+        reader = readers.next();
+        // The region fallback seeks back to the start of the image data for every band
+        reader.setInput(stream, false, true);
+    }
+
+    /**
+     * @return Width of the image in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Height of the image in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Number of rows per band so that one band of ARGB pixels stays within
+     * the given number of bytes. At least one row is always read.
+     *
+     * @param bandBytes Bytes one decoded band may take.
+     * @return Rows per band, between 1 and the image height.
+     */
+    public int bandRows(long bandBytes) {
+        long rowBytes = 4L * width;
+
+        return (int) Math.max(1, Math.min(height, bandBytes / rowBytes));
+    }
+
+    /**
+     * Decodes the image from top to bottom and hands it to the consumer in
+     * consecutive bands of bandRows rows (the last one may be shorter).
+     *
+     * @param bandRows Rows per band.
+     * @param band Buffer of at least bandRows * width pixels the bands are decoded into.
+     * @param consumer Receives every band in order.
+     * @throws IOException if decoding fails.
+     */
+    public void readBands(int bandRows, int[] band, BandConsumer consumer) throws IOException {
+        if (bandRows < 1 || band.length < (long) bandRows * width) {
+            throw new IllegalArgumentException("Band buffer too small for " + bandRows + " rows");
+        }
+
+        if (pnm != null) {
+            for (int y = 0; y < height; y += bandRows) {
+                int rows = Math.min(bandRows, height - y);
+
+                pnm.readBand(y, rows, band);
+                consumer.accept(y, rows, band);
+            }
+
+            return;
+        }
+
+        if (!rewritesRows() && readSequentially(bandRows, band, consumer)) return;
+
+        // Start over on a fresh reader, which decodes from the start of the stream for every band
+        reader.dispose();
+        stream.close();
+        openReader();
+
+        for (int y = 0; y < height; y += bandRows) {
+            int rows = Math.min(bandRows, height - y);
+
+            readRegion(y, rows, band);
+            consumer.accept(y, rows, band);
+        }
+    }
+
+    /**
+     * Decodes the image in one pass into a RowSink.
+     *
+     * @return False if the reader cannot write into a RowSink and no band was handed over yet.
+     */
+    private boolean readSequentially(int bandRows, int[] band, BandConsumer consumer) throws IOException {
+        ImageTypeSpecifier type = reader.getImageTypes(0).next();
+        RowSink sink = new RowSink(type, width, height, bandRows, band, consumer);
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(new BufferedImage(type.getColorModel(), sink, false, null));
+
+        try {
+            reader.read(0, param);
+        } catch (IOException | RuntimeException e) {
+            if (sink.consumerFailure != null) {
+                throw sink.consumerFailure;
+            }
+
+            boolean outOfOrder = causedBy(e, OutOfOrder.class);
+
+            // Readers that expect their own data buffer (e.g. BMP) fail on the sink before writing a row
+            if (sink.bandsHandedOver == 0 && (outOfOrder || e instanceof ClassCastException)) return false;
+
+            if (outOfOrder) {
+                throw new IIOException("Image rows were decoded out of order", e);
+            }
+
+            throw e;
+        }
+
+        sink.finish();
+
+        return true;
+    }
+
+    /**
+     * Progressive JPEGs are written once per scan, each pass over all rows.
+     * Their first pass looks like a baseline image until its rows start over,
+     * which is too late once bands were handed over, so they are recognised
+     * from the start-of-frame marker instead.
+     */
+    private boolean rewritesRows() throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(0);
+
+        if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return false;
+        }
+
+        Node tree = metadata.getAsTree(JPEG_METADATA_FORMAT);
+
+        for (Node node = tree.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!"markerSequence".equals(node.getNodeName())) continue;
+
+            for (Node marker = node.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                if (!"sof".equals(marker.getNodeName())) continue;
+
+                Node process = marker.getAttributes().getNamedItem("process");
+
+                return process != null && "2".equals(process.getNodeValue());
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) return true;
+        }
+
+        return false;
+    }
+
+    // Decodes rows [y, y + rows) with a source region, as ARGB pixels into dest
+    private void readRegion(int y, int rows, int[] dest) throws IOException {
+        // One destination sized for the tallest band is reused by every read
+        if (destination == null || destination.getHeight() < rows) {
+            ImageTypeSpecifier type = reader.getImageTypes(0).next();
+            destination = type.createBufferedImage(width, rows);
+        }
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, y, width, rows));
+        param.setDestination(destination);
+
+        reader.read(0, param);
+
+        destination.getRGB(0, 0, width, rows, dest, 0, width);
+    }
+
+    // Raised inside the decoder when it writes the destination in a way a RowSink cannot stream
+    private static final class OutOfOrder extends RuntimeException {
+        OutOfOrder() {
+            super("Rows not written in order", null, false, false);
+        }
+    }
+
+    /**
+     * Destination raster of a single-pass decode. It has the size of the
+     * image but no pixel storage: rows written with setRect, and pixels
+     * written with setPixel from left to right, are collected in a one-row
+     * image of the reader's type and converted into the band as each row
+     * completes. Full bands go to the consumer. Rows that skip ahead or go
+     * back, incomplete rows and any other access to the raster raise
+     * {@link OutOfOrder}.
+     */
+    private static final class RowSink extends WritableRaster {
+        private final int bandRows;
+        private final int[] band;
+        private final BandConsumer consumer;
+        private final BufferedImage rowImage;
+        private final WritableRaster row;
+
+        private int rowY = -1; // Row being written, -1 before the first one
+        private int rowPixels = 0;
+        private int bandY = 0; // First row of the current band
+        private int bandFilled = 0;
+        int bandsHandedOver = 0;
+        RuntimeException consumerFailure;
+
+        RowSink(ImageTypeSpecifier type, int width, int height, int bandRows, int[] band, BandConsumer consumer) {
+            super(type.getSampleModel(width, height), new NoStorage(type.getSampleModel(1, 1).getDataType()), new Point());
+
+            this.bandRows = bandRows;
+            this.band = band;
+            this.consumer = consumer;
+            this.rowImage = type.createBufferedImage(width, 1);
+            this.row = rowImage.getRaster();
+        }
+
+        @Override
+        public void setRect(int dx, int dy, Raster source) {
+            if (source.getMinX() + dx != 0 || source.getWidth() != width) {
+                throw new OutOfOrder();
+            }
+
+            for (int r = 0; r < source.getHeight(); r++) {
+                int y = source.getMinY() + r;
+
+                startRow(y + dy);
+
+                // Shift the source so that its row y lands on the one row of the row image
+                row.setRect(-source.getMinX(), -y, source);
+                rowPixels = width;
+            }
+        }
+
+        @Override
+        public void setPixel(int x, int y, int[] samples) {
+            startRow(y);
+
+            if (x != rowPixels) {
+                throw new OutOfOrder();
+            }
+
+            row.setPixel(x, 0, samples);
+            rowPixels++;
+        }
+
+        // Completes the row before y, which must be the next one
+        private void startRow(int y) {
+            if (y == rowY) return;
+
+            if (y != rowY + 1 || (rowY >= 0 && rowPixels != width)) {
+                throw new OutOfOrder();
+            }
+
+            if (rowY >= 0) {
+                completeRow();
+            }
+
+            rowY = y;
+            rowPixels = 0;
+        }
+
+        private void completeRow() {
+            rowImage.getRGB(0, 0, width, 1, band, bandFilled * width, width);
+
+            if (++bandFilled == bandRows) {
+                handOver();
+            }
+        }
+
+        private void handOver() {
+            try {
+                consumer.accept(bandY, bandFilled, band);
+            } catch (RuntimeException e) {
+                consumerFailure = e;
+
+                throw e;
+            }
+
+            bandY += bandFilled;
+            bandFilled = 0;
+            bandsHandedOver++;
+        }
+
+        // Completes the last row and band once the decoder has returned
+        void finish() throws IIOException {
+            if (rowY != height - 1 || rowPixels != width) {
+                throw new IIOException("Image incomplete: decoding stopped at row " + Math.max(0, rowY) + " of " + height);
+            }
+
+            completeRow();
+
+            if (bandFilled > 0) {
+                handOver();
+            }
+        }
+    }
+
+    // Data buffer of a RowSink; any access means the decoder bypassed the row methods
+    private static final class NoStorage extends DataBuffer {
+        NoStorage(int dataType) {
+            super(dataType, 1);
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            throw new OutOfOrder();
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            throw new OutOfOrder();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pnm != null) {
+            pnm.close();
+
+            return;
+        }
+
+        reader.dispose();
+        destination = null;
+        stream.close();
+    }
+}
@@ -1,8 +1,23 @@
 package FileManager;
 
+import Data.GrayscaleMethod;
+import Util.Scheduler;
+import Util.VectorKernels;
+import Util.VectorSupport;
+
 import java.awt.Color;
 
 public class Grayscale {
+    // Luma weights in 16-bit fixed point, each triple sums to 65536
+    private static final int BT601_R = 19595, BT601_G = 38470, BT601_B = 7471;
+    private static final int BT709_R = 13933, BT709_G = 46871, BT709_B = 4732;
+    private static final int WEIGHTED_R = 19661, WEIGHTED_G = 38666, WEIGHTED_B = 7209;
+
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    // Number of pixels converted per parallel task
+    public int pixelsPerChunk = 1 << 18;
+
     /**
     * Expects interger array of size 4, with values between 0 and 255, 
     * with {alpha, red, green, blue}, 
@@ -266,4 +281,126 @@ public class Grayscale {
         
         return (a << 24) | (grayR << 16) | (grayG << 8) | grayB;
     }
-}
\ No newline at end of file
+
+    //---------------------- Bulk conversion ----------------------
+
+    /**
+    * Returns the gray level (0-255) of a packed ARGB value with the given
+    * method, using the same fixed-point arithmetic as the bulk methods.
+    * Weighted methods may differ by one level from the per-pixel methods
+    * above, which truncate a floating-point sum.
+    * 
+    * @param argb Packed ARGB integer
+    * @param method Grayscale formula
+    * @return int gray level between 0 and 255
+    */
+    public static int luminance(int argb, GrayscaleMethod method) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        
+        return switch (method) {
+            // Zero saturation keeps the HSB brightness, which is the max channel
+            case MaxValue, HsbSaturation -> Math.max(r, Math.max(g, b));
+            case MinValue -> Math.min(r, Math.min(g, b));
+            case Bt601 -> (r * BT601_R + g * BT601_G + b * BT601_B) >>> 16;
+            case Bt709 -> (r * BT709_R + g * BT709_G + b * BT709_B) >>> 16;
+            case WeightedAverage -> (r * WEIGHTED_R + g * WEIGHTED_G + b * WEIGHTED_B) >>> 16;
+            case Average -> (r + g + b) / 3;
+        };
+    }
+    
+    /**
+    * Converts a whole buffer of packed ARGB pixels into 8-bit gray levels,
+    * in parallel chunks.
+    * 
+    * @param argb Packed ARGB pixels
+    * @param method Grayscale formula
+    * @return byte[] of unsigned gray levels, one per pixel
+    */
+    public byte[] toLuminance(int[] argb, GrayscaleMethod method) {
+        byte[] out = new byte[argb.length];
+        
+        Scheduler.forEachRange(argb.length, pixelsPerChunk, threads, "grayscale conversion", (from, to) -> toLuminance(argb, from, to, out, method));
+        
+        return out;
+    }
+    
+    /**
+    * Converts the pixel range [from, to) of a packed ARGB buffer into 8-bit
+    * gray levels at the same indices of out, on the calling thread.
+    * 
+    * @param argb Packed ARGB pixels
+    * @param from First pixel index (inclusive)
+    * @param to Last pixel index (exclusive)
+    * @param out Destination of unsigned gray levels
+    * @param method Grayscale formula
+    */
+    public void toLuminance(int[] argb, int from, int to, byte[] out, GrayscaleMethod method) {
+        int[] w = weights(method);
+        
+        // The SIMD kernel covers whole vectors of weighted sums; the scalar loop finishes the rest
+        int start = (w != null && VectorSupport.isEnabled())
+            ? VectorKernels.luminance(argb, from, to, out, w[0], w[1], w[2])
+            : from;
+        
+        for (int i = start; i < to; i++) {
+            out[i] = (byte) luminance(argb[i], method);
+        }
+    }
+    
+    /**
+    * Converts a whole buffer of packed ARGB pixels into packed gray ARGB
+    * pixels that keep their alpha, in parallel chunks. out may be the same
+    * array as argb to convert in place.
+    * 
+    * @param argb Packed ARGB pixels
+    * @param out Destination of packed gray ARGB pixels
+    * @param method Grayscale formula
+    * @return out
+    */
+    public int[] toGrayArgb(int[] argb, int[] out, GrayscaleMethod method) {
+        Scheduler.forEachRange(argb.length, pixelsPerChunk, threads, "grayscale conversion", (from, to) -> toGrayArgb(argb, from, to, out, method));
+        
+        return out;
+    }
+    
+    /**
+    * Converts the pixel range [from, to) of a packed ARGB buffer into packed
+    * gray ARGB pixels at the same indices of out, on the calling thread.
+    * 
+    * @param argb Packed ARGB pixels
+    * @param from First pixel index (inclusive)
+    * @param to Last pixel index (exclusive)
+    * @param out Destination of packed gray ARGB pixels
+    * @param method Grayscale formula
+    */
+    public void toGrayArgb(int[] argb, int from, int to, int[] out, GrayscaleMethod method) {
+        int[] w = weights(method);
+        
+        // The SIMD kernel covers whole vectors of weighted sums; the scalar loop finishes the rest
+        int start = (w != null && VectorSupport.isEnabled())
+            ? VectorKernels.grayArgb(argb, from, to, out, w[0], w[1], w[2])
+            : from;
+        
+        for (int i = start; i < to; i++) {
+            int pixel = argb[i];
+            int gray = luminance(pixel, method);
+            
+            out[i] = (pixel & 0xff000000) | (gray << 16) | (gray << 8) | gray;
+        }
+    }
+    
+    /**
+    * Returns the fixed-point {red, green, blue} weights of a weighted-sum
+    * method, or null for the other methods.
+    */
+    private static int[] weights(GrayscaleMethod method) {
+        return switch (method) {
+            case Bt601 -> new int[]{BT601_R, BT601_G, BT601_B};
+            case Bt709 -> new int[]{BT709_R, BT709_G, BT709_B};
+            case WeightedAverage -> new int[]{WEIGHTED_R, WEIGHTED_G, WEIGHTED_B};
+            default -> null;
+        };
+    }
+}
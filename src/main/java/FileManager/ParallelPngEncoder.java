@@ -0,0 +1,309 @@
+package FileManager;
+
+import Data.PngFilter;
+import Data.PngPreset;
+import Util.Scheduler;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a PNG on all scheduler threads, in the way pigz compresses: the
+ * filtered scanlines are cut into chunks of whole rows that are filtered and
+ * deflated in parallel, and the raw deflate outputs are joined into one zlib
+ * stream.
+ *
+ * Each chunk except the last ends on a sync flush, so the outputs can be
+ * concatenated, and each chunk except the first is primed with the last
+ * 32 KB of the data before it as its dictionary, so matches across chunk
+ * borders are not lost. The stream's Adler-32 is combined from the chunks'
+ * checksums. Chunks are written in order as they finish, a few ahead of the
+ * writer, so memory stays bounded by the chunks in flight.
+ *
+ * Supported image types: TYPE_INT_ARGB (RGBA), TYPE_INT_RGB, TYPE_BYTE_GRAY
+ * and 8-bit TYPE_BYTE_INDEXED (palette).
+ */
+public class ParallelPngEncoder {
+    // Filtered bytes per chunk, as in pigz
+    private static final int CHUNK_BYTES = 128 * 1024;
+
+    // Deflate window, the most history a chunk can refer back to
+    private static final int DICTIONARY_BYTES = 32 * 1024;
+
+    private static final int ADLER_BASE = 65521;
+
+    private final int compressionLevel;
+    private final PngFilter filter;
+
+    /**
+     * @param compressionLevel Deflate level, 0-9 or Deflater.DEFAULT_COMPRESSION.
+     * @param filter Scanline filter.
+     */
+    public ParallelPngEncoder(int compressionLevel, PngFilter filter) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < 0 || compressionLevel > 9)) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9.");
+        }
+
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+    }
+
+    /**
+     * @param preset Named compression settings.
+     * @return An encoder with the preset's level and filter.
+     */
+    public static ParallelPngEncoder forPreset(PngPreset preset) {
+        return new ParallelPngEncoder(preset.level, preset.filter);
+    }
+
+    /**
+     * @return An encoder for speed: no filtering, deflate level 1.
+     */
+    public static ParallelPngEncoder fast() {
+        return forPreset(PngPreset.Fast);
+    }
+
+    /**
+     * @return An encoder for size: adaptive filtering, deflate level 9.
+     */
+    public static ParallelPngEncoder best() {
+        return forPreset(PngPreset.Best);
+    }
+
+    /**
+     * @param image The image to encode.
+     * @return True if the image type can be encoded.
+     */
+    public static boolean supports(BufferedImage image) {
+        return PngScanlines.supports(image);
+    }
+
+    /**
+     * Encodes the image and writes it to the file, replacing its content.
+     * The PNG is written to a temporary file next to the target and moved
+     * into place once complete, so a failure leaves any existing file
+     * untouched and no truncated PNG behind.
+     *
+     * @param image The image, of a supported type.
+     * @param filePath Path of the output file.
+     * @throws IOException if writing fails.
+     * @throws IllegalArgumentException if the image type is not supported.
+     */
+    public void write(BufferedImage image, String filePath) throws IOException {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path part = createPartFile(target);
+        boolean complete = false;
+
+        try {
+            // A replaced file keeps its permissions, as it did when it was overwritten in place
+            if (Files.exists(target)) {
+                try {
+                    Files.setPosixFilePermissions(part, Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException e) {
+                    // Not a POSIX file system; the defaults apply
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                encode(image, channel);
+            }
+
+            moveIntoPlace(part, target);
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private void encode(BufferedImage image, FileChannel channel) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int lineBytes = 1 + width * PngScanlines.bytesPerPixel(image);
+        int rowsPerChunk = Math.max(1, CHUNK_BYTES / lineBytes);
+        PngFilter rowFilter = PngScanlines.rowFilter(filter, image);
+
+        PngScanlines.writeHeader(channel, width, height, image);
+
+        // zlib header: deflate with a 32 KB window, FLEVEL matching the level
+        byte[] zlibHeader = {0x78, (byte) switch (compressionLevel) {
+            case 0, 1 -> 0x01;
+            case 2, 3, 4, 5 -> 0x5E;
+            case 7, 8, 9 -> 0xDA;
+            default -> 0x9C;
+        }};
+
+        Deque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+        int window = Math.max(1, Scheduler.parallelism()) * 2;
+        int next = 0;
+        long adler = 1;
+        boolean first = true;
+
+        try {
+            while (next < height || !pending.isEmpty()) {
+                // Keep every worker busy with a chunk while the oldest one is written
+                while (next < height && pending.size() < window) {
+                    int from = next;
+                    int to = Math.min(height, from + rowsPerChunk);
+
+                    pending.add(Scheduler.submit(() -> compressChunk(image, rowFilter, from, to, to == height)));
+
+                    next = to;
+                }
+
+                Chunk chunk = Scheduler.await(pending.poll(), "PNG compression");
+                adler = combineAdler(adler, chunk.adler, chunk.length);
+
+                if (first) {
+                    PngScanlines.writeChunk(channel, "IDAT", concat(zlibHeader, chunk.data), 0, chunk.data.length + 2);
+                    first = false;
+                } else {
+                    PngScanlines.writeChunk(channel, "IDAT", chunk.data, 0, chunk.data.length);
+                }
+            }
+        } finally {
+            // Chunks still in flight after a failure are not needed anymore
+            pending.forEach(task -> task.cancel(false));
+        }
+
+        byte[] trailer = ByteBuffer.allocate(4).putInt((int) adler).array();
+        PngScanlines.writeChunk(channel, "IDAT", trailer, 0, 4);
+        PngScanlines.writeChunk(channel, "IEND", new byte[0], 0, 0);
+    }
+
+    // Creates the file the PNG is written to, next to the target and with the permissions a new file gets
+    private static Path createPartFile(Path target) throws IOException {
+        for (int counter = 0; ; counter++) {
+            Path part = target.resolveSibling(target.getFileName() + ((counter == 0) ? "" : "." + counter) + ".part");
+
+            try {
+                return Files.createFile(part);
+            } catch (FileAlreadyExistsException e) {
+                // Left over from another save of the same target
+            }
+        }
+    }
+
+    // Replaces the target in one step where the file system allows it
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Compressed rows [from, to) and the Adler-32 of their filtered bytes
+    private record Chunk(byte[] data, int adler, long length) {}
+
+    private Chunk compressChunk(BufferedImage image, PngFilter rowFilter, int from, int to, boolean last) {
+        int lineBytes = 1 + image.getWidth() * PngScanlines.bytesPerPixel(image);
+        byte[] filtered = filterRows(image, rowFilter, from, to);
+
+        Adler32 adler = new Adler32();
+        adler.update(filtered);
+
+        Deflater deflater = new Deflater(compressionLevel, true);
+
+        try {
+            // Prime with the end of the previous chunk, re-filtered from the rows above
+            if (from > 0) {
+                int dictionaryRows = Math.min(from, (DICTIONARY_BYTES + lineBytes - 1) / lineBytes);
+                byte[] previous = filterRows(image, rowFilter, from - dictionaryRows, from);
+                int length = Math.min(DICTIONARY_BYTES, previous.length);
+
+                deflater.setDictionary(previous, previous.length - length, length);
+            }
+
+            deflater.setInput(filtered);
+
+            byte[] buffer = new byte[Math.max(64, filtered.length / 2)];
+            int length = 0;
+
+            if (last) {
+                deflater.finish();
+
+                while (!deflater.finished()) {
+                    if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+                    length += deflater.deflate(buffer, length, buffer.length - length);
+                }
+            } else {
+                // A sync flush ends on a byte boundary without closing the stream
+                do {
+                    if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+                    length += deflater.deflate(buffer, length, buffer.length - length, Deflater.SYNC_FLUSH);
+                } while (length == buffer.length);
+            }
+
+            return new Chunk(Arrays.copyOf(buffer, length), (int) adler.getValue(), filtered.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] filterRows(BufferedImage image, PngFilter rowFilter, int from, int to) {
+        int bytesPerPixel = PngScanlines.bytesPerPixel(image);
+        int rowBytes = image.getWidth() * bytesPerPixel;
+        byte[] out = new byte[(to - from) * (rowBytes + 1)];
+        byte[] previous = new byte[rowBytes];
+        byte[] current = new byte[rowBytes];
+        int[] argb = new int[image.getWidth()];
+
+        if (from > 0) {
+            PngScanlines.readRow(image, from - 1, previous, argb);
+        }
+
+        for (int y = from; y < to; y++) {
+            PngScanlines.readRow(image, y, current, argb);
+            PngScanlines.filterRow(rowFilter, current, (y > 0) ? previous : null, bytesPerPixel, out, (y - from) * (rowBytes + 1));
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return out;
+    }
+
+    // Adler-32 of two concatenated streams from their checksums, as zlib's adler32_combine
+    private static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER_BASE - remainder;
+
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+
+        return sum1 | (sum2 << 16);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+
+        return out;
+    }
+}
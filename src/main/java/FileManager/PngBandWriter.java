@@ -0,0 +1,197 @@
+package FileManager;
+
+import Data.PngFilter;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a PNG from horizontal bands handed over in top-to-bottom order, so
+ * an image can be encoded while the rest of it is still being rendered and
+ * is never resident as a whole.
+ *
+ * Each band's rows are filtered and fed to one running Deflater; the
+ * compressed stream is written to the file in IDAT chunks as it fills up.
+ * {@link #close()} flushes the stream and writes the IEND chunk; a PNG that
+ * was not finished is deleted rather than left truncated.
+ *
+ * Supported band types: TYPE_INT_ARGB (RGBA), TYPE_INT_RGB, TYPE_BYTE_GRAY
+ * and 8-bit TYPE_BYTE_INDEXED (palette).
+ */
+public class PngBandWriter implements Closeable {
+    // Default amount of rendered data per band
+    public static final long DEFAULT_BAND_BYTES = 8L * 1024 * 1024;
+
+    // Compressed bytes collected before an IDAT chunk is written
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int imageType;
+    private final int bytesPerPixel;
+    private final PngFilter filter;
+    private final Deflater deflater;
+    private final byte[] compressed = new byte[CHUNK_BYTES];
+
+    private byte[] previous; // Unfiltered previous scanline, for the Up, Average and Paeth filters
+    private byte[] current;
+    private final byte[] filtered;
+    private final int[] argbRow;
+    private int compressedLength = 0;
+    private int rowsWritten = 0;
+
+    /**
+     * Creates the file and writes the signature and header chunks.
+     *
+     * @param filePath Path of the new file.
+     * @param width Image width in pixels.
+     * @param height Image height in pixels.
+     * @param prototype Image of the bands' type (and palette), e.g. the first band.
+     * @param compressionLevel Deflate level, 0-9 or Deflater.DEFAULT_COMPRESSION.
+     * @param filter Scanline filter.
+     * @throws IOException if the file cannot be created.
+     * @throws IllegalArgumentException if the image type is not supported.
+     */
+    public PngBandWriter(String filePath, int width, int height, BufferedImage prototype, int compressionLevel, PngFilter filter) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.imageType = prototype.getType();
+        this.bytesPerPixel = PngScanlines.bytesPerPixel(prototype);
+        this.filter = PngScanlines.rowFilter(filter, prototype);
+
+        previous = new byte[width * bytesPerPixel];
+        current = new byte[width * bytesPerPixel];
+        filtered = new byte[1 + width * bytesPerPixel];
+        argbRow = new int[width];
+
+        deflater = new Deflater(compressionLevel);
+
+        path = Paths.get(filePath);
+        channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        try {
+            PngScanlines.writeHeader(channel, width, height, prototype);
+        } catch (IOException e) {
+            deflater.end();
+            channel.close();
+            Files.deleteIfExists(path);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Number of rows per band so that one band of the given bytes per pixel
+     * stays within the given number of bytes. At least one row is used.
+     *
+     * @param width Image width in pixels.
+     * @param height Image height in pixels.
+     * @param bytesPerPixel Bytes one rendered pixel takes.
+     * @param bandBytes Bytes one band may take.
+     * @return Rows per band, between 1 and the image height.
+     */
+    public static int bandRows(int width, int height, int bytesPerPixel, long bandBytes) {
+        long rowBytes = (long) bytesPerPixel * width;
+
+        return (int) Math.max(1, Math.min(height, bandBytes / rowBytes));
+    }
+
+    /**
+     * Encodes the next band. Bands must be as wide as the image and arrive
+     * in order from the top; together they must cover the image height.
+     *
+     * @param band The band's pixels, of the writer's image type.
+     * @throws IOException if writing fails.
+     */
+    public void writeBand(BufferedImage band) throws IOException {
+        if (band.getType() != imageType || band.getWidth() != width) {
+            throw new IllegalArgumentException("Band does not match the image type or width.");
+        }
+
+        if (rowsWritten + band.getHeight() > height) {
+            throw new IllegalArgumentException("Band extends past the bottom of the image.");
+        }
+
+        for (int y = 0; y < band.getHeight(); y++) {
+            PngScanlines.readRow(band, y, current, argbRow);
+            PngScanlines.filterRow(filter, current, (rowsWritten > 0) ? previous : null, bytesPerPixel, filtered, 0);
+
+            deflate(filtered, false);
+
+            // The current row becomes the previous one for the next filter
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+
+            rowsWritten++;
+        }
+    }
+
+    /**
+     * Flushes the compressed stream, writes the IEND chunk and closes the
+     * file. If fewer rows than the image height were written, or writing
+     * fails, the file is deleted instead of being left truncated.
+     *
+     * @throws IOException if writing fails or fewer rows than the image height were written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) return;
+
+        boolean complete = false;
+
+        try {
+            if (rowsWritten != height) {
+                throw new IOException("PNG incomplete: " + rowsWritten + " of " + height + " rows written");
+            }
+
+            deflate(new byte[0], true);
+            flushChunk();
+
+            PngScanlines.writeChunk(channel, "IEND", new byte[0], 0, 0);
+
+            complete = true;
+        } finally {
+            deflater.end();
+            channel.close();
+
+            if (!complete) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private void deflate(byte[] input, boolean finish) throws IOException {
+        deflater.setInput(input);
+
+        if (finish) {
+            deflater.finish();
+        }
+
+        // Drain until the deflater has consumed the input (or finished the stream)
+        while (finish ? !deflater.finished() : !deflater.needsInput()) {
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+
+            if (compressedLength == compressed.length) {
+                flushChunk();
+            }
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (compressedLength > 0) {
+            PngScanlines.writeChunk(channel, "IDAT", compressed, 0, compressedLength);
+            compressedLength = 0;
+        }
+    }
+}
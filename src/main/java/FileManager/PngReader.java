@@ -1,34 +1,61 @@
 package FileManager;
 
+import Data.GrayscaleMethod;
+import Data.SourceImage;
+
+import java.awt.Point;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
 
 public class PngReader {
     /**
      * Reads an image from the given file path. If the file extension is JPG/JPEG,
-     * performs a fast conversion to PNG format. Optionally converts the resulting
-     * image to grayscale.
+     * decodes it directly into an ARGB image (see {@link #readJpeg}); Netpbm
+     * files (PGM, PPM, PNM, PAM) are read from a memory mapping by
+     * {@link PnmReader}. Optionally converts the resulting image to grayscale.
      *
-     * @param fileLocation Path to the image file (PNG or JPG/JPEG).
+     * @param fileLocation Path to the image file (PNG, JPG/JPEG or Netpbm).
      * @param grayscale If true, convert the loaded image to grayscale before returning.
      * @return BufferedImage of the loaded (and possibly converted) image, or null on error.
      */
     public BufferedImage readPNG(String fileLocation, boolean grayscale) {
         try {
+            if (PnmReader.isPnm(fileLocation)) {
+                BufferedImage image;
+
+                try (PnmReader reader = new PnmReader(fileLocation)) {
+                    image = reader.readImage();
+                }
+
+                return grayscale ? convertToGrayscale(image) : image;
+            }
+
             File file = new File(fileLocation);
-            BufferedImage image = ImageIO.read(file);
 
             // Determine file extension (everything after the last dot)
             String formatName = fileLocation.substring(fileLocation.lastIndexOf('.') + 1);
 
-            // If the input is JPEG, convert it to a true PNG‐style BufferedImage
-            if (formatName.equalsIgnoreCase("jpg") || formatName.equalsIgnoreCase("jpeg")) {
-                PngConverter converter = new PngConverter();
-                
-                image = converter.convertToPngFast(image);
-            }
+            // JPEGs are decoded straight into a true PNG‐style ARGB BufferedImage
+            BufferedImage image = (formatName.equalsIgnoreCase("jpg") || formatName.equalsIgnoreCase("jpeg"))
+                ? readJpeg(file)
+                : ImageIO.read(file);
 
             if (grayscale) {
                 return convertToGrayscale(image);
@@ -43,34 +70,217 @@ public class PngReader {
         return null;
     }
 
-    private BufferedImage convertToGrayscale(BufferedImage image) {
-        Grayscale gs = new Grayscale();
+    /**
+     * Reads an image keeping only every step-th pixel of every step-th row,
+     * using the reader's source subsampling so the skipped pixels are never
+     * stored. The full-resolution dimensions are returned alongside.
+     *
+     * @param fileLocation Path to the image file.
+     * @param step Subsampling factor along each axis (1 = full image).
+     * @return The reduced image and the source dimensions, or null on error.
+     */
+    public SourceImage readSubsampled(String fileLocation, int step) {
+        if (PnmReader.isPnm(fileLocation)) {
+            try (PnmReader reader = new PnmReader(fileLocation)) {
+                return new SourceImage(reader.readSubsampled(step), reader.getWidth(), reader.getHeight(), step);
+            } catch (IOException e) {
+                System.err.println("Error when reading image: " + fileLocation);
+            }
 
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            return null;
+        }
+
+        try (ImageInputStream stream = ImageIO.createImageInputStream(new File(fileLocation))) {
+            Iterator<ImageReader> readers = (stream == null) ? null : ImageIO.getImageReaders(stream);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int currentPixel = image.getRGB(x, y);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("No image reader available");
+            }
 
-                int[] rgba = new int[4];
-                rgba[0] = (currentPixel >> 24) & 0xff; // Alpha
-                rgba[1] = (currentPixel >> 16) & 0xff; // Red
-                rgba[2] = (currentPixel >> 8) & 0xff;  // Green
-                rgba[3] = currentPixel & 0xff;         // Blue
+            ImageReader reader = readers.next();
 
-                int[] grayRGBA = gs.bt709(rgba);
+            try {
+                reader.setInput(stream, true, true);
 
-                int newPixel = (grayRGBA[0] << 24)  // alpha
-                             | (grayRGBA[1] << 16)  // red (gray)
-                             | (grayRGBA[2] << 8)   // green (gray)
-                             | grayRGBA[3];         // blue (gray)
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
 
-                out.setRGB(x, y, newPixel);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                return new SourceImage(reader.read(0, param), width, height, step);
+            } finally {
+                reader.dispose();
             }
+        } catch (IOException e) {
+            System.err.println("Error when reading image: " + fileLocation);
         }
 
+        // On error, return null
+        return null;
+    }
+
+    /**
+     * Chooses the largest subsampling factor for which kernels of the given
+     * size stay within an error budget.
+     *
+     * Each decoded sample stands for a step × step block, so along every
+     * kernel edge a strip up to step pixels wide may be attributed to the
+     * wrong kernel. With two edges per axis that misplaced fraction is about
+     * 2 * step / kernelSize, which is kept below errorBudget.
+     *
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param errorBudget Largest tolerated fraction of a kernel's area
+     * represented by misplaced samples (e.g. 0.2).
+     * @return The subsampling factor, at least 1.
+     */
+    public static int subsamplingFor(int kernelSize, double errorBudget) {
+        return Math.max(1, (int) Math.floor(errorBudget * kernelSize / 2.0));
+    }
+
+    /**
+     * Decodes a JPEG into a TYPE_INT_ARGB image without a second full-size
+     * copy.
+     *
+     * Color JPEGs are decoded into a TYPE_INT_RGB view sharing the ARGB
+     * image's pixel buffer (ImageReadParam.setDestination), whose alpha bytes
+     * are set to opaque beforehand and left untouched by the decoder. Gray
+     * JPEGs, which the decoder would expand to RGB on a slow path, are
+     * decoded to gray into a {@link GrayToArgbRaster} that widens every
+     * scanline into the buffer as it arrives. Other JPEGs (e.g. CMYK) fall
+     * back to decoding and redrawing.
+     */
+    private BufferedImage readJpeg(File file) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = (stream == null) ? null : ImageIO.getImageReaders(stream);
+
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("No image reader available");
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(stream, true, true);
+
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageTypeSpecifier rawType = reader.getRawImageType(0);
+                int bands = (rawType == null) ? 0 : rawType.getNumBands();
+
+                if (bands != 1 && bands != 3) {
+                    return new PngConverter().convertToPngFast(reader.read(0));
+                }
+
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+                if (bands == 1) {
+                    ComponentColorModel grayModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+                        false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+                    // A gray destination whose samples land widened in the ARGB buffer
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setDestination(new BufferedImage(grayModel, new GrayToArgbRaster(pixels, width, height), false, null));
+
+                    reader.read(0, param);
+
+                    return image;
+                }
+
+                Arrays.fill(pixels, 0xFF000000);
+
+                // An RGB view of the same buffer: the decoder writes the color bits only
+                WritableRaster view = Raster.createPackedRaster(image.getRaster().getDataBuffer(),
+                    width, height, width, new int[]{0xFF0000, 0xFF00, 0xFF}, null);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setDestination(new BufferedImage(new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF), view, false, null));
+
+                reader.read(0, param);
+
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * A one-band byte raster whose samples are stored as opaque gray pixels
+     * of an ARGB buffer, used as the destination of gray JPEG decodes.
+     *
+     * The decoder hands over its output one scanline at a time through
+     * setRect; full-width rows are widened straight into the buffer. Any
+     * other access goes through {@link WidenedBuffer}, which converts single
+     * samples the same way.
+     */
+    private static final class GrayToArgbRaster extends WritableRaster {
+        private final int[] pixels;
+        private final byte[] row;
+
+        GrayToArgbRaster(int[] pixels, int width, int height) {
+            super(new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height, 1, width, new int[]{0}),
+                new WidenedBuffer(pixels), new Point());
+
+            this.pixels = pixels;
+            this.row = new byte[width];
+        }
+
+        @Override
+        public void setRect(int dx, int dy, Raster source) {
+            int top = source.getMinY() + dy;
+
+            // Partial rows and rows outside the raster take the generic, clipping path
+            if (source.getMinX() + dx != 0 || source.getWidth() != width || source.getNumBands() != 1
+                    || top < 0 || top + source.getHeight() > height) {
+                super.setRect(dx, dy, source);
+
+                return;
+            }
+
+            for (int r = 0; r < source.getHeight(); r++) {
+                source.getDataElements(source.getMinX(), source.getMinY() + r, width, 1, row);
+
+                for (int x = 0, i = (top + r) * width; x < width; x++, i++) {
+                    pixels[i] = 0xFF000000 | (row[x] & 0xFF) * 0x010101;
+                }
+            }
+        }
+    }
+
+    // Byte samples read from and written to the gray level of ARGB pixels
+    private static final class WidenedBuffer extends DataBuffer {
+        private final int[] pixels;
+
+        WidenedBuffer(int[] pixels) {
+            super(DataBuffer.TYPE_BYTE, pixels.length);
+
+            this.pixels = pixels;
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            return pixels[i] & 0xFF;
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            pixels[i] = 0xFF000000 | (value & 0xFF) * 0x010101;
+        }
+    }
+
+    private BufferedImage convertToGrayscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        // Read the pixels straight into the output buffer and convert them in place
+        int[] pixels = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+        image.getRGB(0, 0, width, height, pixels, 0, width);
+
+        new Grayscale().toGrayArgb(pixels, pixels, GrayscaleMethod.Bt709);
+
         return out;
     }
 }
\ No newline at end of file
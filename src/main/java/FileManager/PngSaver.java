@@ -1,11 +1,33 @@
 package FileManager;
 
+import Data.PngFilter;
+import Data.PngPreset;
+
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import javax.imageio.ImageIO;
 
 public class PngSaver {
+    private final int compressionLevel;
+    private final PngFilter filter;
+
+    /**
+     * Creates a saver with the default compression settings.
+     */
+    public PngSaver() {
+        this(PngPreset.Default.level, PngPreset.Default.filter);
+    }
+
+    /**
+     * @param compressionLevel Deflate level, 0-9.
+     * @param filter Scanline filter.
+     */
+    public PngSaver(int compressionLevel, PngFilter filter) {
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+    }
+
     /**
      * Saves the given BufferedImage to disk, generating a new file name
      * based on the original image path and the provided prefix.
@@ -25,6 +47,27 @@ public class PngSaver {
         saveImageToFile(image, newFilePath);
     }
     
+    /**
+     * Creates a PNG next to the original image, named like {@link #saveToFile},
+     * for the caller to fill band by band from the top.
+     *
+     * @param fileName Prefix to append to the new file (e.g., "OperationName[params]").
+     * @param originalImagePath The full path of the source image (including extension).
+     * @param width Image width in pixels.
+     * @param height Image height in pixels.
+     * @param prototype Image of the bands' type (and palette).
+     * @return The open writer; closing it completes the file.
+     * @throws IOException if the file cannot be created.
+     */
+    public PngBandWriter openBanded(String fileName, String originalImagePath, int width, int height, BufferedImage prototype) throws IOException {
+        String imagePathWithoutExtension = originalImagePath.substring(0, originalImagePath.lastIndexOf('.'));
+        String newFilePath = generateNewFileName(fileName, imagePathWithoutExtension);
+
+        System.out.println("Writing image to: " + newFilePath);
+
+        return new PngBandWriter(newFilePath, width, height, prototype, compressionLevel, filter);
+    }
+    
     private String generateNewFileName(String fileName, String imagePathWithoutExtension) {
         String newFileName = imagePathWithoutExtension + "_" + fileName;
         String newFilePath = newFileName + ".png";
@@ -47,7 +90,13 @@ public class PngSaver {
     private void saveImageToFile(BufferedImage image, String filePath) {
         try {
             File output = new File(filePath);
-            ImageIO.write(image, "png", output);
+
+            // The parallel encoder covers the rendered types; anything else goes through ImageIO
+            if (ParallelPngEncoder.supports(image)) {
+                new ParallelPngEncoder(compressionLevel, filter).write(image, filePath);
+            } else {
+                ImageIO.write(image, "png", output);
+            }
             
             System.out.println("Image saved to: " + output.toString());
         } catch (IOException e) {
@@ -0,0 +1,252 @@
+package FileManager;
+
+import Data.PngFilter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Scanline conversion, filtering and chunk writing shared by the PNG
+ * encoders.
+ *
+ * Supported image types: TYPE_INT_ARGB (RGBA), TYPE_INT_RGB (RGB),
+ * TYPE_BYTE_GRAY and 8-bit TYPE_BYTE_INDEXED (palette, with transparency if
+ * the palette has alpha).
+ */
+final class PngScanlines {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private PngScanlines() {}
+
+    /**
+     * @param image The image to encode.
+     * @return True if the image type can be encoded.
+     */
+    static boolean supports(BufferedImage image) {
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_GRAY -> true;
+            case BufferedImage.TYPE_BYTE_INDEXED -> image.getColorModel().getPixelSize() == 8;
+            default -> false;
+        };
+    }
+
+    /**
+     * @param image An image of a supported type.
+     * @return Bytes per pixel of its scanlines.
+     * @throws IllegalArgumentException if the image type is not supported.
+     */
+    static int bytesPerPixel(BufferedImage image) {
+        if (!supports(image)) {
+            throw new IllegalArgumentException("Unsupported PNG image type: " + image.getType());
+        }
+
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB -> 4;
+            case BufferedImage.TYPE_INT_RGB -> 3;
+            default -> 1;
+        };
+    }
+
+    /**
+     * The filter to use for an image. Palette indices do not correlate
+     * numerically, so the spec recommends no filtering for them; Adaptive
+     * falls back to None there.
+     */
+    static PngFilter rowFilter(PngFilter filter, BufferedImage image) {
+        if (filter == PngFilter.Adaptive && image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
+            return PngFilter.None;
+        }
+
+        return filter;
+    }
+
+    /**
+     * Writes the signature, the IHDR chunk and, for palette images, the
+     * PLTE and tRNS chunks.
+     *
+     * @param channel Destination, positioned at the start of the file.
+     * @param width Image width in pixels.
+     * @param height Image height in pixels.
+     * @param prototype Image of the encoded type (and palette).
+     * @throws IOException if writing fails.
+     */
+    static void writeHeader(WritableByteChannel channel, int width, int height, BufferedImage prototype) throws IOException {
+        int bytesPerPixel = bytesPerPixel(prototype);
+        boolean indexed = prototype.getType() == BufferedImage.TYPE_BYTE_INDEXED;
+
+        writeFully(channel, ByteBuffer.wrap(SIGNATURE));
+
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(width).putInt(height);
+        header.put((byte) 8);                                                                  // Bit depth
+        header.put((byte) (indexed ? 3 : bytesPerPixel == 4 ? 6 : bytesPerPixel == 3 ? 2 : 0)); // Color type
+        header.put((byte) 0).put((byte) 0).put((byte) 0);                                      // Deflate, adaptive filters, no interlace
+        writeChunk(channel, "IHDR", header.array(), 0, 13);
+
+        if (indexed) {
+            writePalette(channel, (IndexColorModel) prototype.getColorModel());
+        }
+    }
+
+    /**
+     * Copies one row of the image into dest in PNG sample order.
+     *
+     * @param image The image.
+     * @param y Row to read.
+     * @param dest Destination of width * bytesPerPixel bytes.
+     * @param argb Scratch row of width ints, used by the int image types.
+     */
+    static void readRow(BufferedImage image, int y, byte[] dest, int[] argb) {
+        int width = image.getWidth();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB -> {
+                image.getRGB(0, y, width, 1, argb, 0, width);
+
+                for (int x = 0, o = 0; x < width; x++) {
+                    int p = argb[x];
+
+                    dest[o++] = (byte) (p >> 16);
+                    dest[o++] = (byte) (p >> 8);
+                    dest[o++] = (byte) p;
+                    dest[o++] = (byte) (p >>> 24);
+                }
+            }
+            case BufferedImage.TYPE_INT_RGB -> {
+                image.getRGB(0, y, width, 1, argb, 0, width);
+
+                for (int x = 0, o = 0; x < width; x++) {
+                    int p = argb[x];
+
+                    dest[o++] = (byte) (p >> 16);
+                    dest[o++] = (byte) (p >> 8);
+                    dest[o++] = (byte) p;
+                }
+            }
+            // The raster handles sub-images and scanline strides
+            default -> image.getRaster().getDataElements(0, y, width, 1, dest);
+        }
+    }
+
+    /**
+     * Filters one scanline into out: the filter type byte, then the
+     * filtered samples.
+     *
+     * @param filter Filter to apply; Adaptive chooses per row.
+     * @param current The row's samples.
+     * @param previous The previous row's samples, or null for the first row.
+     * @param bytesPerPixel Bytes per pixel.
+     * @param out Destination of current.length + 1 bytes.
+     * @param offset Position of the row in out.
+     */
+    static void filterRow(PngFilter filter, byte[] current, byte[] previous, int bytesPerPixel, byte[] out, int offset) {
+        int type = filter.ordinal();
+
+        // Adaptive: the filter with the smallest sum of absolute differences, as libpng does
+        if (filter == PngFilter.Adaptive) {
+            long bestSum = Long.MAX_VALUE;
+
+            for (int candidate = 0; candidate < 5; candidate++) {
+                long sum = 0;
+
+                for (int i = 0; i < current.length && sum < bestSum; i++) {
+                    sum += Math.abs((byte) filterByte(candidate, current, previous, bytesPerPixel, i));
+                }
+
+                if (sum < bestSum) {
+                    type = candidate;
+                    bestSum = sum;
+                }
+            }
+        }
+
+        out[offset] = (byte) type;
+
+        for (int i = 0; i < current.length; i++) {
+            out[offset + 1 + i] = (byte) filterByte(type, current, previous, bytesPerPixel, i);
+        }
+    }
+
+    /**
+     * Writes one chunk with its length and CRC.
+     *
+     * @throws IOException if writing fails.
+     */
+    static void writeChunk(WritableByteChannel channel, String type, byte[] data, int offset, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+
+        ByteBuffer head = ByteBuffer.allocate(8).putInt(length).put(typeBytes);
+        head.flip();
+
+        ByteBuffer tail = ByteBuffer.allocate(4).putInt((int) crc.getValue());
+        tail.flip();
+
+        writeFully(channel, head);
+        writeFully(channel, ByteBuffer.wrap(data, offset, length));
+        writeFully(channel, tail);
+    }
+
+    // Filter types are numbered as in the spec: None, Sub, Up, Average, Paeth
+    private static int filterByte(int type, byte[] current, byte[] previous, int bytesPerPixel, int i) {
+        int x = current[i] & 0xff;
+        int a = (i >= bytesPerPixel) ? current[i - bytesPerPixel] & 0xff : 0;
+        int b = (previous != null) ? previous[i] & 0xff : 0;
+        int c = (previous != null && i >= bytesPerPixel) ? previous[i - bytesPerPixel] & 0xff : 0;
+
+        return switch (type) {
+            case 1 -> x - a;
+            case 2 -> x - b;
+            case 3 -> x - ((a + b) >> 1);
+            case 4 -> x - paeth(a, b, c);
+            default -> x;
+        };
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+
+        if (pa <= pb && pa <= pc) return a;
+
+        return (pb <= pc) ? b : c;
+    }
+
+    private static void writePalette(WritableByteChannel channel, IndexColorModel palette) throws IOException {
+        int size = palette.getMapSize();
+        byte[] rgb = new byte[3 * size];
+        byte[] alpha = new byte[size];
+        boolean transparent = false;
+
+        for (int i = 0; i < size; i++) {
+            rgb[3 * i] = (byte) palette.getRed(i);
+            rgb[3 * i + 1] = (byte) palette.getGreen(i);
+            rgb[3 * i + 2] = (byte) palette.getBlue(i);
+            alpha[i] = (byte) palette.getAlpha(i);
+
+            transparent |= palette.getAlpha(i) != 255;
+        }
+
+        writeChunk(channel, "PLTE", rgb, 0, rgb.length);
+
+        if (transparent) {
+            writeChunk(channel, "tRNS", alpha, 0, alpha.length);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package FileManager;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads uncompressed Netpbm images (binary PGM, PPM and PAM) straight from a
+ * memory-mapped file, which ImageIO cannot read at all.
+ *
+ * Only the header is parsed up front. Rows are converted to packed ARGB on
+ * request directly from the mapping, so a band or a subsampled image costs
+ * no more than the pixels it returns, and a full image is written straight
+ * into the DataBufferInt of its BufferedImage. The PAM format (P7) also
+ * carries raw gray-alpha and RGBA dumps.
+ *
+ * Supported: P5 (gray), P6 (RGB) and P7 with a depth of 1 to 4 (gray,
+ * gray-alpha, RGB, RGBA), with 8-bit or 16-bit samples. Samples with a
+ * maximum other than 255 are rescaled to 8 bits.
+ */
+public class PnmReader implements Closeable {
+    private static final String[] EXTENSIONS = {"pgm", "ppm", "pnm", "pam"};
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final int width;
+    private final int height;
+    private final int depth;     // Samples per pixel
+    private final int maxValue;
+    private final int sampleBytes;
+    private final long dataOffset;
+    private final byte[] row;    // One raw row, reused by every read
+
+    private long position = 0;   // Header parse position
+
+    /**
+     * @param fileLocation Path to an image file.
+     * @return True if the extension is one of the Netpbm formats read here.
+     */
+    public static boolean isPnm(String fileLocation) {
+        String name = fileLocation.toLowerCase();
+
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith("." + extension)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Maps the file and parses its header.
+     *
+     * @param fileLocation Path to the image file.
+     * @throws IOException if the file cannot be mapped, its header is not a
+     * supported format, or it is shorter than its pixel data.
+     */
+    public PnmReader(String fileLocation) throws IOException {
+        arena = Arena.ofConfined();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileLocation), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        } catch (IOException e) {
+            arena.close();
+
+            throw e;
+        }
+
+        try {
+            String magic = "" + (char) nextByte() + (char) nextByte();
+            int w, h, d, max;
+
+            switch (magic) {
+                case "P5", "P6" -> {
+                    w = nextNumber();
+                    h = nextNumber();
+                    max = nextNumber();
+                    d = magic.equals("P5") ? 1 : 3;
+
+                    // Exactly one whitespace byte separates the header from the pixels
+                    position++;
+                }
+                case "P7" -> {
+                    int[] fields = readPamHeader();
+
+                    w = fields[0];
+                    h = fields[1];
+                    d = fields[2];
+                    max = fields[3];
+                }
+                default -> throw new IOException("Not a binary PGM, PPM or PAM file: " + fileLocation);
+            }
+
+            if (w < 1 || h < 1 || d < 1 || d > 4 || max < 1 || max > 65535) {
+                throw new IOException("Unsupported PNM header: " + fileLocation);
+            }
+
+            width = w;
+            height = h;
+            depth = d;
+            maxValue = max;
+            sampleBytes = (max > 255) ? 2 : 1;
+            dataOffset = position;
+
+            long rowBytes = (long) width * depth * sampleBytes;
+
+            if (rowBytes > Integer.MAX_VALUE - 8) {
+                throw new IOException("PNM rows too wide: " + fileLocation);
+            }
+
+            if (dataOffset + rowBytes * height > data.byteSize()) {
+                throw new IOException("PNM pixel data truncated: " + fileLocation);
+            }
+
+            row = new byte[(int) rowBytes];
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+
+            throw e;
+        }
+    }
+
+    /**
+     * @return Width of the image in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Height of the image in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Converts every step-th pixel of row y to packed ARGB.
+     *
+     * @param y Row to read.
+     * @param step Source pixels between two stored pixels (1 = every pixel).
+     * @param dest Destination of at least (width + step - 1) / step pixels.
+     * @param destIndex Position of the first pixel in dest.
+     */
+    public void readRow(int y, int step, int[] dest, int destIndex) {
+        if (y < 0 || y >= height) {
+            throw new IllegalArgumentException("Row outside of the image: " + y);
+        }
+
+        MemorySegment.copy(data, ValueLayout.JAVA_BYTE, dataOffset + (long) y * row.length, row, 0, row.length);
+
+        for (int x = 0, i = destIndex; x < width; x += step, i++) {
+            int s = x * depth;
+
+            dest[i] = switch (depth) {
+                case 1 -> {
+                    int g = sample(s);
+                    yield 0xFF000000 | (g << 16) | (g << 8) | g;
+                }
+                case 2 -> {
+                    int g = sample(s);
+                    yield (sample(s + 1) << 24) | (g << 16) | (g << 8) | g;
+                }
+                case 3 -> 0xFF000000 | (sample(s) << 16) | (sample(s + 1) << 8) | sample(s + 2);
+                default -> (sample(s + 3) << 24) | (sample(s) << 16) | (sample(s + 1) << 8) | sample(s + 2);
+            };
+        }
+    }
+
+    /**
+     * Converts rows [y, y + rows) to packed ARGB pixels in dest, row after
+     * row with a scanline stride of the image width, as BandReader does.
+     *
+     * @param y First row of the band.
+     * @param rows Number of rows to read.
+     * @param dest Destination of at least rows * width pixels.
+     */
+    public void readBand(int y, int rows, int[] dest) {
+        if (y < 0 || rows < 1 || y + rows > height) {
+            throw new IllegalArgumentException("Band outside of the image: rows " + y + " to " + (y + rows));
+        }
+
+        for (int r = 0; r < rows; r++) {
+            readRow(y + r, 1, dest, r * width);
+        }
+    }
+
+    /**
+     * Converts the whole image into a TYPE_INT_ARGB image, writing the rows
+     * straight into its pixel buffer.
+     *
+     * @return The image.
+     */
+    public BufferedImage readImage() {
+        return readSubsampled(1);
+    }
+
+    /**
+     * Converts every step-th pixel of every step-th row into a
+     * TYPE_INT_ARGB image, like ImageIO source subsampling.
+     *
+     * @param step Subsampling factor along each axis (1 = full image).
+     * @return The reduced image of (width + step - 1) / step by (height + step - 1) / step pixels.
+     */
+    public BufferedImage readSubsampled(int step) {
+        int outWidth = (width + step - 1) / step;
+        int outHeight = (height + step - 1) / step;
+
+        BufferedImage image = new BufferedImage(outWidth, outHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        for (int y = 0; y < outHeight; y++) {
+            readRow(y * step, step, pixels, y * outWidth);
+        }
+
+        return image;
+    }
+
+    /**
+     * Unmaps the file.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // Sample i of the current row, rescaled to 0-255
+    private int sample(int i) {
+        int value = (sampleBytes == 1)
+            ? row[i] & 0xFF
+            : ((row[2 * i] & 0xFF) << 8) | (row[2 * i + 1] & 0xFF);
+
+        return (maxValue == 255) ? value : (int) ((value * 255L + maxValue / 2) / maxValue);
+    }
+
+    // PAM header lines ("WIDTH 640") up to ENDHDR: width, height, depth and maximum value
+    private int[] readPamHeader() throws IOException {
+        int[] fields = {-1, -1, -1, -1};
+
+        while (true) {
+            String token = nextToken();
+
+            switch (token) {
+                case "WIDTH" -> fields[0] = nextNumber();
+                case "HEIGHT" -> fields[1] = nextNumber();
+                case "DEPTH" -> fields[2] = nextNumber();
+                case "MAXVAL" -> fields[3] = nextNumber();
+                case "TUPLTYPE" -> nextToken(); // The depth alone decides the layout
+                case "ENDHDR" -> {
+                    // The header ends with the newline after ENDHDR
+                    position++;
+
+                    return fields;
+                }
+                default -> throw new IOException("Unknown PAM header field: " + token);
+            }
+        }
+    }
+
+    private int nextNumber() throws IOException {
+        String token = nextToken();
+
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number in PNM header: " + token);
+        }
+    }
+
+    // Next whitespace-separated header token, skipping # comments
+    private String nextToken() throws IOException {
+        StringBuilder token = new StringBuilder();
+
+        while (true) {
+            int c = nextByte();
+
+            if (c == '#') {
+                while (c != '\n' && c != '\r') c = nextByte();
+            } else if (!Character.isWhitespace(c)) {
+                token.append((char) c);
+                break;
+            }
+        }
+
+        while (position < data.byteSize()) {
+            int c = data.get(ValueLayout.JAVA_BYTE, position) & 0xFF;
+
+            if (Character.isWhitespace(c) || c == '#') break;
+
+            token.append((char) c);
+            position++;
+        }
+
+        return token.toString();
+    }
+
+    private int nextByte() throws IOException {
+        if (position >= data.byteSize()) {
+            throw new IOException("PNM header truncated");
+        }
+
+        return data.get(ValueLayout.JAVA_BYTE, position++) & 0xFF;
+    }
+}
@@ -0,0 +1,103 @@
+package FileManager;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+public class TiffSaver {
+    /**
+     * Saves the given BufferedImage to disk as a compressed TIFF, generating a
+     * new file name based on the original image path and the provided prefix.
+     * 1-bit images are written with CCITT Group 4 compression, everything
+     * else with PackBits.
+     *
+     * @param fileName Prefix to append to the new file (e.g., "OperationName[params]").
+     * @param originalImagePath The full path of the source image (including extension).
+     * @param image The BufferedImage to save.
+     */
+    public void saveToFile(String fileName, String originalImagePath, BufferedImage image) {
+        // Remove the extension from the original path (everything after the last dot)
+        String imagePathWithoutExtension = originalImagePath.substring(0, originalImagePath.lastIndexOf('.'));
+
+        // Generate a new file path that does not collide with existing files
+        String newFilePath = generateNewFileName(fileName, imagePathWithoutExtension);
+
+        // Write the image to the new file path
+        saveImageToFile(image, newFilePath);
+    }
+
+    /**
+     * Creates a tiled BigTIFF next to the original image, named like
+     * {@link #saveToFile}, for the caller to fill tile by tile.
+     *
+     * @param fileName Prefix to append to the new file (e.g., "OperationName[params]").
+     * @param originalImagePath The full path of the source image (including extension).
+     * @param width Image width in pixels.
+     * @param height Image height in pixels.
+     * @param tileSize Tile width and height in pixels; a multiple of 16.
+     * @param prototype Image of the tiles' type (and palette).
+     * @return The open writer; closing it completes the file.
+     * @throws IOException if the file cannot be created.
+     */
+    public TiledTiffWriter openTiled(String fileName, String originalImagePath, long width, long height, int tileSize, BufferedImage prototype) throws IOException {
+        String imagePathWithoutExtension = originalImagePath.substring(0, originalImagePath.lastIndexOf('.'));
+        String newFilePath = generateNewFileName(fileName, imagePathWithoutExtension);
+
+        System.out.println("Writing tiled image to: " + newFilePath);
+
+        return new TiledTiffWriter(newFilePath, width, height, tileSize, prototype);
+    }
+
+    private String generateNewFileName(String fileName, String imagePathWithoutExtension) {
+        String newFilePath = imagePathWithoutExtension + "_" + fileName + ".tif";
+
+        File newFile = new File(newFilePath);
+        int counter = 1;
+
+        // If the file already exists, keep incrementing the counter
+        // and appending it to the filename until a free name is found
+        while (newFile.exists()) {
+            newFilePath = imagePathWithoutExtension + "_" + fileName + "_" + counter + ".tif";
+            newFile = new File(newFilePath);
+
+            counter++;
+        }
+
+        return newFilePath;
+    }
+
+    private void saveImageToFile(BufferedImage image, String filePath) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("tiff");
+
+        if (!writers.hasNext()) {
+            System.err.println("Error when saving image: no TIFF writer available");
+
+            return;
+        }
+
+        ImageWriter writer = writers.next();
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType(image.getType() == BufferedImage.TYPE_BYTE_BINARY ? "CCITT T.6" : "PackBits");
+
+        File output = new File(filePath);
+
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+
+            System.out.println("Image saved to: " + output.toString());
+        } catch (IOException e) {
+            System.err.println("Error when saving image: " + e.getMessage());
+        } finally {
+            writer.dispose();
+        }
+    }
+}
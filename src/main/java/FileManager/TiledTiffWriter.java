@@ -0,0 +1,370 @@
+package FileManager;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a tiled BigTIFF one tile at a time, so images of any size can be
+ * saved while only the tiles being encoded are in memory.
+ *
+ * Tiles may be written from several threads and in any order: each one is
+ * Deflate-compressed by the calling thread and appended to the file, and its
+ * position is recorded. {@link #close()} writes the directory with the tile
+ * offsets and completes the header.
+ *
+ * The JDK TIFF writer is not used because it only writes classic TIFF, whose
+ * 32-bit offsets cap a file at 4 GB, and only fills an empty image tile by
+ * tile (replacePixels) when it is uncompressed.
+ *
+ * Supported tile types: TYPE_INT_ARGB (RGBA), TYPE_BYTE_GRAY, TYPE_BYTE_BINARY
+ * (1-bit, 0 = black) and 8-bit TYPE_BYTE_INDEXED (palette).
+ */
+public class TiledTiffWriter implements Closeable {
+    // Largest tile width and height; tile buffers of 4 bytes per pixel stay far below the array limit
+    public static final int MAX_TILE_SIZE = 4096;
+
+    // TIFF field types
+    private static final short SHORT = 3;
+    private static final short LONG = 4;
+    private static final short LONG8 = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long width;
+    private final long height;
+    private final int tileSize;
+    private final int imageType;
+    private final IndexColorModel palette;
+    private final int tilesAcross;
+    private final long[] tileOffsets;
+    private final long[] tileByteCounts;
+
+    private long end = 16; // Next free byte; tiles follow the 16-byte header
+
+    public int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Creates the file and writes a provisional header.
+     *
+     * @param filePath Path of the new file.
+     * @param width Image width in pixels.
+     * @param height Image height in pixels.
+     * @param tileSize Tile width and height in pixels; a multiple of 16, at most {@link #MAX_TILE_SIZE}.
+     * @param prototype Image of the tiles' type (and palette), e.g. the first tile.
+     * @throws IOException if the file cannot be created.
+     * @throws IllegalArgumentException if the tile size or image type is not supported.
+     */
+    public TiledTiffWriter(String filePath, long width, long height, int tileSize, BufferedImage prototype) throws IOException {
+        if (tileSize < 16 || tileSize > MAX_TILE_SIZE || tileSize % 16 != 0) {
+            throw new IllegalArgumentException("Tile size must be a multiple of 16 between 16 and " + MAX_TILE_SIZE + ".");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.imageType = prototype.getType();
+
+        switch (imageType) {
+            case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_BINARY -> palette = null;
+            case BufferedImage.TYPE_BYTE_INDEXED -> palette = (IndexColorModel) prototype.getColorModel();
+            default -> throw new IllegalArgumentException("Unsupported tile image type: " + imageType);
+        }
+
+        if (palette != null && palette.getPixelSize() != 8) {
+            throw new IllegalArgumentException("Palette tiles must use 8 bits per pixel.");
+        }
+
+        this.tilesAcross = (int) ((width + tileSize - 1) / tileSize);
+        int tilesDown = (int) ((height + tileSize - 1) / tileSize);
+
+        this.tileOffsets = new long[tilesAcross * tilesDown];
+        this.tileByteCounts = new long[tileOffsets.length];
+
+        path = Paths.get(filePath);
+        channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+
+        // "II", version 43, 8-byte offsets; the directory offset is set on close
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 'I').put((byte) 'I').putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(0);
+        header.flip();
+
+        writeFully(header, 0);
+    }
+
+    /**
+     * @return Number of tile columns.
+     */
+    public int getTilesAcross() {
+        return tilesAcross;
+    }
+
+    /**
+     * @return Number of tile rows.
+     */
+    public int getTilesDown() {
+        return tileOffsets.length / tilesAcross;
+    }
+
+    /**
+     * Compresses and appends one tile. Tiles at the right and bottom edges
+     * may be smaller than the tile size; they are padded with zeros.
+     *
+     * @param tileX Tile column.
+     * @param tileY Tile row.
+     * @param tile The tile's pixels, of the writer's image type.
+     * @throws IOException if writing fails.
+     */
+    public void writeTile(int tileX, int tileY, BufferedImage tile) throws IOException {
+        if (tile.getType() != imageType) {
+            throw new IllegalArgumentException("Tile type does not match the image type.");
+        }
+
+        byte[] compressed = compress(tileBytes(tile));
+
+        long position;
+
+        // Reserve the tile's place in the file; the write itself runs concurrently
+        synchronized (this) {
+            position = end;
+            end += compressed.length;
+
+            int index = tileY * tilesAcross + tileX;
+            tileOffsets[index] = position;
+            tileByteCounts[index] = compressed.length;
+        }
+
+        writeFully(ByteBuffer.wrap(compressed), position);
+    }
+
+    /**
+     * Writes the image directory after the last tile, points the header at
+     * it and closes the file. If a tile was never written, or writing the
+     * directory fails, the file is deleted instead: a directory pointing at
+     * missing tiles would look valid but be corrupt.
+     *
+     * @throws IOException if tiles are missing or writing fails.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+
+        boolean complete = false;
+
+        try {
+            long missing = Arrays.stream(tileByteCounts).filter(count -> count == 0).count();
+
+            if (missing > 0) {
+                throw new IOException("Tiled TIFF incomplete: " + missing + " of " + tileByteCounts.length + " tiles missing");
+            }
+
+            long ifdOffset = end;
+            int samples = samplesPerPixel();
+            int bits = (imageType == BufferedImage.TYPE_BYTE_BINARY) ? 1 : 8;
+
+            // Out-of-line values follow the directory
+            int entries = 11 + (palette != null ? 1 : 0) + (samples == 4 ? 1 : 0);
+            long dataOffset = ifdOffset + 8 + 20L * entries + 8;
+
+            ByteBuffer extra = ByteBuffer.allocate(16 * tileOffsets.length + 2 * 3 * 256 + 8).order(ByteOrder.LITTLE_ENDIAN);
+
+            ByteBuffer ifd = ByteBuffer.allocate((int) (dataOffset - ifdOffset)).order(ByteOrder.LITTLE_ENDIAN);
+            ifd.putLong(entries);
+
+            // Entries must be sorted by tag
+            entry(ifd, 256, LONG, 1, width);                  // ImageWidth
+            entry(ifd, 257, LONG, 1, height);                 // ImageLength
+
+            if (samples == 4) {
+                entry(ifd, 258, SHORT, 4, packShorts(bits, bits, bits, bits)); // BitsPerSample
+            } else {
+                entry(ifd, 258, SHORT, 1, bits);
+            }
+
+            entry(ifd, 259, SHORT, 1, 8);                      // Compression: Deflate
+            entry(ifd, 262, SHORT, 1, photometric());          // PhotometricInterpretation
+            entry(ifd, 277, SHORT, 1, samples);                // SamplesPerPixel
+            entry(ifd, 284, SHORT, 1, 1);                      // PlanarConfiguration: chunky
+
+            if (palette != null) {
+                long colorMapOffset = dataOffset + extra.position();
+
+                // ColorMap: all reds, then greens, then blues, scaled to 16 bits
+                for (int channel = 0; channel < 3; channel++) {
+                    for (int i = 0; i < 256; i++) {
+                        int value = (i < palette.getMapSize()) ? component(palette, channel, i) : 0;
+                        extra.putShort((short) (value * 257));
+                    }
+                }
+
+                entry(ifd, 320, SHORT, 3 * 256, colorMapOffset);
+            }
+
+            entry(ifd, 322, SHORT, 1, tileSize);               // TileWidth
+            entry(ifd, 323, SHORT, 1, tileSize);               // TileLength
+            entry(ifd, 324, LONG8, tileOffsets.length, arrayValue(extra, dataOffset, tileOffsets));
+            entry(ifd, 325, LONG8, tileByteCounts.length, arrayValue(extra, dataOffset, tileByteCounts));
+
+            if (samples == 4) {
+                entry(ifd, 338, SHORT, 1, 2);                  // ExtraSamples: unassociated alpha
+            }
+
+            ifd.putLong(0); // No further directories
+            ifd.flip();
+            extra.flip();
+
+            writeFully(ifd, ifdOffset);
+            writeFully(extra, dataOffset);
+
+            // Point the header at the directory
+            ByteBuffer pointer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(ifdOffset);
+            pointer.flip();
+
+            writeFully(pointer, 8);
+
+            complete = true;
+        } finally {
+            channel.close();
+
+            if (!complete) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private byte[] tileBytes(BufferedImage tile) {
+        int w = Math.min(tile.getWidth(), tileSize);
+        int h = Math.min(tile.getHeight(), tileSize);
+
+        if (imageType == BufferedImage.TYPE_INT_ARGB) {
+            byte[] out = new byte[tileSize * tileSize * 4];
+            int[] row = new int[w];
+
+            for (int y = 0; y < h; y++) {
+                tile.getRGB(0, y, w, 1, row, 0, w);
+
+                int o = y * tileSize * 4;
+
+                for (int x = 0; x < w; x++) {
+                    int argb = row[x];
+
+                    out[o++] = (byte) (argb >> 16);
+                    out[o++] = (byte) (argb >> 8);
+                    out[o++] = (byte) argb;
+                    out[o++] = (byte) (argb >>> 24);
+                }
+            }
+
+            return out;
+        }
+
+        // Byte rasters are copied row by row into the padded tile layout
+        byte[] data = ((DataBufferByte) tile.getRaster().getDataBuffer()).getData();
+        int bits = (imageType == BufferedImage.TYPE_BYTE_BINARY) ? 1 : 8;
+        int srcStride = (tile.getWidth() * bits + 7) / 8;
+        int dstStride = (tileSize * bits + 7) / 8;
+        int rowBytes = (w * bits + 7) / 8;
+
+        byte[] out = new byte[dstStride * tileSize];
+
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(data, y * srcStride, out, y * dstStride, rowBytes);
+        }
+
+        return out;
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel);
+
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+
+            byte[] buffer = new byte[Math.max(64, raw.length / 4)];
+            int length = 0;
+
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private int samplesPerPixel() {
+        return (imageType == BufferedImage.TYPE_INT_ARGB) ? 4 : 1;
+    }
+
+    private int photometric() {
+        return switch (imageType) {
+            case BufferedImage.TYPE_INT_ARGB -> 2;      // RGB
+            case BufferedImage.TYPE_BYTE_INDEXED -> 3;  // Palette
+            default -> 1;                               // BlackIsZero
+        };
+    }
+
+    private static int component(IndexColorModel palette, int channel, int index) {
+        return switch (channel) {
+            case 0 -> palette.getRed(index);
+            case 1 -> palette.getGreen(index);
+            default -> palette.getBlue(index);
+        };
+    }
+
+    // Arrays of one value fit in the entry itself, longer ones go to the extra data
+    private static long arrayValue(ByteBuffer extra, long dataOffset, long[] values) {
+        if (values.length == 1) {
+            return values[0];
+        }
+
+        long offset = dataOffset + extra.position();
+
+        for (long value : values) {
+            extra.putLong(value);
+        }
+
+        return offset;
+    }
+
+    private static long packShorts(int a, int b, int c, int d) {
+        return (a & 0xffffL) | (b & 0xffffL) << 16 | (c & 0xffffL) << 32 | (d & 0xffffL) << 48;
+    }
+
+    private static void entry(ByteBuffer ifd, int tag, short type, long count, long value) {
+        ifd.putShort((short) tag).putShort(type).putLong(count);
+
+        // Inline values are left-justified in the 8-byte field
+        if (type == SHORT && count == 1) {
+            ifd.putShort((short) value).putShort((short) 0).putInt(0);
+        } else if (type == LONG && count == 1) {
+            ifd.putInt((int) value).putInt(0);
+        } else {
+            ifd.putLong(value);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package Halftone;
+
+import Data.SourceImage;
+import FileManager.PnmReader;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Runs a batch of files through {@link Operations} as a three-stage pipeline:
+ * the next images are decoded ahead on I/O threads while the current one is
+ * halftoned, and finished images are queued to a writer thread that encodes
+ * and saves them behind the processing stage.
+ *
+ * Images are still processed, displayed and saved in batch order. The number
+ * of images in flight is bounded twice: decoding only runs ahead while the
+ * estimated size of the decoded images waiting for processing stays within
+ * {@link #memoryBudget}, and at most {@link #writeBehind} finished images wait
+ * to be saved before processing stalls.
+ */
+public class BatchPipeline {
+    // Maximum number of decoded images waiting ahead of the processing stage
+    public int readAhead = 2;
+
+    // Maximum number of finished images waiting for the writer
+    public int writeBehind = 2;
+
+    // Threads decoding images ahead of the processing stage
+    public int ioThreads = 2;
+
+    // Bytes the images decoded ahead of processing may take together
+    public long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+
+    private final Operations operations;
+
+    /**
+     * @param operations The configured operations used for every file.
+     */
+    public BatchPipeline(Operations operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Failure of one file of the batch; the remaining files are not processed.
+     */
+    public static class FileException extends RuntimeException {
+        public final int index;
+        public final File file;
+
+        public FileException(int index, File file, Throwable cause) {
+            super("Error processing file: " + file.getName(), cause);
+            this.index = index;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Processes all files in order and waits until every saved image has been
+     * written. Stops early when the user chose to skip the remaining images
+     * without saving.
+     *
+     * @param files The input images.
+     * @param progress Called with the number of processed files after each file.
+     * @throws FileException if reading, processing or saving a file fails.
+     */
+    public void run(List<File> files, IntConsumer progress) {
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, ioThreads));
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+
+        Semaphore writeSlots = new Semaphore(Math.max(1, writeBehind));
+        Deque<PendingRead> reads = new ArrayDeque<>();
+        List<Future<?>> writes = new ArrayList<>();
+        List<Integer> writeIndices = new ArrayList<>();
+
+        long reserved = 0;
+        int next = 0;
+
+        // Streamed inputs are decoded band by band by the processing stage itself
+        boolean streaming = operations.streamsInput();
+
+        // Tiled, banded and off-heap jobs read, render and write each file in one step
+        boolean direct = operations.writesTiles() || operations.writesBands() || operations.usesOffHeap();
+
+        // Subsampled decodes hold a fraction of the pixels
+        long step = operations.analysisStep();
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                // Decode ahead while the read-ahead count and memory budget allow
+                while (!streaming && !direct && next < files.size() && reads.size() < Math.max(1, readAhead)) {
+                    long bytes = estimateBytes(files.get(next)) / (step * step);
+
+                    // Always allow one image, even if it exceeds the budget on its own
+                    if (!reads.isEmpty() && reserved + bytes > memoryBudget) break;
+
+                    File file = files.get(next);
+                    reads.add(new PendingRead(readers.submit(() -> operations.readImage(file.getPath())), bytes));
+                    reserved += bytes;
+                    next++;
+                }
+
+                File file = files.get(i);
+                BufferedImage result;
+
+                if (direct) {
+                    try {
+                        if (operations.writesTiles()) {
+                            operations.saveTiled(file.getPath());
+                        } else if (operations.writesBands()) {
+                            operations.saveBanded(file.getPath());
+                        } else {
+                            operations.processOffHeap(file.getPath());
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        throw new FileException(i, file, e);
+                    }
+
+                    progress.accept(i + 1);
+
+                    // Stop the batch early if the user chose to skip remaining images
+                    if (!operations.save && operations.skip) break;
+
+                    continue;
+                }
+
+                if (streaming) {
+                    try {
+                        result = operations.renderStreamed(file.getPath());
+                    } catch (IOException | RuntimeException e) {
+                        throw new FileException(i, file, e);
+                    }
+                } else {
+                    PendingRead read = reads.poll();
+
+                    try {
+                        SourceImage source = read.image.get();
+
+                        if (source == null) {
+                            throw new IllegalStateException("Image could not be read: " + file.getPath());
+                        }
+
+                        result = operations.render(source, file.getPath());
+                    } catch (ExecutionException e) {
+                        throw new FileException(i, file, e.getCause());
+                    } catch (RuntimeException e) {
+                        throw new FileException(i, file, e);
+                    } finally {
+                        // The decoded original is no longer referenced once rendered
+                        reserved -= read.bytes;
+                    }
+                }
+
+                checkWrites(writes, writeIndices, files);
+
+                if (operations.skip) {
+                    System.out.println("- Display skip");
+
+                    if (operations.save) {
+                        writeSlots.acquire();
+
+                        writeIndices.add(i);
+                        writes.add(writer.submit(() -> {
+                            try {
+                                operations.saveImage(result, file.getPath());
+                                operations.recycle(result);
+                            } finally {
+                                writeSlots.release();
+                            }
+                        }));
+                    }
+                } else {
+                    operations.display(result, file.getPath());
+                }
+
+                progress.accept(i + 1);
+
+                // Stop the batch early if the user chose to skip remaining images
+                if (!operations.save && operations.skip) break;
+            }
+
+            // Wait for the queued images to be written
+            writer.shutdown();
+
+            for (int w = 0; w < writes.size(); w++) {
+                awaitWrite(writes.get(w), writeIndices.get(w), files);
+            }
+        } catch (InterruptedException e) {
+            readers.shutdownNow();
+            writer.shutdownNow();
+
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException("Batch processing interrupted", e);
+        } finally {
+            // Pending decodes of skipped files are dropped
+            readers.shutdownNow();
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Surfaces the first failed write without waiting for unfinished ones.
+     */
+    private void checkWrites(List<Future<?>> writes, List<Integer> writeIndices, List<File> files) throws InterruptedException {
+        Iterator<Future<?>> futures = writes.iterator();
+        Iterator<Integer> indices = writeIndices.iterator();
+
+        while (futures.hasNext()) {
+            Future<?> future = futures.next();
+            int index = indices.next();
+
+            if (!future.isDone()) continue;
+
+            awaitWrite(future, index, files);
+
+            futures.remove();
+            indices.remove();
+        }
+    }
+
+    private void awaitWrite(Future<?> write, int index, List<File> files) throws InterruptedException {
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            throw new FileException(index, files.get(index), e.getCause());
+        }
+    }
+
+    /**
+     * Estimates the size of the decoded ARGB image from the file header,
+     * falling back to four bytes per byte of file when no reader can tell.
+     */
+    private static long estimateBytes(File file) {
+        // Netpbm headers are not known to ImageIO
+        if (PnmReader.isPnm(file.getPath())) {
+            try (PnmReader reader = new PnmReader(file.getPath())) {
+                return 4L * reader.getWidth() * reader.getHeight();
+            } catch (Exception e) {
+                return 4L * file.length();
+            }
+        }
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input != null) {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+
+                if (readers.hasNext()) {
+                    ImageReader reader = readers.next();
+
+                    try {
+                        reader.setInput(input, true, true);
+
+                        return 4L * reader.getWidth(0) * reader.getHeight(0);
+                    } finally {
+                        reader.dispose();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Fall through to the file size estimate
+        }
+
+        return 4L * file.length();
+    }
+
+    private static class PendingRead {
+        final Future<SourceImage> image;
+        final long bytes;
+
+        PendingRead(Future<SourceImage> image, long bytes) {
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+}
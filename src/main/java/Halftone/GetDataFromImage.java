@@ -2,7 +2,6 @@ package Halftone;
 
 import Data.ColorAccumulator;
 
-import java.awt.Color;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
@@ -17,9 +16,19 @@ public class GetDataFromImage {
      * @return A 4-element array: {minXr, maxXr, minYr, maxYr} of rotated bounds.
      */
     public double[] calculateRotatedBounds(BufferedImage image, AffineTransform rotation) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        
+        return calculateRotatedBounds(image.getWidth(), image.getHeight(), rotation);
+    }
+
+    /**
+     * Calculates the axis-aligned bounding box of a width × height image
+     * after applying the specified rotation transform.
+     *
+     * @param width Width of the image in pixels.
+     * @param height Height of the image in pixels.
+     * @param rotation AffineTransform that rotates the image.
+     * @return A 4-element array: {minXr, maxXr, minYr, maxYr} of rotated bounds.
+     */
+    public double[] calculateRotatedBounds(int width, int height, AffineTransform rotation) {
         double minXr = Double.POSITIVE_INFINITY;
         double maxXr = Double.NEGATIVE_INFINITY;
         double minYr = Double.POSITIVE_INFINITY;
@@ -66,6 +75,27 @@ public class GetDataFromImage {
         int width = image.getWidth();
         int height = image.getHeight();
 
+        ColorAccumulator[][] accumulators = createAccumulators(kernelSize, bounds);
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            accumulateRow(row, 0, width, y, kernelSize, bounds, rotation, accumulators);
+        }
+
+        return accumulators;
+    }
+
+    /**
+     * Creates the empty grid of ColorAccumulators covering the rotated bounds,
+     * one per kernel-sized block.
+     *
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param bounds Array of four doubles: {minXr, maxXr, minYr, maxYr}.
+     * @return 2D array of empty ColorAccumulators.
+     */
+    public ColorAccumulator[][] createAccumulators(int kernelSize, double[] bounds) {
         double minXr = bounds[0];
         double maxXr = bounds[1];
         double minYr = bounds[2];
@@ -83,34 +113,68 @@ public class GetDataFromImage {
                 accumulators[k][s] = new ColorAccumulator();
             }
         }
-        
-        // Point containers for transforming pixel positions
-        Point2D src = new Point2D.Double();
-        Point2D dst = new Point2D.Double();
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                src.setLocation(x, y);
-                rotation.transform(src, dst);
+        return accumulators;
+    }
 
-                double xr = dst.getX();
-                double yr = dst.getY();
+    /**
+     * Adds one row of packed ARGB pixels to the kernels they fall into. Every
+     * pixel lands in exactly one kernel, so rows can be added in any order.
+     *
+     * @param pixels Buffer holding the row.
+     * @param offset Index of the row's first pixel in the buffer.
+     * @param width Number of pixels in the row.
+     * @param y Row index in the image.
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param bounds Array of four doubles: {minXr, maxXr, minYr, maxYr}.
+     * @param rotation AffineTransform mapping from original to rotated
+     * coordinates.
+     * @param accumulators Grid created by {@link #createAccumulators}.
+     */
+    public void accumulateRow(int[] pixels, int offset, int width, int y, int kernelSize, double[] bounds, AffineTransform rotation, ColorAccumulator[][] accumulators) {
+        accumulateRow(pixels, offset, width, 1, y, kernelSize, bounds, rotation, accumulators);
+    }
+
+    /**
+     * Adds a row of samples taken every xStep pixels, starting at x = 0, to
+     * the kernels they fall into.
+     *
+     * @param pixels Buffer holding the samples.
+     * @param offset Index of the first sample in the buffer.
+     * @param count Number of samples in the row.
+     * @param xStep Distance in pixels between two samples.
+     * @param y Row index in the image.
+     * @param kernelSize Size (in pixels) of each square kernel.
+     * @param bounds Array of four doubles: {minXr, maxXr, minYr, maxYr}.
+     * @param rotation AffineTransform mapping from original to rotated
+     * coordinates.
+     * @param accumulators Grid created by {@link #createAccumulators}.
+     */
+    public void accumulateRow(int[] pixels, int offset, int count, int xStep, int y, int kernelSize, double[] bounds, AffineTransform rotation, ColorAccumulator[][] accumulators) {
+        double minXr = bounds[0];
+        double minYr = bounds[2];
 
-                // Determine the corresponding kernel position in the rotated space
-                int k = (int) Math.floor((yr - minYr) / kernelSize);
-                int s = (int) Math.floor((xr - minXr) / kernelSize);
+        int numKernels = accumulators.length;
+        int numSegments = accumulators[0].length;
 
-                // If within bounds, add pixel color to corresponding accumulator
-                if (k >= 0 && k < numKernels && s >= 0 && s < numSegments) {
-                    int argb = image.getRGB(x, y);
-                    Color c = new Color(argb, true);
+        // {m00, m10, m01, m11, m02, m12}, applied as in AffineTransform.transform
+        double[] m = new double[6];
+        rotation.getMatrix(m);
 
-                    accumulators[k][s].add(c);
-                }
+        for (int i = 0; i < count; i++) {
+            int x = i * xStep;
+            double xr = x * m[0] + y * m[2] + m[4];
+            double yr = x * m[1] + y * m[3] + m[5];
+
+            // Determine the corresponding kernel position in the rotated space
+            int k = (int) Math.floor((yr - minYr) / kernelSize);
+            int s = (int) Math.floor((xr - minXr) / kernelSize);
+
+            // If within bounds, add pixel color to corresponding accumulator
+            if (k >= 0 && k < numKernels && s >= 0 && s < numSegments) {
+                accumulators[k][s].add(pixels[offset + i]);
             }
         }
-
-        return accumulators;
     }
     
     /**
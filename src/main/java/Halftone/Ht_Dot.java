@@ -3,12 +3,13 @@ package Halftone;
 import Data.ColorAccumulator;
 import Data.ImageData;
 import Data.KernelStipplingContext;
+import Halftone.Util.RenderTarget;
 import Halftone.Util.RngHelper;
 import Halftone.Util.StipplingHelperLUTStatic;
+import Util.RasterPool;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
@@ -17,30 +18,32 @@ import java.awt.image.BufferedImage;
 import java.util.Random;
 
 public class Ht_Dot {
-    // Randomization controls
-    private final Random rng = RngHelper.getNewRng();
+    // Randomization controls; every stippling pass restarts the context's sequence
+    public RngHelper rngHelper = RngHelper.DEFAULT;
+    private Random rng;
     
     public Color backgroundColor = Color.WHITE;
     public Color foregroundColor = Color.BLACK;
+    public int imageType = BufferedImage.TYPE_INT_ARGB; // TYPE_BYTE_GRAY renders a single coverage plane, TYPE_BYTE_BINARY a 1-bit plate
+    public int outputScale = 1; // Output pixels per input pixel
+    public RasterPool pool = RasterPool.NONE; // Source of the output image
 
     /**
      * Applies a dot halftone pattern over the input image using precomputed
      * color accumulators.
      *
-     * @param input The original image to overlay with dots.
      * @param kernelSize The size of each square kernel (in pixels).
      * @param data Object containing rotation, bounds and color average data of
      * input image.
      * @return A new BufferedImage (type ARGB) containing only the dot pattern.
      */
-    public BufferedImage applyDotPattern(BufferedImage input, int kernelSize, ImageData data) {
-        int width = input.getWidth();
-        int height = input.getHeight();
+    public BufferedImage applyDotPattern(int kernelSize, ImageData data) {
+        int width = data.width;
+        int height = data.height;
 
         // Create an ARGB output image and obtain its Graphics2D context
-        BufferedImage outputImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = outputImg.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        BufferedImage outputImg = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g2d = RenderTarget.createGraphics(outputImg, outputScale);
 
         // Fill background with solid color
         fillBackground(g2d, width, height);
@@ -49,15 +52,12 @@ public class Ht_Dot {
         double minXr = data.bounds[0];
         double minYr = data.bounds[2];
 
-        int numKernels = data.avgGrid.length;
-        int numSegments = data.avgGrid[0].length;
-
         // Maximum possible dot radius (diagonal of one kernel)
         double maxRadius = Math.sqrt(kernelSize * kernelSize + kernelSize * kernelSize) / 2.0;
 
         // Draw one dot per kernel cell
-        for (int kernelRow = 0; kernelRow < numKernels; kernelRow++) {
-            for (int kernelCol = 0; kernelCol < numSegments; kernelCol++) {
+        for (int kernelRow = data.rowFrom; kernelRow < data.rowTo; kernelRow++) {
+            for (int kernelCol = data.colFrom; kernelCol < data.colTo; kernelCol++) {
                 ColorAccumulator acc = data.avgGrid[kernelRow][kernelCol];
                 
                 if (acc.count == 0) {
@@ -99,7 +99,6 @@ public class Ht_Dot {
      * grayscale intensity and alpha, and the number of sides is configurable.
      * Each polygon is aligned consistently within its kernel cell.
      *
-     * @param input The original image to overlay with polygons.
      * @param kernelSize The size of each square kernel (in pixels).
      * @param data Object containing rotation, bounds and color average data of
      * the input image.
@@ -107,31 +106,27 @@ public class Ht_Dot {
      * @return A new BufferedImage (type ARGB) containing only the polygon
      * pattern.
      */
-    public BufferedImage applyPolygonPattern(BufferedImage input, int kernelSize, ImageData data, int sides) {
+    public BufferedImage applyPolygonPattern(int kernelSize, ImageData data, int sides) {
         if (sides < 3) {
             throw new IllegalArgumentException("Polygon must have at least 3 sides.");
         }
 
-        int width = input.getWidth();
-        int height = input.getHeight();
+        int width = data.width;
+        int height = data.height;
 
-        BufferedImage outputImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = outputImg.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        BufferedImage outputImg = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g2d = RenderTarget.createGraphics(outputImg, outputScale);
 
         fillBackground(g2d, width, height);
 
         double minXr = data.bounds[0];
         double minYr = data.bounds[2];
 
-        int numKernels = data.avgGrid.length;
-        int numSegments = data.avgGrid[0].length;
-
         // Maximum possible polygon radius = half diagonal of kernel (same as dot)
         double maxRadius = Math.sqrt(kernelSize * kernelSize + kernelSize * kernelSize) / 2.0;
 
-        for (int kernelRow = 0; kernelRow < numKernels; kernelRow++) {
-            for (int kernelCol = 0; kernelCol < numSegments; kernelCol++) {
+        for (int kernelRow = data.rowFrom; kernelRow < data.rowTo; kernelRow++) {
+            for (int kernelCol = data.colFrom; kernelCol < data.colTo; kernelCol++) {
                 ColorAccumulator acc = data.avgGrid[kernelRow][kernelCol];
                 
                 if (acc.count == 0) {
@@ -185,21 +180,19 @@ public class Ht_Dot {
      * according to grayscale intensity and alpha. Every other column alternates
      * orientation (pointing up or down), producing a zigzag tiling effect.
      *
-     * @param input The original image to overlay with triangles.
      * @param kernelSize The size of each square kernel (in pixels).
      * @param data Object containing rotation, bounds and color average data of
      * input image.
      * @return A new BufferedImage (type ARGB) containing only the alternating triangle
      * pattern.
      */
-    public BufferedImage applyAlternatingTrianglePattern(BufferedImage input, int kernelSize, ImageData data) {
-        int width = input.getWidth();
-        int height = input.getHeight();
+    public BufferedImage applyAlternatingTrianglePattern(int kernelSize, ImageData data) {
+        int width = data.width;
+        int height = data.height;
 
         // Create an ARGB output image and obtain its Graphics2D context
-        BufferedImage outputImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = outputImg.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        BufferedImage outputImg = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g2d = RenderTarget.createGraphics(outputImg, outputScale);
 
         // Fill background with solid color
         fillBackground(g2d, width, height);
@@ -208,12 +201,10 @@ public class Ht_Dot {
         double minXr = data.bounds[0];
         double minYr = data.bounds[2];
 
-        int numKernels = data.avgGrid.length;
-        int numSegments = data.avgGrid[0].length;
         
         // Draw one triangle per kernel cell
-        for (int kernelRow = 0; kernelRow < numKernels; kernelRow++) {
-            for (int kernelCol = 0; kernelCol < numSegments; kernelCol++) {
+        for (int kernelRow = data.rowFrom; kernelRow < data.rowTo; kernelRow++) {
+            for (int kernelCol = data.colFrom; kernelCol < data.colTo; kernelCol++) {
                 ColorAccumulator acc = data.avgGrid[kernelRow][kernelCol];
 
                 if (acc.count == 0) {
@@ -278,20 +269,22 @@ public class Ht_Dot {
      * precomputed color accumulators. The stippling density is proportional to
      * local darkness and a max density value.
      *
-     * @param input The original image to overlay with the stippling pattern.
+     * The dots of each kernel come from that kernel's own sequence
+     * ({@link RngHelper#getKernelRng}), so a seed gives the same pixels
+     * whether the image is rendered whole or as tiles and bands.
+     *
      * @param kernelSize The size of each kernel cell in pixels.
      * @param data Object containing rotation, bounds, and average color data of
      * the input image.
      * @param density Maximum number of dots per kernel (in dark areas).
      * @return A new ARGB BufferedImage containing only the stippling overlay.
      */
-    public BufferedImage applyStipplingPattern(BufferedImage input, int kernelSize, ImageData data, int density) {
-        int width = input.getWidth();
-        int height = input.getHeight();
+    public BufferedImage applyStipplingPattern(int kernelSize, ImageData data, int density) {
+        int width = data.width;
+        int height = data.height;
 
-        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = overlay.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        BufferedImage overlay = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g2d = RenderTarget.createGraphics(overlay, outputScale);
 
         fillBackground(g2d, width, height);
         g2d.setColor(foregroundColor);
@@ -304,15 +297,12 @@ public class Ht_Dot {
 
         double minXr = data.bounds[0];
         double minYr = data.bounds[2];
-
-        int numKernels = data.avgGrid.length;
-        int numSegments = data.avgGrid[0].length;
         
         StipplingHelperLUTStatic helperLUT = new StipplingHelperLUTStatic();
         double radius = helperLUT.getRadius(kernelSize, density);
         
-        for (int kr = 0; kr < numKernels; kr++) {
-            for (int kc = 0; kc < numSegments; kc++) {
+        for (int kr = data.rowFrom; kr < data.rowTo; kr++) {
+            for (int kc = data.colFrom; kc < data.colTo; kc++) {
                 ColorAccumulator acc = data.avgGrid[kr][kc];
                 
                 if (acc == null || acc.count == 0) {
@@ -332,6 +322,9 @@ public class Ht_Dot {
 
                 KernelStipplingContext ctx = new KernelStipplingContext(acc, kr, kc, pointsInKernel, leftXr, topYr, kernelSize, radius, data.rotation);
 
+                // Every kernel draws from its own sequence, so tiles, bands and whole images agree on its dots
+                rng = rngHelper.getKernelRng(kr, kc);
+
                 drawStipplingPointsInKernel(g2d, ctx);
             }
         }
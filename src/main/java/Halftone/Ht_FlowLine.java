@@ -1,31 +1,48 @@
 package Halftone;
 
+import Data.ColorAccumulator;
+import Data.FlowLine.CurveMode;
 import Data.FlowLine.FlowLine;
+import Data.FlowLine.FlowLineEngine;
 import Data.ImageData;
 import Halftone.Util.FlowLine.FlowLineGenerator;
+import Halftone.Util.RenderTarget;
 import Halftone.Util.FlowLine.FlowLineRendererBezier;
+import Halftone.Util.FlowLine.StreamlineGenerator;
+import Util.RasterPool;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
 public class Ht_FlowLine {
     private final FlowLineGenerator generator = new FlowLineGenerator();
-    private final FlowLineRendererBezier renderer = new FlowLineRendererBezier();
+    private final StreamlineGenerator streamlineGenerator = new StreamlineGenerator();
 
     public Color backgroundColor = Color.WHITE;
     public Color foregroundColor = Color.BLACK;
+    public int imageType = BufferedImage.TYPE_INT_ARGB; // TYPE_BYTE_GRAY renders a single coverage plane, TYPE_BYTE_BINARY a 1-bit plate
+    public int outputScale = 1; // Output pixels per input pixel
+    public RasterPool pool = RasterPool.NONE; // Source of the output image
     
     public int minLineSize = 2; // How small the line can be before before it's cut from being rendered
+    public CurveMode curveMode = CurveMode.Bezier; // Curve model used for the ribbon centerline
+    public FlowLineEngine engine = FlowLineEngine.KernelLinking;
+    public double separation = 1.0; // Streamline spacing in kernels (EvenlySpaced engine only)
+    public int threads = Runtime.getRuntime().availableProcessors(); // Worker threads for line generation and geometry
+
+    // Lines generated for the last grid; tiles of the same grid reuse them
+    private ColorAccumulator[][] linesGrid;
+    private List<FlowLine> lines;
 
     /**
      * Applies a flow line halftone pattern over the input image by generating
      * and rendering Bézier ribbons that follow the local gradient direction.
      *
-     * @param input The original image to overlay with flow lines.
      * @param kernelSize The size of each kernel cell in pixels.
      * @param data Object containing rotation, bounds, and color average data of the input image.
      * @param minStepSize Minimum step size for dynamic kernel traversal.
@@ -33,29 +50,70 @@ public class Ht_FlowLine {
      * @param followMaxChange If true, lines follow the gradient direction; otherwise perpendicular to it.
      * @return A new ARGB BufferedImage containing the flow line pattern.
      */
-    public BufferedImage applyFlowLinePattern(BufferedImage input, int kernelSize, ImageData data, int minStepSize, int maxStepSize, boolean followMaxChange) {
+    public BufferedImage applyFlowLinePattern(int kernelSize, ImageData data, int minStepSize, int maxStepSize, boolean followMaxChange) {
         minStepSize = Math.max(1, minStepSize);
         maxStepSize = Math.max(maxStepSize, minStepSize);
 
-        int width = input.getWidth();
-        int height = input.getHeight();
+        int width = data.width;
+        int height = data.height;
 
-        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = output.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        BufferedImage output = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g2d = RenderTarget.createGraphics(output, outputScale);
         g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
 
         g2d.setColor(backgroundColor);
         g2d.fillRect(0, 0, width, height);
 
-        // Configure and run generator
-        generator.minStepSize = minStepSize;
-        generator.maxStepSize = maxStepSize;
-        generator.followMaxChange = followMaxChange;
+        List<FlowLine> validLines = generateLines(data, minStepSize, maxStepSize, followMaxChange);
+
+        // A tile only draws the lines passing through its kernel range
+        if (data.isTile()) {
+            validLines = linesInRange(validLines, data);
+        }
+
+        // Configure and run a renderer of this call; tiles of the same image render concurrently
+        FlowLineRendererBezier renderer = new FlowLineRendererBezier();
+        renderer.backgroundColor = backgroundColor;
+        renderer.foregroundColor = foregroundColor;
+        renderer.curveMode = curveMode;
+        renderer.threads = threads;
+        renderer.widthScale = (engine == FlowLineEngine.EvenlySpaced) ? separation : 1.0;
+        renderer.render(g2d, validLines, data, kernelSize);
+
+        g2d.dispose();
+
+        return output;
+    }
+
+    /**
+     * Generates the flow lines of the whole grid and drops the ones below the
+     * minimum size. The lines are kept for the grid, so tiles of the same
+     * image rendered with this instance generate them only once.
+     */
+    private synchronized List<FlowLine> generateLines(ImageData data, int minStepSize, int maxStepSize, boolean followMaxChange) {
+        if (lines != null && linesGrid == data.avgGrid) {
+            return lines;
+        }
 
+        // Configure and run generator
         int numKernels = data.avgGrid.length;
         int numSegments = data.avgGrid[0].length;
-        List<FlowLine> allLines = generator.generate(data.avgGrid, numKernels, numSegments);
+        List<FlowLine> allLines;
+
+        if (engine == FlowLineEngine.EvenlySpaced) {
+            streamlineGenerator.followMaxChange = followMaxChange;
+            streamlineGenerator.separation = separation;
+            streamlineGenerator.threads = threads;
+
+            allLines = streamlineGenerator.generate(data.avgGrid, numKernels, numSegments);
+        } else {
+            generator.minStepSize = minStepSize;
+            generator.maxStepSize = maxStepSize;
+            generator.followMaxChange = followMaxChange;
+            generator.threads = threads;
+
+            allLines = generator.generate(data.avgGrid, numKernels, numSegments);
+        }
 
         // Filter out nulls and lines below the minimum size
         List<FlowLine> validLines = new ArrayList<>();
@@ -66,13 +124,26 @@ public class Ht_FlowLine {
             }
         }
 
-        // Configure and run renderer
-        renderer.backgroundColor = backgroundColor;
-        renderer.foregroundColor = foregroundColor;
-        renderer.render(g2d, validLines, data, kernelSize);
+        linesGrid = data.avgGrid;
+        lines = validLines;
 
-        g2d.dispose();
+        return validLines;
+    }
 
-        return output;
+    // Lines with at least one point inside the view's kernel range (positions are x = column, y = row)
+    private List<FlowLine> linesInRange(List<FlowLine> lines, ImageData data) {
+        List<FlowLine> inRange = new ArrayList<>();
+
+        for (FlowLine line : lines) {
+            for (Point2D.Double p : line.positions) {
+                if (p.y >= data.rowFrom && p.y < data.rowTo && p.x >= data.colFrom && p.x < data.colTo) {
+                    inRange.add(line);
+
+                    break;
+                }
+            }
+        }
+
+        return inRange;
     }
 }
\ No newline at end of file
@@ -2,11 +2,12 @@ package Halftone;
 
 import Data.ColorAccumulator;
 import Data.ImageData;
+import Halftone.Util.RenderTarget;
 import Halftone.Util.RngHelper;
+import Util.RasterPool;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
@@ -23,12 +24,16 @@ public class Ht_Line {
 
     public Color backgroundColor = Color.WHITE;
     public Color foregroundColor = Color.BLACK;
+    public int imageType = BufferedImage.TYPE_INT_ARGB; // TYPE_BYTE_GRAY renders a single coverage plane, TYPE_BYTE_BINARY a 1-bit plate
+    public int outputScale = 1; // Output pixels per input pixel
+    public RasterPool pool = RasterPool.NONE; // Source of the output image
     
     public double amplitudeScalar = 2.0;
     public double frequencyScalar = 6.0;
 
-    // Randomization controls 
-    private final Random rng = RngHelper.getNewRng();
+    // Randomization controls; every pattern pass restarts the context's sequence
+    public RngHelper rngHelper = RngHelper.DEFAULT;
+    private Random rng;
 
     public double rowProbability = 1.0; // % Chance of drawing a row
     public boolean invertRowSelection = false; // If true, invert which rows are drawn
@@ -36,18 +41,18 @@ public class Ht_Line {
     /**
      * Apply a straight-line halftone pattern.
      *
-     * @param input Source image.
      * @param kernelSize Side length (in pixels) of each square kernel.
      * @param data Precomputed ImageData (rotation, bounds, avgGrid).
      * @return BufferedImage with straight-line halftone applied.
      */
-    public BufferedImage applyLinePattern(BufferedImage input, int kernelSize, ImageData data) {
-        int width = input.getWidth();
-        int height = input.getHeight();
+    public BufferedImage applyLinePattern(int kernelSize, ImageData data) {
+        rng = rngHelper.getNewRng();
 
-        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = (Graphics2D) output.getGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = data.width;
+        int height = data.height;
+
+        BufferedImage output = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g = RenderTarget.createGraphics(output, outputScale);
 
         // Invert the rotation so we can map rotated coordinates back to the original image space.
         AffineTransform invRot = invert(data.rotation);
@@ -63,10 +68,14 @@ public class Ht_Line {
         double minXr = data.bounds[0];
         double minYr = data.bounds[2];
 
-        int rows = data.avgGrid.length;
         int cols = data.avgGrid[0].length;
 
-        for (int row = 0; row < rows; row++) {
+        // A tile starts mid-grid: consume the draws of the rows above it
+        for (int row = 0; row < data.rowFrom; row++) {
+            skipRowDraws();
+        }
+
+        for (int row = data.rowFrom; row < data.rowTo; row++) {
             // For each row, determine its own spacing in pixels using the shared RNG.
             // spacingPercent in [0..1] -> map to [-1..1] -> multiply by lineSpacingMax to get pixels.
             double spacingPixels = 0.0;
@@ -93,7 +102,7 @@ public class Ht_Line {
             int countValid = 0;
 
             // Iterate over columns; NO column skipping here, spacing is applied as a vertical offset per row.
-            for (int col = 0; col < cols; col++) {
+            for (int col = data.colFrom; col < data.colTo; col++) {
                 ColorAccumulator acc = data.avgGrid[row][col];
 
                 if (acc == null || acc.count == 0) {
@@ -141,18 +150,18 @@ public class Ht_Line {
     /**
      * Apply a sine-wave halftone pattern.
      *
-     * @param input Source image.
      * @param kernelSize Side length (in pixels) of each square kernel.
      * @param data Precomputed ImageData (rotation, bounds, avgGrid).
      * @return BufferedImage with sine-wave halftone applied.
      */
-    public BufferedImage applySinePattern(BufferedImage input, int kernelSize, ImageData data) {
-        int width = input.getWidth();
-        int height = input.getHeight();
+    public BufferedImage applySinePattern(int kernelSize, ImageData data) {
+        rng = rngHelper.getNewRng();
 
-        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = (Graphics2D) output.getGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = data.width;
+        int height = data.height;
+
+        BufferedImage output = RenderTarget.create(pool, width, height, imageType, outputScale);
+        Graphics2D g = RenderTarget.createGraphics(output, outputScale);
 
         // Invert the rotation to map rotated-space points back to original.
         AffineTransform invRot = invert(data.rotation);
@@ -169,15 +178,25 @@ public class Ht_Line {
         double maxXr = data.bounds[1];
         double minYr = data.bounds[2];
 
-        int rows = data.avgGrid.length;
         int cols = data.avgGrid[0].length;
 
         // Sine parameters: amplitude = half kernel, frequency = 1 cycle per (kernelSize * 6) px
         double amplitudeBase = kernelSize / this.amplitudeScalar;
         double frequency = 2 * Math.PI / (kernelSize * this.frequencyScalar);
 
-        for (int row = 0; row < rows; row++) {
-            if (!rowHasData(data, row)) {
+        // Samples are taken every pixel from minXr; a tile only walks those over its kernel columns
+        int stepFrom = data.colFrom * kernelSize;
+        int stepTo = (int) Math.min(Math.floor(maxXr - minXr), (long) data.colTo * kernelSize);
+
+        // A tile starts mid-grid: consume the draws of the rows above it
+        for (int row = 0; row < data.rowFrom; row++) {
+            if (data.rowHasData(row)) {
+                skipRowDraws();
+            }
+        }
+
+        for (int row = data.rowFrom; row < data.rowTo; row++) {
+            if (!data.rowHasData(row)) {
                 continue;
             }
 
@@ -204,7 +223,9 @@ public class Ht_Line {
             List<Point2D> topList = new ArrayList<>();
             List<Point2D> botList = new ArrayList<>();
 
-            for (double x = minXr; x <= maxXr; x += 1.0) {
+            for (int step = stepFrom; step <= stepTo; step++) {
+                double x = minXr + step;
+
                 InterpolatedResult ir = interpolatedGrayAndAlpha(data, row, kernelSize, minXr, x, cols);
 
                 if (ir.gray < 0) {
@@ -292,14 +313,13 @@ public class Ht_Line {
         return (thick > lineThicknessMIN) ? thick : 0; // Prevent lines smaller than a pixel
     }
 
-    private boolean rowHasData(ImageData data, int row) {
-        for (ColorAccumulator acc : data.avgGrid[row]) {
-            if (acc.count > 0) {
-                return true;
-            }
+    // Draws the same random values as the start of a drawn or skipped row
+    private void skipRowDraws() {
+        if (lineSpacingMax > 0.0) {
+            rng.nextDouble();
         }
-        
-        return false;
+
+        rng.nextDouble();
     }
     
     /**
@@ -1,32 +1,52 @@
 package Halftone;
 
-import Halftone.Util.ImageMerger;
+import Halftone.Util.ChannelPresets;
+import Halftone.Util.PlaneCompositor;
 import Halftone.Util.ResizeImage;
 import Halftone.Util.TestMethods;
-import ColorSeparator.ColorChannelSeparator;
+import Halftone.Util.TwoTonePalette;
+import Data.Channel.Channel;
+import Data.Channel.ChannelSet;
 import Data.ConfigData;
+import Data.OpType;
 import Data.TYPE;
+import FileManager.BandReader;
+import FileManager.PngBandWriter;
 import FileManager.PngReader;
 import FileManager.PngSaver;
+import FileManager.TiffSaver;
+import FileManager.TiledTiffWriter;
 import Windows.ImageViewer;
 import Data.ImageData;
+import Data.MappedTileCache;
+import Data.OffHeapRaster;
+import Data.SourceImage;
 import Halftone.Util.RngHelper;
+import Util.RasterPool;
+import Util.Scheduler;
 
 import static Util.Timing.measure;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinTask;
 
 public class Operations {
+    // Snapshot taken when the job starts (ConfigData.snapshot); only read by the job
     private final ConfigData config;
+    private final RngHelper rngHelper;
+
+    // Buffers released by one image of the job are reused by the next ones
+    private final RasterPool pool = new RasterPool(Runtime.getRuntime().maxMemory() / 8);
 
     public boolean skip = false; // Flag to skip displaying
     public boolean save = true; // Flag to save final image automatically
@@ -34,13 +54,17 @@ public class Operations {
     /**
      * Initializes the Halftone Operations instance with the desired parameters.
      *
+     * The configuration is copied, so later changes to it do not affect this
+     * job, and the job gets its own random number context. Separate instances
+     * can therefore process images at the same time.
+     *
      * @param config ConfigData object which contains all the possible configuration
      * variables for the halftone process.
      */
     public Operations(ConfigData config) {
-        config.scale = config.scale >= 1 ? config.scale : 1;
-        
-        this.config = config;
+        this.config = config.snapshot();
+
+        this.rngHelper = RngHelper.of(this.config);
     }
 
     /**
@@ -59,45 +83,740 @@ public class Operations {
      * @throws IOException If reading or saving the image fails.
      */
     public void startProcess(String filePath) throws IOException {
-        // 1) Read the original image from disk
-        final BufferedImage original = measure("Reading image", () -> readImage(filePath));
+        // Tiled and banded outputs are written while rendering and never displayed
+        if (writesTiles()) {
+            saveTiled(filePath);
 
-        // 2) Expand image borders to avoid edge artifacts during halftone
-        final BufferedImage expanded = measure("Expanding image borders", () ->
-            new ResizeImage().expandBorder(original, config.scale)
-        );
-        
-        // Optional test
-        if (config.debugState) {
-            testMethods(expanded, filePath);
+            return;
         }
 
-        // 3) Apply the selected processing pipeline (Default, CMYK, RGB)
-        final BufferedImage halftoned = switch (config.opType) {
-            case CMYK -> measure("Applying CMYK", () -> processCMYK(expanded));
-            case RGB -> measure("Applying RGB", () -> processRGB(expanded));
-            default -> measure("Applying pattern", () -> process(expanded));
-        };
+        if (writesBands()) {
+            saveBanded(filePath);
 
-        // 4) Crop the expanded borders to restore original dimensions
-        final BufferedImage cropped = measure("Cropping image borders", () ->
-            new ResizeImage().cropBorder(halftoned, config.scale)
-        );
+            return;
+        }
+
+        if (usesOffHeap()) {
+            processOffHeap(filePath);
+
+            return;
+        }
+
+        final BufferedImage cropped;
+
+        if (streamsInput()) {
+            // 1-5) Stream the image into the kernel grid, halftone and crop
+            cropped = renderStreamed(filePath);
+        } else {
+            // 1) Read the original image from disk
+            final SourceImage source = measure("Reading image", () -> readImage(filePath));
+
+            if (source == null) {
+                throw new IOException("Image could not be read: " + filePath);
+            }
+
+            // 2-5) Expand, halftone and crop
+            cropped = render(source, filePath);
+        }
 
-        // 5) If skip flag is active, optionally save and exit without displaying
+        // 6) If skip flag is active, optionally save and exit without displaying
         if (skip) {
             System.out.println("- Display skip");
             
             if (save) {
                 saveImage(cropped, filePath);
+                recycle(cropped);
             }
             
             return;
         }
 
-        // 6) Display the final halftoned image
+        // 7) Display the final halftoned image
+        display(cropped, filePath);
+    }
+
+    /**
+     * Reads an image from disk as the pipeline's input. With fast analysis
+     * enabled and kernels large enough, only a subsampled image is decoded;
+     * see {@link #analysisStep()}.
+     *
+     * @param filePath Path to the image file.
+     * @return The decoded image, or null if it could not be read.
+     */
+    public SourceImage readImage(String filePath) {
+        int step = analysisStep();
+
+        if (step > 1) {
+            return new PngReader().readSubsampled(filePath, step);
+        }
+
+        // Reads a PNG file from disk and returns as BufferedImage
+        BufferedImage image = new PngReader().readPNG(filePath, false);
+
+        return (image == null) ? null : new SourceImage(image);
+    }
+
+    /**
+     * Subsampling factor used to decode inputs. Fast analysis picks it from
+     * the kernel size and the configured error budget; large kernels average
+     * thousands of pixels, so skipping most of them barely changes the
+     * averages. Debug runs always decode the full image.
+     *
+     * @return The subsampling factor, 1 for a full decode.
+     */
+    public int analysisStep() {
+        if (!config.fastAnalysis || config.debugState) {
+            return 1;
+        }
+
+        return PngReader.subsamplingFor(config.scale, config.analysisErrorBudget);
+    }
+
+    /**
+     * Runs the processing steps between reading and saving: expands the
+     * borders, applies the selected pipeline (Default, CMYK, RGB) and crops
+     * the borders again.
+     *
+     * A subsampled source is not expanded; its kernel grid is built for the
+     * full-resolution expanded image directly, and the pattern is rendered at
+     * full resolution.
+     *
+     * @param source The decoded input image.
+     * @param filePath Path of the input file, used by the debug tests.
+     * @return The halftoned image with the original dimensions.
+     */
+    public BufferedImage render(SourceImage source, String filePath) {
+        // Expand image borders to avoid edge artifacts during halftone
+        final BufferedImage input = (source.step > 1) ? source.image : measure("Expanding image borders", () ->
+            resizeImage().expandBorder(source.image, config.scale)
+        );
+        
+        // Optional test
+        if (config.debugState) {
+            testMethods(input, filePath);
+        }
+
+        // Apply the selected processing pipeline (Default, CMYK, RGB)
+        final BufferedImage halftoned = switch (config.opType) {
+            case CMYK -> measure("Applying CMYK", () -> processChannels(input, source, ChannelPresets.cmyk()));
+            case RGB -> measure("Applying RGB", () -> processChannels(input, source, ChannelPresets.rgb()));
+            default -> measure("Applying pattern", () -> process(input, source));
+        };
+
+        // The decoded original belongs to the caller; only the expanded copy is ours
+        if (input != source.image) {
+            pool.release(input);
+        }
+
+        // Crop the expanded borders to restore original dimensions
+        BufferedImage cropped = measure("Cropping image borders", () ->
+            resizeImage().cropBorder(halftoned, config.scale * plateScale())
+        );
+
+        pool.release(halftoned);
+
+        return cropped;
+    }
+
+    /**
+     * Whether this job reads its input through {@link #renderStreamed(String)}
+     * instead of decoding it whole. Only the Grayscale pipeline streams: the
+     * channel modes separate the full image first, and the debug tests draw
+     * on the expanded image. Fast analysis takes precedence, as its reduced
+     * decode is already small.
+     *
+     * @return True if the input is streamed into the kernel grid.
+     */
+    public boolean streamsInput() {
+        return config.streamingInput && config.opType == OpType.Grayscale && !config.debugState && analysisStep() == 1;
+    }
+
+    /**
+     * Runs the processing steps without decoding the whole input: the file is
+     * read in row bands that are accumulated into the kernel grid of the
+     * expanded image and dropped, then the pattern is rendered from the grid
+     * and the borders are cropped. Memory depends on the grid and the output,
+     * not on the input pixel count.
+     *
+     * @param filePath Path to the image file.
+     * @return The halftoned image with the original dimensions.
+     * @throws IOException If the image cannot be opened or decoded.
+     */
+    public BufferedImage renderStreamed(String filePath) throws IOException {
+        final ImageData id = streamImageData(filePath);
+
+        final BufferedImage halftoned = measure("Applying pattern", () -> applyPattern(id));
+
+        // Crop the expanded borders to restore original dimensions
+        BufferedImage cropped = measure("Cropping image borders", () ->
+            resizeImage().cropBorder(halftoned, config.scale * plateScale())
+        );
+
+        pool.release(halftoned);
+
+        return cropped;
+    }
+
+    /**
+     * Whether this job renders straight into a tiled TIFF through
+     * {@link #saveTiled(String)}. Only the Grayscale pipeline is tiled, and
+     * 1-bit plates are not: their unantialiased edges would not rasterize to
+     * the same pixels on both sides of a tile seam.
+     *
+     * @return True if the output is written tile by tile.
+     */
+    public boolean writesTiles() {
+        return config.tiledOutput && config.opType == OpType.Grayscale && !isPlateOutput();
+    }
+
+    /**
+     * Renders the image tile by tile into a tiled BigTIFF next to the input,
+     * so outputs far larger than a BufferedImage can hold can be produced.
+     *
+     * The kernel grid is built once (streamed, subsampled or from the full
+     * decode, as configured). Tiles are then rendered in parallel on the
+     * shared scheduler from views of that grid, and each finished tile is
+     * compressed, written and dropped; memory is the grid plus the tiles in
+     * flight. The file holds the cropped image.
+     *
+     * @param filePath Path to the image file.
+     * @throws IOException If reading the image or writing the file fails.
+     */
+    public void saveTiled(String filePath) throws IOException {
+        final ImageData id = analyzeInput(filePath);
+
+        int border = config.scale;
+        int width = id.width - 2 * border;
+        int height = id.height - 2 * border;
+
+        // Tiles are square, in input pixels; TIFF tiles must be multiples of 16 pixels
+        int tile = Math.min(TiledTiffWriter.MAX_TILE_SIZE, Math.max(16, config.tileSize / 16 * 16));
+
+        Ht_FlowLine flowGen = tileFlowLineGenerator();
+        int margin = tileMargin();
+
+        // A 1×1 image of the output type (and palette) describes the file's pixel format
+        BufferedImage prototype = toTileOutput(new BufferedImage(1, 1, tileImageType()));
+
+        try (TiledTiffWriter writer = new TiffSaver().openTiled(filePrefix(), filePath, width, height, tile, prototype)) {
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            for (int ty = 0; ty < writer.getTilesDown(); ty++) {
+                for (int tx = 0; tx < writer.getTilesAcross(); tx++) {
+                    final int tileX = tx;
+                    final int tileY = ty;
+
+                    tasks.add(() -> {
+                        int x = tileX * tile;
+                        int y = tileY * tile;
+
+                        ImageData view = id.tile(border + x, border + y, Math.min(tile, width - x), Math.min(tile, height - y), config.scale, margin);
+
+                        BufferedImage rendered = renderTile(view, flowGen);
+                        writer.writeTile(tileX, tileY, rendered);
+                        pool.release(rendered);
+
+                        return null;
+                    });
+                }
+            }
+
+            measure("Rendering " + tasks.size() + " tiles", () -> Scheduler.invokeAll(tasks, "tile rendering"));
+        }
+
+        System.out.println("FINISHED PROCESS\n");
+    }
+
+    /**
+     * Whether this job encodes its PNG band by band through
+     * {@link #saveBanded(String)}. Only the Grayscale pipeline with PNG
+     * output streams its bands; tiled output takes precedence.
+     *
+     * @return True if the output is encoded while it is rendered.
+     */
+    public boolean writesBands() {
+        return config.streamingOutput && config.opType == OpType.Grayscale && !isPlateOutput() && !writesTiles();
+    }
+
+    /**
+     * Renders the image in full-width horizontal bands and encodes each one
+     * into the output PNG as soon as it and the bands above it are done, so
+     * the rendered image is never resident as a whole.
+     *
+     * Bands are rendered on the shared scheduler from views of the kernel
+     * grid, a few ahead of the one being encoded, so rendering and encoding
+     * overlap. Memory is the grid plus the bands in flight.
+     *
+     * @param filePath Path to the image file.
+     * @throws IOException If reading the image or writing the file fails.
+     */
+    public void saveBanded(String filePath) throws IOException {
+        final ImageData id = analyzeInput(filePath);
+
+        int border = config.scale;
+        int width = id.width - 2 * border;
+        int height = id.height - 2 * border;
+
+        Ht_FlowLine flowGen = tileFlowLineGenerator();
+        int margin = tileMargin();
+
+        BufferedImage prototype = toTileOutput(new BufferedImage(1, 1, tileImageType()));
+        int bytesPerPixel = (prototype.getType() == BufferedImage.TYPE_INT_ARGB) ? 4 : 1;
+        int rows = PngBandWriter.bandRows(width, height, bytesPerPixel, PngBandWriter.DEFAULT_BAND_BYTES);
+
+        try (PngBandWriter writer = pngSaver().openBanded(filePrefix(), filePath, width, height, prototype)) {
+            measure("Rendering and encoding " + ((height + rows - 1) / rows) + " bands", () -> {
+                Deque<ForkJoinTask<BufferedImage>> pending = new ArrayDeque<>();
+                int next = 0;
+
+                try {
+                    while (next < height || !pending.isEmpty()) {
+                        // Keep every worker busy with a band while the oldest one is encoded
+                        while (next < height && pending.size() < availableThreads() + 1) {
+                            int y = next;
+
+                            pending.add(Scheduler.submit(() ->
+                                renderTile(id.tile(border, border + y, width, Math.min(rows, height - y), config.scale, margin), flowGen)
+                            ));
+
+                            next += rows;
+                        }
+
+                        BufferedImage band = Scheduler.await(pending.poll(), "band rendering");
+                        writer.writeBand(band);
+                        pool.release(band);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    // Bands still in flight after a failure are not needed anymore
+                    pending.forEach(task -> task.cancel(false));
+                }
+
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        System.out.println("FINISHED PROCESS\n");
+    }
+
+    /**
+     * Whether this job keeps its rasters off-heap through
+     * {@link #processOffHeap(String)}, in memory or disk-backed. Plates and
+     * the tiled and banded outputs have their own paths.
+     *
+     * @return True if the job renders into off-heap rasters.
+     */
+    public boolean usesOffHeap() {
+        return (config.offHeapRasters || config.diskBackedRasters) && !isPlateOutput() && !writesTiles() && !writesBands();
+    }
+
+    /**
+     * Renders the image into off-heap rasters, then displays or saves the
+     * result like {@link #startProcess(String)}.
+     *
+     * All rasters of the job come from one shared Arena and are freed
+     * together when the job ends, whether it succeeds or fails. With
+     * disk-backed rasters they are stored in a MappedTileCache instead,
+     * whose scratch file is deleted when the job ends. Patterns are
+     * drawn with Java2D tile by tile and copied in. The result is copied back
+     * to a BufferedImage only for display; it is saved band by band, and a
+     * result too large for a BufferedImage is always saved.
+     *
+     * @param filePath Path to the image file.
+     * @throws IOException If reading the image or writing the file fails.
+     */
+    public void processOffHeap(String filePath) throws IOException {
+        try (Arena arena = Arena.ofShared(); MappedTileCache cache = openTileCache()) {
+            final OffHeapRaster result = switch (config.opType) {
+                case CMYK -> renderChannelsOffHeap(arena, cache, filePath, ChannelPresets.cmyk());
+                case RGB -> renderChannelsOffHeap(arena, cache, filePath, ChannelPresets.rgb());
+                default -> renderOffHeap(arena, cache, filePath);
+            };
+
+            if (skip) {
+                System.out.println("- Display skip");
+
+                if (save) {
+                    saveRaster(result, filePath);
+                }
+
+                return;
+            }
+
+            if (!result.fitsImage()) {
+                System.out.println("- Result too large to display");
+                saveRaster(result, filePath);
+
+                return;
+            }
+
+            display(rasterImage(result, 0, 0, result.width, result.height), filePath);
+        }
+    }
+
+    /**
+     * Opens the scratch storage of a job with disk-backed rasters.
+     *
+     * @return The cache, or null if rasters are kept in memory.
+     */
+    private MappedTileCache openTileCache() throws IOException {
+        if (!config.diskBackedRasters) {
+            return null;
+        }
+
+        String directory = (config.scratchDirectory != null) ? config.scratchDirectory.trim() : "";
+
+        return new MappedTileCache(directory.isEmpty() ? null : Path.of(directory),
+            Math.max(1, config.residentTileMegabytes) * 1024L * 1024L);
+    }
+
+    // Allocates a raster in the job's arena, or in its scratch cache if rasters are disk-backed
+    private static OffHeapRaster allocateRaster(Arena arena, MappedTileCache cache, int width, int height, boolean gray) {
+        if (cache != null) {
+            return gray ? OffHeapRaster.allocateGray(cache, width, height) : OffHeapRaster.allocateArgb(cache, width, height);
+        }
+
+        return gray ? OffHeapRaster.allocateGray(arena, width, height) : OffHeapRaster.allocateArgb(arena, width, height);
+    }
+
+    /**
+     * Grayscale pipeline on off-heap rasters. The kernel grid is streamed
+     * from the input in bands (see {@link ImageData#fromBands}), so the
+     * input is never resident as a whole, on or off the heap.
+     */
+    private OffHeapRaster renderOffHeap(Arena arena, MappedTileCache cache, String filePath) throws IOException {
+        final ImageData id = streamImageData(filePath);
+
+        int width = id.width - 2 * config.scale;
+        int height = id.height - 2 * config.scale;
+
+        // Two-tone output keeps the coverage plane; the palette is attached when it is copied out
+        if (config.indexedOutput) {
+            OffHeapRaster plane = allocateRaster(arena, cache, width, height, true);
+            measure("Halftone pattern: " + config.type, () -> renderInto(id, plane, Color.WHITE, Color.BLACK, BufferedImage.TYPE_BYTE_GRAY));
+
+            return plane;
+        }
+
+        OffHeapRaster output = allocateRaster(arena, cache, width, height, false);
+        measure("Halftone pattern: " + config.type, () -> renderInto(id, output, config.colors[0], config.colors[1], BufferedImage.TYPE_INT_ARGB));
+
+        return output;
+    }
+
+    /**
+     * Channel pipeline on off-heap rasters: every channel is rendered as an
+     * off-heap coverage plane and the planes are composited off-heap.
+     * Channels run as parallel tasks on the shared scheduler, as in
+     * {@link #processChannels}, and so do the tiles of each channel.
+     *
+     * The input is streamed: each band is separated on its own and every
+     * channel of it goes straight into that channel's kernel grid (see
+     * {@link #streamChannelData}), so neither the whole input nor a whole
+     * separation is ever on the heap. A subsampled input is small enough to
+     * be separated whole.
+     */
+    private OffHeapRaster renderChannelsOffHeap(Arena arena, MappedTileCache cache, String filePath, ChannelSet set) throws IOException {
+        List<Channel> channels = set.channels;
+        final ImageData[] grids = (analysisStep() > 1) ? analyzeChannels(filePath, set) : streamChannelData(filePath, set);
+
+        int width = grids[0].width - 2 * config.scale;
+        int height = grids[0].height - 2 * config.scale;
+
+        OffHeapRaster[] planes = new OffHeapRaster[channels.size()];
+        System.out.println("Halftone pattern: " + config.type + " (" + set.name + ")");
+
+        List<Callable<OffHeapRaster>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < channels.size(); i++) {
+            final int index = i;
+
+            tasks.add(() -> measure("Applying pattern: " + channels.get(index).name, () -> {
+                // Render the channel's ink coverage as a gray plane
+                OffHeapRaster plane = allocateRaster(arena, cache, width, height, true);
+                renderInto(grids[index], plane, Color.WHITE, Color.BLACK, BufferedImage.TYPE_BYTE_GRAY);
+
+                // The grid is not needed once its plane is drawn
+                grids[index] = null;
+
+                return plane;
+            }));
+        }
+
+        List<OffHeapRaster> results = Scheduler.invokeAll(tasks, set.name + " channel processing");
+
+        for (int i = 0; i < results.size(); i++) {
+            planes[i] = results.get(i);
+        }
+
+        // Composite all coverage planes with each channel's ink and blend mode
+        Color[] backgrounds = new Color[channels.size()];
+        Color[] foregrounds = new Color[channels.size()];
+
+        for (int i = 0; i < channels.size(); i++) {
+            backgrounds[i] = set.backgroundOf(channels.get(i));
+            foregrounds[i] = set.foregroundOf(channels.get(i));
+        }
+
+        OffHeapRaster result = allocateRaster(arena, cache, width, height, false);
+        PlaneCompositor compositor = new PlaneCompositor();
+
+        measure("Merging " + set.name + " images", () -> {
+            compositor.composite(planes, backgrounds, foregrounds, set.blends(), result);
+
+            return null;
+        });
+
+        return result;
+    }
+
+    /**
+     * Builds the kernel grid of every channel from one streamed decode of the
+     * input. Each band is separated on its own, which gives the same pixels
+     * as separating the whole image, as the separations work pixel by pixel;
+     * the channels of a band are accumulated in parallel and dropped before
+     * the next band is decoded. Peak memory is the grids plus a few bands.
+     */
+    private ImageData[] streamChannelData(String filePath, ChannelSet set) throws IOException {
+        List<Channel> channels = set.channels;
+        boolean needsSobel = (config.type == TYPE.FlowLines);
+
+        try (BandReader reader = new BandReader(filePath)) {
+            int width = reader.getWidth();
+            ImageData.BandAccumulator[] accumulators = new ImageData.BandAccumulator[channels.size()];
+
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = new ImageData.BandAccumulator(width, reader.getHeight(), config.scale, config.scale, channels.get(i).angle);
+            }
+
+            // The band, its separation and every channel of it are resident at once
+            int bandRows = reader.bandRows(BandReader.DEFAULT_BAND_BYTES / (channels.size() + 2));
+            int[] band = pool.acquireInts(width * bandRows);
+
+            measure("Streaming " + set.name + " channels into kernel grids", () -> {
+                try {
+                    reader.readBands(bandRows, band, (y, rows, pixels) -> {
+                        BufferedImage bandImage = new BufferedImage(width, rows, BufferedImage.TYPE_INT_ARGB);
+                        bandImage.setRGB(0, 0, width, rows, pixels, 0, width);
+
+                        List<Callable<Void>> tasks = new ArrayList<>();
+
+                        for (int i = 0; i < channels.size(); i++) {
+                            final int index = i;
+
+                            tasks.add(() -> {
+                                BufferedImage channelBand = channels.get(index).extractor.extract(bandImage);
+                                accumulators[index].accept(y, rows, channelBand.getRGB(0, 0, width, rows, null, 0, width));
+
+                                return null;
+                            });
+                        }
+
+                        Scheduler.invokeAll(tasks, set.name + " band separation");
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                return null;
+            });
+
+            pool.release(band);
+
+            ImageData[] grids = new ImageData[channels.size()];
+
+            for (int i = 0; i < grids.length; i++) {
+                grids[i] = accumulators[i].finish(needsSobel, config.blurRadius);
+            }
+
+            return grids;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Kernel grids of every channel from a subsampled decode, separated whole
+    private ImageData[] analyzeChannels(String filePath, ChannelSet set) throws IOException {
+        final SourceImage source = measure("Reading image", () -> readImage(filePath));
+
+        if (source == null) {
+            throw new IOException("Image could not be read: " + filePath);
+        }
+
+        List<Channel> channels = set.channels;
+        ImageData[] grids = new ImageData[channels.size()];
+
+        for (int i = 0; i < grids.length; i++) {
+            Channel channel = channels.get(i);
+
+            BufferedImage channelImage = measure("Extracting channel: " + channel.name, () ->
+                channel.extractor.extract(source.image)
+            );
+
+            grids[i] = measure("Calculating Image Data: " + channel.name, () ->
+                analyze(channelImage, source, channel.angle)
+            );
+        }
+
+        return grids;
+    }
+
+    /**
+     * Draws the pattern of a kernel grid into a raster of the cropped image
+     * size, tile by tile on the shared scheduler.
+     */
+    private Void renderInto(ImageData id, OffHeapRaster output, Color bg, Color fg, int imageType) {
+        int border = config.scale;
+        int tile = Math.max(16, config.tileSize);
+
+        Ht_FlowLine flowGen = (config.type == TYPE.FlowLines) ? createFlowLineGenerator(bg, fg, imageType, 1, 1) : null;
+        int margin = tileMargin();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int y = 0; y < output.height; y += tile) {
+            for (int x = 0; x < output.width; x += tile) {
+                final int tileX = x;
+                final int tileY = y;
+
+                tasks.add(() -> {
+                    ImageData view = id.tile(border + tileX, border + tileY, Math.min(tile, output.width - tileX), Math.min(tile, output.height - tileY), config.scale, margin);
+
+                    BufferedImage rendered = renderRegion(view, flowGen, bg, fg, imageType, 1);
+                    output.draw(rendered, tileX, tileY);
+                    pool.release(rendered);
+
+                    return null;
+                });
+            }
+        }
+
+        Scheduler.invokeAll(tasks, "tile rendering");
+
+        return null;
+    }
+
+    /**
+     * Saves an off-heap result as a PNG, copying it out one band at a time.
+     */
+    private void saveRaster(OffHeapRaster raster, String filePath) throws IOException {
+        int rows = PngBandWriter.bandRows(raster.width, raster.height, raster.bytesPerPixel, PngBandWriter.DEFAULT_BAND_BYTES);
+
+        try (PngBandWriter writer = pngSaver().openBanded(filePrefix(), filePath, raster.width, raster.height, rasterImage(raster, 0, 0, 1, 1))) {
+            for (int y = 0; y < raster.height; y += rows) {
+                writer.writeBand(rasterImage(raster, 0, y, raster.width, Math.min(rows, raster.height - y)));
+            }
+        }
+    }
+
+    // Copies a region of an off-heap result onto the heap; gray planes get the two-tone palette
+    private BufferedImage rasterImage(OffHeapRaster raster, int x, int y, int width, int height) {
+        BufferedImage image = raster.toImage(x, y, width, height);
+
+        return (raster.bytesPerPixel == 1) ? TwoTonePalette.toIndexed(image, config.colors[0], config.colors[1]) : image;
+    }
+
+    /**
+     * Builds the kernel grid of the expanded input without rendering it,
+     * through the same reading path as {@link #startProcess(String)}.
+     */
+    private ImageData analyzeInput(String filePath) throws IOException {
+        if (streamsInput()) {
+            return streamImageData(filePath);
+        }
+
+        final SourceImage source = measure("Reading image", () -> readImage(filePath));
+
+        if (source == null) {
+            throw new IOException("Image could not be read: " + filePath);
+        }
+
+        final BufferedImage input = (source.step > 1) ? source.image : measure("Expanding image borders", () ->
+            resizeImage().expandBorder(source.image, config.scale)
+        );
+
+        ImageData id = measure("Calculating Image Data", () -> analyze(input, source, config.angle));
+
+        if (input != source.image) {
+            pool.release(input);
+        }
+
+        return id;
+    }
+
+    private ImageData streamImageData(String filePath) throws IOException {
+        // Determine if Sobel computation is needed
+        boolean needsSobel = (config.type == TYPE.FlowLines);
+
+        try (BandReader reader = new BandReader(filePath)) {
+            return measure("Streaming image into kernel grid", () -> {
+                try {
+                    return ImageData.fromBands(reader, config.scale, config.scale, config.angle, needsSobel, config.blurRadius, BandReader.DEFAULT_BAND_BYTES, pool);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One flow line generator serves every tile, so the lines are traced once
+    private Ht_FlowLine tileFlowLineGenerator() {
+        return (config.type == TYPE.FlowLines) ? createFlowLineGenerator(tileBackground(), tileForeground(), tileImageType(), 1, 1) : null;
+    }
+
+    // Flow lines step several kernels between points, so tiles look further out for them
+    private int tileMargin() {
+        return (config.type == TYPE.FlowLines) ? Math.max(2, config.maxStep + 2) : 2;
+    }
+
+    // Renders one tile view with the same output mode as applyPattern
+    private BufferedImage renderTile(ImageData view, Ht_FlowLine flowGen) {
+        return toTileOutput(renderRegion(view, flowGen, tileBackground(), tileForeground(), tileImageType(), 1));
+    }
+
+    // Renders one tile view on the calling thread; flowGen must match the colors and type
+    private BufferedImage renderRegion(ImageData view, Ht_FlowLine flowGen, Color bg, Color fg, int imageType, int outputScale) {
+        return (flowGen != null)
+            ? flowGen.applyFlowLinePattern(config.scale, view, config.minStep, config.maxStep, config.followMaxChange)
+            : applyHalftone(view, bg, fg, imageType, outputScale, 1);
+    }
+
+    private int tileImageType() {
+        return config.indexedOutput ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_ARGB;
+    }
+
+    private Color tileBackground() {
+        return (tileImageType() == BufferedImage.TYPE_INT_ARGB) ? config.colors[0] : Color.WHITE;
+    }
+
+    private Color tileForeground() {
+        return (tileImageType() == BufferedImage.TYPE_INT_ARGB) ? config.colors[1] : Color.BLACK;
+    }
+
+    // Two-tone output attaches the palette to the rendered coverage plane
+    private BufferedImage toTileOutput(BufferedImage tile) {
+        if (config.indexedOutput) {
+            return TwoTonePalette.toIndexed(tile, config.colors[0], config.colors[1]);
+        }
+
+        return tile;
+    }
+
+    /**
+     * Shows a finished image in the modal ImageViewer, which offers saving
+     * it and sets the save and skip flags.
+     *
+     * @param image The finished image.
+     * @param filePath Path of the input file, used by the save action.
+     */
+    public void display(BufferedImage image, String filePath) {
         System.out.println("- Displaying result");
-        new ImageViewer(cropped, filePath, this);
+        new ImageViewer(image, filePath, this);
         System.out.println("FINISHED PROCESS\n");
     }
 
@@ -109,22 +828,56 @@ public class Operations {
      * @param filePath Original file path used to derive the saved file name.
      */
     public void saveImage(BufferedImage image, String filePath) {
-        PngSaver saver = new PngSaver();
-        String prefix;
+        PngSaver saver = pngSaver();
+        String prefix = filePrefix();
+
+        // 1-bit plates go to a G4-compressed TIFF
+        if (isPlateOutput()) {
+            new TiffSaver().saveToFile(prefix, filePath, image);
 
-        switch (config.opType) {
-            case CMYK ->
-                prefix = String.format("Halftone[%s;%d;CMYK]", formatTypeName(), config.scale);
-            case RGB ->
-                prefix = String.format("Halftone[%s;%d;RGB]", formatTypeName(), config.scale);
-            default ->
-                prefix = String.format("Halftone[%s;%d;%.1f]", formatTypeName(), config.scale, (double) config.angle);
+            return;
         }
 
         saver.saveToFile(prefix, filePath, image);
     }
 
+    /**
+     * Hands a finished image back to the job's buffer pool once it has been
+     * saved, so the next image of the batch can reuse its pixels. The image
+     * must not be used afterwards; displayed images are never recycled, as
+     * the viewer keeps them.
+     *
+     * @param image An image returned by {@link #render} or {@link #renderStreamed}.
+     */
+    public void recycle(BufferedImage image) {
+        pool.release(image);
+    }
+
     // Helpers
+    private PngSaver pngSaver() {
+        return new PngSaver(config.pngCompressionLevel, config.pngFilter);
+    }
+
+    private String filePrefix() {
+        return switch (config.opType) {
+            case CMYK -> String.format("Halftone[%s;%d;CMYK]", formatTypeName(), config.scale);
+            case RGB -> String.format("Halftone[%s;%d;RGB]", formatTypeName(), config.scale);
+            default -> String.format("Halftone[%s;%d;%.1f]", formatTypeName(), config.scale, (double) config.angle);
+        };
+    }
+
+    private boolean isPlateOutput() {
+        return config.plateOutput && config.opType == OpType.Grayscale;
+    }
+
+    private int availableThreads() {
+        return Math.max(1, Scheduler.parallelism());
+    }
+
+    private int plateScale() {
+        return isPlateOutput() ? Math.max(1, config.plateScale) : 1;
+    }
+
     private String formatTypeName() {
         if (config.type == TYPE.Polygons) {
             return String.format("%s(%d)", config.type, config.polySides);
@@ -133,141 +886,154 @@ public class Operations {
         return config.type.toString();
     }
 
-    private BufferedImage process(BufferedImage expanded) {
-        // Determine if Sobel computation is needed
-        boolean needsSobel = (config.type == TYPE.FlowLines);
-        
+    private BufferedImage process(BufferedImage input, SourceImage source) {
         // Create ImageData object with kernel info and rotation
-        ImageData id = measure("Calculating Image Data", () ->
-            new ImageData(expanded, config.scale, config.angle, needsSobel, config.blurRadius)
-        );
+        ImageData id = measure("Calculating Image Data", () -> analyze(input, source, config.angle));
 
-        // Apply the selected halftone pattern and return processed image
-        return measure("Halftone pattern: " + config.type, () -> applyHalftone(expanded, id, config.colors[0], config.colors[1]));
+        return applyPattern(id);
     }
 
-    private BufferedImage processCMYK(BufferedImage expanded) {
+    /**
+     * Builds the kernel grid of an image derived from the source: the
+     * expanded image for a full decode, or the reduced image for a
+     * subsampled one, mapped onto full-resolution geometry.
+     */
+    private ImageData analyze(BufferedImage image, SourceImage source, double angle) {
         // Determine if Sobel computation is needed
         boolean needsSobel = (config.type == TYPE.FlowLines);
-        
-        // Separate expanded image into CMYK channels
-        ColorChannelSeparator ccs = new ColorChannelSeparator();
-        BufferedImage[] cmyk = ccs.separateCMYK(expanded, 0, false, false);
-
-        // Define rotation angles and channel colors for halftone
-        double[] angles = {15, 75, 0, 45};
-        Color[] colors = {Color.CYAN, Color.MAGENTA, Color.YELLOW, Color.BLACK};
-        String[] channelNames = {"C", "M", "Y", "K"};
-        
-        // Set white background and channel-specific foreground color
-        config.colors[0] = Color.WHITE;
 
-        BufferedImage[] halftones = new BufferedImage[angles.length];
-        System.out.println("Halftone pattern: " + config.type + " (CMYK)");
+        if (source.step > 1) {
+            return ImageData.fromSubsampled(image, source.width, source.height, config.scale, source.step, config.scale, angle, needsSobel, config.blurRadius);
+        }
 
-        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
-        List<Callable<BufferedImage>> tasks = new ArrayList<>();
-        
-        // Process each CMYK channel independently
-        for (int i = 0; i < angles.length; i++) {
-            final int index = i;
+        return new ImageData(image, config.scale, angle, needsSobel, config.blurRadius);
+    }
 
-            tasks.add(() -> measure("Applying pattern: " + channelNames[index], () -> {
-                // Sobel not needed for CMYK mode
-                ImageData id = measure("Calculating Image Data: " + channelNames[index], () ->
-                    new ImageData(cmyk[index], config.scale, angles[index], needsSobel, config.blurRadius)
-                );
-                
-                // Apply halftone to the current channel and store
-                return applyHalftone(cmyk[index], id, config.colors[0], colors[index]);
-            }));
+    private BufferedImage applyPattern(ImageData id) {
+        // Plate output: non-antialiased 1-bit render above input resolution
+        if (isPlateOutput()) {
+            return measure("Halftone pattern: " + config.type, () ->
+                applyHalftone(id, Color.WHITE, Color.BLACK, BufferedImage.TYPE_BYTE_BINARY, plateScale(), availableThreads())
+            );
         }
 
-        try {
-            List<Future<BufferedImage>> results = executor.invokeAll(tasks);
-            
-            for (int i = 0; i < results.size(); i++) {
-                halftones[i] = results.get(i).get();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            
-            Thread.currentThread().interrupt();
-            
-            throw new RuntimeException("CMYK processing interrupted", e);
-        } catch (ExecutionException e) {
-            executor.shutdownNow();
-            
-            throw new RuntimeException("Error during CMYK channel processing", e.getCause());
-        } finally {
-            executor.shutdown();
+        // Two-tone output: render coverage only and attach a palette of the two colors
+        if (config.indexedOutput) {
+            BufferedImage plane = measure("Halftone pattern: " + config.type, () ->
+                applyHalftone(id, Color.WHITE, Color.BLACK, BufferedImage.TYPE_BYTE_GRAY, 1, availableThreads())
+            );
+
+            return TwoTonePalette.toIndexed(plane, config.colors[0], config.colors[1]);
         }
 
-        // Merge all CMYK halftone images using multiply blend mode
-        return measure("Merging CMYK images", () -> new ImageMerger().mergeImagesMultiply(halftones));
+        // Apply the selected halftone pattern and return processed image
+        return measure("Halftone pattern: " + config.type, () -> applyHalftone(id, config.colors[0], config.colors[1], BufferedImage.TYPE_INT_ARGB, 1, availableThreads()));
     }
 
-    private BufferedImage processRGB(BufferedImage expanded) {
-        // Determine if Sobel computation is needed
-        boolean needsSobel = (config.type == TYPE.FlowLines);
-        
-        // Separate expanded image into RGB channels
-        ColorChannelSeparator ccs = new ColorChannelSeparator();
-        BufferedImage[] rgb = ccs.separateRBGA(expanded, 0, false, false);
-
-        // Define rotation angles and channel background colors for halftone
-        double[] angles = {0, 60, 120};
-        Color[] colors = {Color.RED, Color.GREEN, Color.BLUE};
-        String[] channelNames = {"R", "G", "B"};
-
-        // Set black as foreground for RGB channels
-        config.colors[1] = Color.BLACK;
+    /**
+     * Renders every channel of the set as a gray coverage plane and composites
+     * the planes with each channel's blend mode and ink.
+     *
+     * Channels run as parallel tasks on the shared scheduler and each channel
+     * is rendered as tiles (flow lines with their own internal passes); the
+     * nested tasks are stolen by whichever workers are idle, so cores freed
+     * by a finished channel, or left over when there are more cores than
+     * channels, help the ones still running.
+     */
+    private BufferedImage processChannels(BufferedImage input, SourceImage source, ChannelSet set) {
+        List<Channel> channels = set.channels;
+        BufferedImage[] halftones = new BufferedImage[channels.size()];
+        System.out.println("Halftone pattern: " + config.type + " (" + set.name + ")");
 
-        BufferedImage[] halftones = new BufferedImage[angles.length];
-        System.out.println("Halftone pattern: " + config.type + " (RGB mode)");
+        int threadsPerChannel = availableThreads();
 
-        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
         List<Callable<BufferedImage>> tasks = new ArrayList<>();
 
-        // Process each RGB channel independently
-        for (int i = 0; i < angles.length; i++) {
-            final int index = i;
+        // Process each channel independently
+        for (Channel channel : channels) {
+            tasks.add(() -> measure("Applying pattern: " + channel.name, () -> {
+                BufferedImage channelImage = measure("Extracting channel: " + channel.name, () ->
+                    channel.extractor.extract(input)
+                );
 
-            tasks.add(() -> measure("Applying pattern: " + channelNames[index], () -> {
-                // Sobel not needed for RGB mode
-                ImageData id = measure("Calculating Image Data: " + channelNames[index], () ->
-                    new ImageData(rgb[index], config.scale, angles[index], needsSobel, config.blurRadius)
+                ImageData id = measure("Calculating Image Data: " + channel.name, () ->
+                    analyze(channelImage, source, channel.angle)
                 );
 
-                // Apply halftone to the current channel and store
-                return applyHalftone(rgb[index], id, colors[index], config.colors[1]);
+                // Render the channel's ink coverage as a gray plane
+                return renderSplit(id, Color.WHITE, Color.BLACK, BufferedImage.TYPE_BYTE_GRAY, threadsPerChannel);
             }));
         }
 
-        try {
-            List<Future<BufferedImage>> results = executor.invokeAll(tasks);
+        List<BufferedImage> results = Scheduler.invokeAll(tasks, set.name + " channel processing");
+
+        for (int i = 0; i < results.size(); i++) {
+            halftones[i] = results.get(i);
+        }
+
+        // Composite all coverage planes with each channel's ink and blend mode
+        Color[] backgrounds = new Color[channels.size()];
+        Color[] foregrounds = new Color[channels.size()];
+
+        for (int i = 0; i < channels.size(); i++) {
+            backgrounds[i] = set.backgroundOf(channels.get(i));
+            foregrounds[i] = set.foregroundOf(channels.get(i));
+        }
+
+        PlaneCompositor compositor = new PlaneCompositor();
+        compositor.pool = pool;
+
+        BufferedImage merged = measure("Merging " + set.name + " images", () ->
+            compositor.composite(halftones, backgrounds, foregrounds, set.blends())
+        );
+
+        // The coverage planes are blended into the merged image and no longer needed
+        for (BufferedImage plane : halftones) {
+            pool.release(plane);
+        }
 
-            for (int i = 0; i < results.size(); i++) {
-                halftones[i] = results.get(i).get();
+        return merged;
+    }
+
+    /**
+     * Renders a whole kernel grid like applyHalftone, but split into tiles
+     * on the shared scheduler, so a channel can use more cores than the one
+     * running it. Flow lines are traced as a whole and keep their own
+     * internal threads.
+     */
+    private BufferedImage renderSplit(ImageData id, Color bg, Color fg, int imageType, int threads) {
+        if (config.type == TYPE.FlowLines) {
+            return applyHalftone(id, bg, fg, imageType, 1, threads);
+        }
+
+        int tile = Math.max(16, config.tileSize);
+        int margin = tileMargin();
+
+        // The tiles cover every pixel, so a pooled image needs no clearing
+        BufferedImage output = pool.acquireImage(id.width, id.height, imageType, false);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int y = 0; y < id.height; y += tile) {
+            for (int x = 0; x < id.width; x += tile) {
+                final int tileX = x;
+                final int tileY = y;
+
+                tasks.add(() -> {
+                    ImageData view = id.tile(tileX, tileY, Math.min(tile, id.width - tileX), Math.min(tile, id.height - tileY), config.scale, margin);
+
+                    BufferedImage rendered = applyHalftone(view, bg, fg, imageType, 1, 1);
+                    output.getRaster().setRect(tileX, tileY, rendered.getRaster());
+                    pool.release(rendered);
+
+                    return null;
+                });
             }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            
-            Thread.currentThread().interrupt();
-            
-            throw new RuntimeException("RGB processing interrupted", e);
-        } catch (ExecutionException e) {
-            executor.shutdownNow();
-            
-            throw new RuntimeException("Error during RGB channel processing", e.getCause());
-        } finally {
-            executor.shutdown();
         }
-        
-        // Merge all RGB halftone images using screen blend mode
-        return measure("Merging RGB images", () -> new ImageMerger().mergeImagesScreen(halftones));
+
+        Scheduler.invokeAll(tasks, "channel tile rendering");
+
+        return output;
     }
 
     private void testMethods(BufferedImage input, String filePath) {
@@ -281,70 +1047,107 @@ public class Operations {
     }
     
     // Thread safe version
-    private BufferedImage applyHalftone(BufferedImage image, ImageData id, Color bg, Color fg) {
-        RngHelper.initialize(config);
-        
+    private BufferedImage applyHalftone(ImageData id, Color bg, Color fg, int imageType, int outputScale, int threads) {
         switch (config.type) {
             case Dots -> {
                 Ht_Dot dotGen = new Ht_Dot();
                 dotGen.backgroundColor = bg;
                 dotGen.foregroundColor = fg;
+                dotGen.imageType = imageType;
+                dotGen.outputScale = outputScale;
+                dotGen.pool = pool;
+                dotGen.rngHelper = rngHelper;
                 
-                return dotGen.applyDotPattern(image, config.scale, id);
+                return dotGen.applyDotPattern(config.scale, id);
             }
             case AlternatingTriangles -> {
                 Ht_Dot dotGen = new Ht_Dot();
                 dotGen.backgroundColor = bg;
                 dotGen.foregroundColor = fg;
+                dotGen.imageType = imageType;
+                dotGen.outputScale = outputScale;
+                dotGen.pool = pool;
+                dotGen.rngHelper = rngHelper;
                 
-                return dotGen.applyAlternatingTrianglePattern(image, config.scale, id);
+                return dotGen.applyAlternatingTrianglePattern(config.scale, id);
             }
             case Polygons -> {
                 Ht_Dot dotGen = new Ht_Dot();
                 dotGen.backgroundColor = bg;
                 dotGen.foregroundColor = fg;
+                dotGen.imageType = imageType;
+                dotGen.outputScale = outputScale;
+                dotGen.pool = pool;
+                dotGen.rngHelper = rngHelper;
                 
-                return dotGen.applyPolygonPattern(image, config.scale, id, config.polySides);
+                return dotGen.applyPolygonPattern(config.scale, id, config.polySides);
             }
             case Stippling -> {
                 Ht_Dot dotGen = new Ht_Dot();
                 dotGen.backgroundColor = bg;
                 dotGen.foregroundColor = fg;
+                dotGen.imageType = imageType;
+                dotGen.outputScale = outputScale;
+                dotGen.pool = pool;
+                dotGen.rngHelper = rngHelper;
                 
-                return dotGen.applyStipplingPattern(image, config.scale, id, config.stipplingDensity);
+                return dotGen.applyStipplingPattern(config.scale, id, config.stipplingDensity);
             }
             case Lines -> {
                 Ht_Line lineGen = new Ht_Line();
                 lineGen.backgroundColor = bg;
                 lineGen.foregroundColor = fg;
+                lineGen.imageType = imageType;
+                lineGen.outputScale = outputScale;
+                lineGen.pool = pool;
+                lineGen.rngHelper = rngHelper;
                 
-                return lineGen.applyLinePattern(image, config.scale, id);
+                return lineGen.applyLinePattern(config.scale, id);
             }
             case SineWaves -> {
                 Ht_Line sineGen = new Ht_Line();
                 sineGen.backgroundColor = bg;
                 sineGen.foregroundColor = fg;
+                sineGen.imageType = imageType;
+                sineGen.outputScale = outputScale;
+                sineGen.pool = pool;
+                sineGen.rngHelper = rngHelper;
                 sineGen.amplitudeScalar = config.amplitudeScalar;
                 sineGen.frequencyScalar = config.frequencyScalar;
 
-                return sineGen.applySinePattern(image, config.scale, id);
+                return sineGen.applySinePattern(config.scale, id);
             }
             case FlowLines -> {
-                Ht_FlowLine flowGen = new Ht_FlowLine();
-                flowGen.backgroundColor = bg;
-                flowGen.foregroundColor = fg;
-                flowGen.minLineSize = config.minLineSize;
+                Ht_FlowLine flowGen = createFlowLineGenerator(bg, fg, imageType, outputScale, threads);
                 
-                return flowGen.applyFlowLinePattern(image, config.scale, id, config.minStep, config.maxStep, config.followMaxChange);
+                return flowGen.applyFlowLinePattern(config.scale, id, config.minStep, config.maxStep, config.followMaxChange);
             }
             default -> {
-                return image;
+                throw new IllegalArgumentException("Unsupported halftone type: " + config.type);
             }
         }
     }
 
-    private BufferedImage readImage(String path) {
-        // Reads a PNG file from disk and returns as BufferedImage
-        return new PngReader().readPNG(path, false);
+    private ResizeImage resizeImage() {
+        ResizeImage resizer = new ResizeImage();
+        resizer.pool = pool;
+
+        return resizer;
+    }
+
+    private Ht_FlowLine createFlowLineGenerator(Color bg, Color fg, int imageType, int outputScale, int threads) {
+        Ht_FlowLine flowGen = new Ht_FlowLine();
+        flowGen.backgroundColor = bg;
+        flowGen.foregroundColor = fg;
+        flowGen.imageType = imageType;
+        flowGen.outputScale = outputScale;
+        flowGen.pool = pool;
+        flowGen.threads = threads;
+        flowGen.minLineSize = config.minLineSize;
+        flowGen.curveMode = config.flowLineCurveMode;
+        flowGen.engine = config.flowLineEngine;
+        flowGen.separation = config.flowLineSeparation;
+
+        return flowGen;
     }
 }
\ No newline at end of file
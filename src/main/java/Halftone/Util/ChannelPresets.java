@@ -0,0 +1,88 @@
+package Halftone.Util;
+
+import ColorSeparator.ColorChannelSeparator;
+import Data.Channel.Channel;
+import Data.Channel.ChannelBlend;
+import Data.Channel.ChannelSet;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.Function;
+
+public class ChannelPresets {
+    /**
+     * Four-color process separation: cyan, magenta, yellow and black inks at
+     * the classic 15°, 75°, 0° and 45° screen angles, multiplied on white.
+     *
+     * @return A new CMYK channel set.
+     */
+    public static ChannelSet cmyk() {
+        SharedSeparation separation = new SharedSeparation(4, source ->
+            new ColorChannelSeparator().separateCMYK(source, 0, false, false)
+        );
+
+        return new ChannelSet("CMYK", List.of(
+            new Channel("C", source -> separation.take(source, 0), 15, Color.CYAN, ChannelBlend.Multiply),
+            new Channel("M", source -> separation.take(source, 1), 75, Color.MAGENTA, ChannelBlend.Multiply),
+            new Channel("Y", source -> separation.take(source, 2), 0, Color.YELLOW, ChannelBlend.Multiply),
+            new Channel("K", source -> separation.take(source, 3), 45, Color.BLACK, ChannelBlend.Multiply)
+        ));
+    }
+
+    /**
+     * Additive separation: red, green and blue lights at 0°, 60° and 120°,
+     * screened on black.
+     *
+     * @return A new RGB channel set.
+     */
+    public static ChannelSet rgb() {
+        SharedSeparation separation = new SharedSeparation(3, source ->
+            new ColorChannelSeparator().separateRBGA(source, 0, false, false)
+        );
+
+        return new ChannelSet("RGB", List.of(
+            new Channel("R", source -> separation.take(source, 0), 0, Color.RED, ChannelBlend.Screen),
+            new Channel("G", source -> separation.take(source, 1), 60, Color.GREEN, ChannelBlend.Screen),
+            new Channel("B", source -> separation.take(source, 2), 120, Color.BLUE, ChannelBlend.Screen)
+        ));
+    }
+
+    /**
+     * Runs a separation once per source image and hands its channels out to
+     * the per-channel extractors, which may run in parallel. Each channel's
+     * image is handed out once and not referenced afterwards, and the
+     * separation is dropped when the last channel has taken its image, so
+     * nothing outlives the channels that consume it.
+     */
+    private static class SharedSeparation {
+        private final Function<BufferedImage, BufferedImage[]> separate;
+        private final int channels;
+        private BufferedImage lastSource;
+        private BufferedImage[] lastResult;
+        private int remaining; // Channels of lastResult not handed out yet
+
+        SharedSeparation(int channels, Function<BufferedImage, BufferedImage[]> separate) {
+            this.channels = channels;
+            this.separate = separate;
+        }
+
+        synchronized BufferedImage take(BufferedImage source, int channel) {
+            if (source != lastSource || lastResult == null || lastResult[channel] == null) {
+                lastResult = separate.apply(source);
+                lastSource = source;
+                remaining = channels;
+            }
+
+            BufferedImage image = lastResult[channel];
+            lastResult[channel] = null;
+
+            if (--remaining == 0) {
+                lastResult = null;
+                lastSource = null;
+            }
+
+            return image;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package Halftone.Util.FlowLine;
+
+/**
+ * Chooses how many samples a flow line curve needs so that the flattened
+ * polyline stays within a pixel-error tolerance of the true curve.
+ *
+ * Uses Wang's bound for Bézier curves: a curve of degree d whose control
+ * points have a maximum second difference M is within ε of its polyline
+ * when sampled with N = sqrt(d(d - 1) * M / (8ε)) uniform intervals. Since
+ * d * M grows with arc length times curvature, straight or short lines get
+ * few samples and long winding lines get many. The half-width is treated as
+ * a third coordinate so that thickness changes, which bend the ribbon edges,
+ * also receive samples.
+ */
+public class AdaptiveTessellator {
+    private final double tolerance;
+    private final int minResolution;
+    private final int maxResolution;
+
+    /**
+     * Creates a new tessellator.
+     *
+     * @param tolerance Maximum allowed distance in pixels between the curve and
+     * its flattened polyline.
+     * @param minResolution Lower bound on the number of sampled intervals.
+     * @param maxResolution Upper bound on the number of sampled intervals.
+     */
+    public AdaptiveTessellator(double tolerance, int minResolution, int maxResolution) {
+        this.tolerance = Math.max(1e-3, tolerance);
+        this.minResolution = Math.max(1, minResolution);
+        this.maxResolution = Math.max(this.minResolution, maxResolution);
+    }
+
+    /**
+     * Computes the number of sampled intervals for a single Bézier curve
+     * through all the given control points.
+     *
+     * @param xs X coordinates of the control points (pixels).
+     * @param ys Y coordinates of the control points (pixels).
+     * @param widths Half-width associated with each control point (pixels).
+     * @return Number of intervals, rounded up to a multiple of 8 so that Bézier
+     * basis tables are shared between lines of similar shape.
+     */
+    public int bezierResolution(double[] xs, double[] ys, double[] widths) {
+        int degree = xs.length - 1;
+
+        if (degree < 2) {
+            return minResolution;
+        }
+
+        double maxSecondDiff = 0.0;
+
+        for (int i = 0; i + 2 <= degree; i++) {
+            maxSecondDiff = Math.max(maxSecondDiff, secondDifference(
+                xs[i], xs[i + 1], xs[i + 2],
+                ys[i], ys[i + 1], ys[i + 2],
+                widths[i], widths[i + 1], widths[i + 2]
+            ));
+        }
+
+        int resolution = wangBound(degree, maxSecondDiff);
+        resolution = Math.max(minResolution, Math.min(maxResolution, resolution));
+
+        // Quantize upwards to improve basis cache reuse
+        return Math.min(maxResolution, (resolution + 7) & ~7);
+    }
+
+    /**
+     * Computes the number of sampled intervals for each segment of a
+     * piecewise cubic curve. Every segment is converted to its cubic Bézier
+     * form and bounded independently, so samples concentrate where the line
+     * actually bends.
+     *
+     * @param evaluator Evaluator defining the cubic basis.
+     * @param xs X coordinates of the control points (pixels).
+     * @param ys Y coordinates of the control points (pixels).
+     * @param widths Half-width associated with each control point (pixels).
+     * @return One interval count (at least 1) per segment.
+     */
+    public int[] segmentResolutions(PiecewiseCubicEvaluator evaluator, double[] xs, double[] ys, double[] widths) {
+        int segments = Math.max(1, xs.length - 1);
+        int[] steps = new int[segments];
+
+        if (xs.length < 2) {
+            steps[0] = minResolution;
+            
+            return steps;
+        }
+
+        double[] bx = new double[4];
+        double[] by = new double[4];
+        double[] bw = new double[4];
+        int total = 0;
+
+        for (int seg = 0; seg < segments; seg++) {
+            evaluator.segmentBezierControls(xs, seg, bx);
+            evaluator.segmentBezierControls(ys, seg, by);
+            evaluator.segmentBezierControls(widths, seg, bw);
+
+            double maxSecondDiff = 0.0;
+
+            for (int i = 0; i < 2; i++) {
+                maxSecondDiff = Math.max(maxSecondDiff, secondDifference(
+                    bx[i], bx[i + 1], bx[i + 2],
+                    by[i], by[i + 1], by[i + 2],
+                    bw[i], bw[i + 1], bw[i + 2]
+                ));
+            }
+
+            steps[seg] = Math.max(1, wangBound(3, maxSecondDiff));
+            total += steps[seg];
+        }
+
+        // Spread the remaining budget when the line is too short or too long
+        if (total < minResolution) {
+            int extra = (minResolution + segments - 1) / segments;
+            
+            for (int seg = 0; seg < segments; seg++) {
+                steps[seg] = Math.max(steps[seg], extra);
+            }
+        } else if (total > maxResolution) {
+            double scale = (double) maxResolution / total;
+            
+            for (int seg = 0; seg < segments; seg++) {
+                steps[seg] = Math.max(1, (int) Math.floor(steps[seg] * scale));
+            }
+        }
+
+        return steps;
+    }
+
+    /**
+     * Wang's bound for a Bézier of the given degree.
+     */
+    private int wangBound(int degree, double maxSecondDiff) {
+        return (int) Math.ceil(Math.sqrt(degree * (degree - 1) * maxSecondDiff / (8.0 * tolerance)));
+    }
+
+    /**
+     * Length of P0 - 2P1 + P2 in (x, y, width) space.
+     */
+    private double secondDifference(double x0, double x1, double x2,
+                                    double y0, double y1, double y2,
+                                    double w0, double w1, double w2) {
+        double dx = x0 - 2 * x1 + x2;
+        double dy = y0 - 2 * y1 + y2;
+        double dw = w0 - 2 * w1 + w2;
+
+        return Math.sqrt(dx * dx + dy * dy + dw * dw);
+    }
+}
@@ -0,0 +1,129 @@
+package Halftone.Util.FlowLine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caches Bernstein basis tables for the exact Bézier evaluation mode.
+ * A table depends only on the curve degree and the sample resolution, so
+ * flow lines of the same length share it instead of re-evaluating
+ * C(n,i) * (1-t)^(n-i) * t^i for every sample of every line.
+ *
+ * Long lines produce large tables, so the cache is bounded by the bytes of
+ * its tables: the least recently used ones are evicted first, and tables
+ * larger than {@link #MAX_TABLE_BYTES} are computed but never kept.
+ */
+public class BezierBasisCache {
+    // Bytes all cached tables may take together
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+
+    // Tables above this size are rebuilt per line instead of evicting many smaller ones
+    private static final long MAX_TABLE_BYTES = MAX_CACHED_BYTES / 8;
+
+    // Tables by degree and resolution, least recently used first
+    private static final LinkedHashMap<Long, double[][]> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes = 0;
+
+    private BezierBasisCache() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Returns the basis table for the given degree and resolution, computing
+     * and caching it on first use.
+     *
+     * @param degree Curve degree (number of control points - 1).
+     * @param resolution Number of intervals sampled along the curve; the table
+     * holds resolution + 1 rows.
+     * @return Table indexed as [step][controlPoint], where step t = step / resolution.
+     */
+    public static double[][] get(int degree, int resolution) {
+        long key = ((long) degree << 32) | (resolution & 0xffffffffL);
+
+        synchronized (cache) {
+            double[][] table = cache.get(key);
+
+            if (table != null) {
+                return table;
+            }
+        }
+
+        // Computed outside the lock; two threads may build the same table once
+        double[][] table = computeTable(degree, resolution);
+        long bytes = tableBytes(degree, resolution);
+
+        if (bytes > MAX_TABLE_BYTES) {
+            return table;
+        }
+
+        synchronized (cache) {
+            double[][] cached = cache.get(key);
+
+            if (cached != null) {
+                return cached;
+            }
+
+            cache.put(key, table);
+            cachedBytes += bytes;
+
+            // Evict the least recently used tables until the rest fit the budget
+            Iterator<Long> iterator = cache.keySet().iterator();
+
+            while (cachedBytes > MAX_CACHED_BYTES && iterator.hasNext()) {
+                long eldest = iterator.next();
+
+                if (eldest == key) continue;
+
+                iterator.remove();
+                cachedBytes -= tableBytes((int) (eldest >>> 32), (int) eldest);
+            }
+        }
+
+        return table;
+    }
+
+    // Approximate heap size of a table: the row arrays plus their headers
+    private static long tableBytes(int degree, int resolution) {
+        return (resolution + 1L) * (8L * (degree + 1) + 16);
+    }
+
+    /**
+     * Computes Bernstein weights in log space so that high degrees (long lines)
+     * do not overflow the binomial coefficient or underflow the powers.
+     */
+    private static double[][] computeTable(int degree, int resolution) {
+        double[][] table = new double[resolution + 1][degree + 1];
+
+        // Cumulative log binomial coefficients: ln C(n, i)
+        double[] logBinomial = new double[degree + 1];
+
+        for (int i = 1; i <= degree; i++) {
+            logBinomial[i] = logBinomial[i - 1] + Math.log(degree - i + 1) - Math.log(i);
+        }
+
+        for (int step = 0; step <= resolution; step++) {
+            double t = (double) step / resolution;
+            double[] row = table[step];
+
+            // Endpoints interpolate the first and last control points exactly
+            if (step == 0) {
+                row[0] = 1.0;
+                continue;
+            }
+
+            if (step == resolution) {
+                row[degree] = 1.0;
+                continue;
+            }
+
+            double logT = Math.log(t);
+            double logOneMinusT = Math.log(1.0 - t);
+
+            for (int i = 0; i <= degree; i++) {
+                row[i] = Math.exp(logBinomial[i] + (degree - i) * logOneMinusT + i * logT);
+            }
+        }
+
+        return table;
+    }
+}
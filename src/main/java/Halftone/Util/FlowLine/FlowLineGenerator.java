@@ -3,12 +3,14 @@ package Halftone.Util.FlowLine;
 import Data.ColorAccumulator;
 import Data.FlowLine.FlowLine;
 import Data.FlowLine.FlowLinePoint;
+import Util.Scheduler;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 public class FlowLineGenerator {
     private final int numIterations = 10;
@@ -17,22 +19,87 @@ public class FlowLineGenerator {
     public double minStepSize = 1.0;
     public double maxStepSize = 5.0;
 
+    // Side length of the square tiles merged in parallel, in kernels (<= 0 disables tiling)
+    public int tileSize = 128;
+    public int threads = Runtime.getRuntime().availableProcessors();
+
     /**
      * Generates a list of flow lines by iteratively merging kernel-level line
      * segments based on local gradient direction and magnitude.
      *
+     * When the grid is larger than one tile, it is partitioned into square
+     * tiles that are merged independently in parallel; a sequential stitching
+     * pass then joins lines whose endpoints meet across tile seams under the
+     * same angle rule. The resulting line set and its order only depend on the
+     * input and the tile size.
+     *
      * @param avgGrid The grid of color accumulators, one per kernel cell.
      * @param numKernels Number of kernel rows in the grid.
      * @param numSegments Number of kernel columns in the grid.
      * @return A list of merged flow lines covering the image.
      */
     public List<FlowLine> generate(ColorAccumulator[][] avgGrid, int numKernels, int numSegments) {
-        // Each valid kernel starts as its own single-point flow line
         FlowLine[][] gridLines = new FlowLine[numKernels][numSegments];
-        Set<FlowLine> activeLines = new HashSet<>();
+        int size = (tileSize > 0) ? tileSize : Math.max(numKernels, numSegments);
+
+        // Tiles as {row0, col0, row1, col1} with exclusive ends, in row-major order
+        List<int[]> tiles = new ArrayList<>();
+
+        for (int r = 0; r < numKernels; r += size) {
+            for (int c = 0; c < numSegments; c += size) {
+                tiles.add(new int[]{r, c, Math.min(numKernels, r + size), Math.min(numSegments, c + size)});
+            }
+        }
+
+        List<Set<FlowLine>> tileLines = mergeTiles(tiles, avgGrid, gridLines);
+
+        Set<FlowLine> activeLines = new LinkedHashSet<>();
+
+        for (Set<FlowLine> lines : tileLines) {
+            activeLines.addAll(lines);
+        }
+
+        if (tiles.size() > 1) {
+            stitchSeams(avgGrid, gridLines, activeLines, numKernels, numSegments, size);
+        }
+
+        return new ArrayList<>(activeLines);
+    }
+
+    /**
+     * Runs the merge iterations of every tile, in parallel when there is more
+     * than one tile. Tiles only touch their own cells of gridLines.
+     */
+    private List<Set<FlowLine>> mergeTiles(List<int[]> tiles, ColorAccumulator[][] avgGrid, FlowLine[][] gridLines) {
+        List<Callable<Set<FlowLine>>> tasks = new ArrayList<>();
+
+        for (int[] tile : tiles) {
+            tasks.add(() -> mergeTile(tile, avgGrid, gridLines));
+        }
+
+        List<Set<FlowLine>> results = new ArrayList<>();
+
+        if (threads <= 1 || tasks.size() <= 1) {
+            for (int[] tile : tiles) {
+                results.add(mergeTile(tile, avgGrid, gridLines));
+            }
+
+            return results;
+        }
+
+        return Scheduler.invokeAll(tasks, "flow line generation");
+    }
+
+    /**
+     * Seeds one single-point line per valid kernel of the tile, then
+     * iteratively merges lines from their endpoints without leaving the tile.
+     */
+    private Set<FlowLine> mergeTile(int[] tile, ColorAccumulator[][] avgGrid, FlowLine[][] gridLines) {
+        // Each valid kernel starts as its own single-point flow line
+        Set<FlowLine> activeLines = new LinkedHashSet<>();
 
-        for (int kr = 0; kr < numKernels; kr++) {
-            for (int kc = 0; kc < numSegments; kc++) {
+        for (int kr = tile[0]; kr < tile[2]; kr++) {
+            for (int kc = tile[1]; kc < tile[3]; kc++) {
                 ColorAccumulator cell = avgGrid[kr][kc];
 
                 if (cell.count > 0) {
@@ -46,12 +113,12 @@ public class FlowLineGenerator {
             }
         }
 
-        // Iteratively merge lines from their endpoints across the full grid
+        // Iteratively merge lines from their endpoints across the tile
         for (int iter = 0; iter < numIterations; iter++) {
             int mergesThisIter = 0;
 
-            for (int kr = 0; kr < numKernels; kr++) {
-                for (int kc = 0; kc < numSegments; kc++) {
+            for (int kr = tile[0]; kr < tile[2]; kr++) {
+                for (int kc = tile[1]; kc < tile[3]; kc++) {
                     FlowLine currentLine = gridLines[kr][kc];
 
                     if (currentLine == null) continue;
@@ -61,7 +128,7 @@ public class FlowLineGenerator {
                     boolean isEnd = currentKernel.equals(currentLine.getEndKernel());
 
                     if (isStart || isEnd) {
-                        mergesThisIter += tryMergeFromGridPoint(currentLine, currentKernel, isEnd, avgGrid, gridLines, activeLines, numKernels, numSegments);
+                        mergesThisIter += tryMergeFromGridPoint(currentLine, currentKernel, isEnd, avgGrid, gridLines, activeLines, tile, -1);
                     }
                 }
             }
@@ -69,24 +136,61 @@ public class FlowLineGenerator {
             if (mergesThisIter == 0) break;
         }
 
-        return new ArrayList<>(activeLines);
+        return activeLines;
+    }
+
+    /**
+     * Joins lines whose endpoints step into a different tile and land on an
+     * endpoint of a line there, using the same angle-compatibility rule as the
+     * per-tile merge. Lines are visited in their deterministic order.
+     */
+    private void stitchSeams(ColorAccumulator[][] avgGrid, FlowLine[][] gridLines, Set<FlowLine> activeLines,
+                             int numKernels, int numSegments, int size) {
+        int[] fullGrid = {0, 0, numKernels, numSegments};
+
+        for (int iter = 0; iter < numIterations; iter++) {
+            int mergesThisIter = 0;
+
+            for (FlowLine line : new ArrayList<>(activeLines)) {
+                if (!activeLines.contains(line)) continue;
+
+                FlowLinePoint start = line.getStartKernel();
+                mergesThisIter += tryMergeFromGridPoint(line, start, false, avgGrid, gridLines, activeLines, fullGrid, size);
+
+                // The line may have been absorbed into its neighbour
+                if (!activeLines.contains(line)) continue;
+
+                FlowLinePoint end = line.getEndKernel();
+                mergesThisIter += tryMergeFromGridPoint(line, end, true, avgGrid, gridLines, activeLines, fullGrid, size);
+            }
+
+            if (mergesThisIter == 0) break;
+        }
     }
 
     /**
      * Attempts to merge the given line with a neighboring line reachable from
      * the specified endpoint kernel, if their directions are compatible.
+     * The step is limited to the given bounds; when seamTileSize is positive,
+     * only steps that cross into another tile of that size are accepted.
      */
     private int tryMergeFromGridPoint(FlowLine line, FlowLinePoint point, boolean isForward, ColorAccumulator[][] avgGrid,
                                       FlowLine[][] gridLines, Set<FlowLine> activeLines,
-                                      int numKernels, int numSegments) {
+                                      int[] bounds, int seamTileSize) {
         double angle = getTargetAngle(avgGrid[point.row][point.col]);
         
         if (!isForward) angle += Math.PI;
 
-        FlowLinePoint next = computeNextKernel(point, angle, numKernels, numSegments, avgGrid);
+        FlowLinePoint next = computeNextKernel(point, angle, bounds, avgGrid);
         
         if (next == null) return 0;
 
+        if (seamTileSize > 0
+                && next.row / seamTileSize == point.row / seamTileSize
+                && next.col / seamTileSize == point.col / seamTileSize) {
+            return 0;
+        }
+
         FlowLine other = gridLines[next.row][next.col];
         
         if (other == null || other == line) return 0;
@@ -152,9 +256,10 @@ public class FlowLineGenerator {
 
     /**
      * Computes the next kernel position by stepping from the given point along
-     * the provided angle, using either dynamic or fixed step size.
+     * the provided angle, using either dynamic or fixed step size. Steps that
+     * leave the {row0, col0, row1, col1} bounds return null.
      */
-    private FlowLinePoint computeNextKernel(FlowLinePoint from, double angle, int numKernels, int numSegments, ColorAccumulator[][] avgGrid) {
+    private FlowLinePoint computeNextKernel(FlowLinePoint from, double angle, int[] bounds, ColorAccumulator[][] avgGrid) {
         ColorAccumulator cell = avgGrid[from.row][from.col];
 
         double grayNorm = cell.getGrayScale() / 255.0;
@@ -172,7 +277,7 @@ public class FlowLineGenerator {
         int nextCol = (int) Math.round(from.col + deltaX);
         int nextRow = (int) Math.round(from.row + deltaY);
 
-        if (nextRow < 0 || nextRow >= numKernels || nextCol < 0 || nextCol >= numSegments) {
+        if (nextRow < bounds[0] || nextRow >= bounds[2] || nextCol < bounds[1] || nextCol >= bounds[3]) {
             return null;
         }
 
@@ -181,7 +286,7 @@ public class FlowLineGenerator {
             nextCol = from.col + (int) Math.round(Math.cos(angle));
             nextRow = from.row + (int) Math.round(Math.sin(angle));
 
-            if (nextRow < 0 || nextRow >= numKernels || nextCol < 0 || nextCol >= numSegments) {
+            if (nextRow < bounds[0] || nextRow >= bounds[2] || nextCol < bounds[1] || nextCol >= bounds[3]) {
                 return null;
             }
             
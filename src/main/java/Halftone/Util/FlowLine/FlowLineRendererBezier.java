@@ -2,17 +2,24 @@ package Halftone.Util.FlowLine;
 
 import Data.FlowLine.BezierPoint;
 import Data.ColorAccumulator;
+import Data.FlowLine.CurveMode;
 import Data.FlowLine.FlowLine;
 import Data.ImageData;
+import Util.Scheduler;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 public class FlowLineRendererBezier {
     private final double lineThicknessMIN = 1.0 / 32.0;
@@ -23,9 +30,29 @@ public class FlowLineRendererBezier {
     // Smoothing configuration (N neighboring kernels along the line)
     public int lineSmoothingRadius = 2;
 
-    // Number of points sampled along the Bézier curve
+    // Maximum ribbon width as a multiple of the kernel size (matches the spacing between lines)
+    public double widthScale = 1.0;
+
+    // Number of points sampled along the Bézier curve (used when adaptive tessellation is off)
     public int bezierResolution = 50;
 
+    // Adaptive tessellation: sample count follows arc length and curvature instead of bezierResolution
+    public boolean adaptiveTessellation = true;
+    public double tessellationTolerance = 0.25; // Max pixel error between curve and its polyline
+    public int minResolution = 8;
+    public int maxResolution = 1024;
+
+    // Ramer–Douglas–Peucker tolerance (pixels) for dropping near-collinear control points
+    // in the piecewise curve modes (0 = off)
+    public double simplifyTolerance = 0.5;
+
+    // Curve model used for the ribbon centerline
+    public CurveMode curveMode = CurveMode.Bezier;
+
+    // Parallel geometry construction: lines are grouped into batches built on a pool
+    public int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+    public int linesPerBatch = 128;
+
     /**
      * Renders all flow lines as filled Bézier ribbons onto the given Graphics2D context.
      *
@@ -39,68 +66,100 @@ public class FlowLineRendererBezier {
     }
 
     /**
-     * Iterates over all flow lines, fills each one as a Bézier ribbon,
-     * and draws end-cap dots as independent shapes to avoid winding rule conflicts.
+     * Builds the ribbon and end-cap shapes of all flow lines in parallel batches
+     * and fills them on the calling thread in the original line order, so the
+     * result is identical to a sequential render. At most a few batches ahead
+     * of the one being filled are kept in memory.
      */
     private void drawFlowLines(Graphics2D g2d, List<FlowLine> flowLines, int kernelSize, double minXr, double minYr, ImageData data) {
         g2d.setColor(foregroundColor);
 
-        for (FlowLine line : flowLines) {
-            if (line == null) continue;
+        AffineTransform inverse = invert(data.rotation);
+
+        if (inverse == null) return;
+
+        int total = flowLines.size();
+        int batchSize = Math.max(1, linesPerBatch);
+        int batches = (total + batchSize - 1) / batchSize;
+
+        if (threads <= 1 || batches <= 1) {
+            fillShapes(g2d, buildGeometry(flowLines, 0, total, kernelSize, minXr, minYr, data, inverse));
+            
+            return;
+        }
+
+        Deque<ForkJoinTask<List<Shape>>> pending = new ArrayDeque<>();
+        int window = threads * 2;
+
+        for (int start = 0; start < total; start += batchSize) {
+            final int from = start;
+            final int to = Math.min(total, start + batchSize);
+
+            pending.add(Scheduler.submit(() -> buildGeometry(flowLines, from, to, kernelSize, minXr, minYr, data, inverse)));
 
-            // Draw the ribbon
-            Path2D ribbon = buildBezierRibbon(line, kernelSize, minXr, minYr, data);
-            if (ribbon != null) {
-                g2d.fill(ribbon);
+            // Fill the oldest batch once the look-ahead window is full
+            if (pending.size() >= window) {
+                fillShapes(g2d, Scheduler.await(pending.poll(), "flow line geometry construction"));
             }
+        }
 
-            // Draw end-cap dots as independent shapes to avoid winding conflicts
-            drawEndCapDots(g2d, line, kernelSize, minXr, minYr, data);
+        while (!pending.isEmpty()) {
+            fillShapes(g2d, Scheduler.await(pending.poll(), "flow line geometry construction"));
         }
     }
 
     /**
-     * Draws filled circular end-cap dots at the start and end of a flow line.
-     * Each dot is drawn as an independent shape to prevent winding rule cancellation
-     * that would occur if appended to the ribbon Path2D.
+     * Builds the shapes for lines [from, to) in fill order: for each line its
+     * ribbon followed by its two end-cap dots. Half-widths and curve samples are
+     * computed once per line and shared by the ribbon and its end caps.
+     * End-cap dots are independent shapes to avoid winding rule conflicts.
      */
-    private void drawEndCapDots(Graphics2D g2d, FlowLine line, int kernelSize, double minXr, double minYr, ImageData data) {
-        double[] halfWidths = calculateHalfWidths(line, kernelSize, data);
-        List<BezierPoint> bezierPoints = generateBezierPoints(line, halfWidths, kernelSize, minXr, minYr);
+    private List<Shape> buildGeometry(List<FlowLine> flowLines, int from, int to, int kernelSize,
+                                      double minXr, double minYr, ImageData data, AffineTransform inverse) {
+        List<Shape> shapes = new ArrayList<>((to - from) * 3);
+
+        for (int i = from; i < to; i++) {
+            FlowLine line = flowLines.get(i);
+            
+            if (line == null || line.size() == 0) continue;
+
+            double[] halfWidths = calculateHalfWidths(line, kernelSize, data);
+            List<BezierPoint> curvePoints = generateCurvePoints(line, halfWidths, kernelSize, minXr, minYr);
+
+            if (curvePoints.size() < 2) continue;
+
+            // Ribbon (single-kernel lines only produce end-cap dots)
+            if (line.size() >= 2) {
+                Path2D ribbon = buildRibbonFromBezier(curvePoints, inverse);
+                
+                if (ribbon != null) {
+                    shapes.add(ribbon);
+                }
+            }
 
-        if (bezierPoints.size() < 2) return;
+            shapes.add(createDot(curvePoints.get(0), inverse));
+            shapes.add(createDot(curvePoints.get(curvePoints.size() - 1), inverse));
+        }
 
-        fillDot(g2d, bezierPoints.get(0), data);
-        fillDot(g2d, bezierPoints.get(bezierPoints.size() - 1), data);
+        return shapes;
     }
 
-    /**
-     * Fills a single circular dot at the given Bézier point position,
-     * using its half-width as the radius.
-     */
-    private void fillDot(Graphics2D g2d, BezierPoint point, ImageData data) {
-        Point2D.Double center = rotatedToImage(point.position, data);
-        if (center == null) return;
-
-        double r = point.halfWidth;
-        g2d.fill(new Ellipse2D.Double(center.x - r, center.y - r, r * 2, r * 2));
+    private void fillShapes(Graphics2D g2d, List<Shape> shapes) {
+        for (Shape shape : shapes) {
+            g2d.fill(shape);
+        }
     }
 
     /**
-     * Builds a filled ribbon shape for a single flow line using a Bézier curve
-     * through all kernel positions as control points.
+     * Creates a circular end-cap dot at the given Bézier point position,
+     * using its half-width as the radius.
      */
-    private Path2D buildBezierRibbon(FlowLine line, int kernelSize, double minXr, double minYr, ImageData data) {
-        int n = line.size();
+    private Shape createDot(BezierPoint point, AffineTransform inverse) {
+        Point2D.Double center = rotatedToImage(point.position, inverse);
 
-        if (n < 2) return null;
-
-        double[] halfWidths = calculateHalfWidths(line, kernelSize, data);
-        List<BezierPoint> bezierPoints = generateBezierPoints(line, halfWidths, kernelSize, minXr, minYr);
-
-        if (bezierPoints.size() < 2) return null;
-
-        return buildRibbonFromBezier(bezierPoints, data);
+        double r = point.halfWidth;
+        
+        return new Ellipse2D.Double(center.x - r, center.y - r, r * 2, r * 2);
     }
 
     /**
@@ -144,82 +203,109 @@ public class FlowLineRendererBezier {
     }
 
     /**
-     * Generates interpolated points along a Bézier curve, using all kernel
+     * Generates interpolated points along the line's curve, using the kernel
      * positions as control points and blending their associated half-widths.
+     * Control points are first simplified (piecewise modes), the sample count is then chosen
+     * from the simplified polygon, and finally the exact Bézier or piecewise
+     * cubic evaluator is applied depending on the configured curve mode.
      */
-    private List<BezierPoint> generateBezierPoints(FlowLine line, double[] halfWidths,
-                                                    int kernelSize, double minXr, double minYr) {
-        List<BezierPoint> result = new ArrayList<>();
+    private List<BezierPoint> generateCurvePoints(FlowLine line, double[] halfWidths,
+                                                   int kernelSize, double minXr, double minYr) {
         int n = line.size();
 
         // Convert kernel positions to rotated image space (control points)
-        List<Point2D.Double> controlPoints = new ArrayList<>();
-        for (Point2D.Double kPos : line.positions) {
-            controlPoints.add(new Point2D.Double(
-                minXr + kPos.x * kernelSize,
-                minYr + kPos.y * kernelSize
-            ));
+        double[] controlX = new double[n];
+        double[] controlY = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Point2D.Double kPos = line.positions.get(i);
+            controlX[i] = minXr + kPos.x * kernelSize;
+            controlY[i] = minYr + kPos.y * kernelSize;
         }
 
-        double[] binomialCoeffs = calculateBinomialCoefficients(n - 1);
+        double[] controlWidths = halfWidths;
+        boolean piecewise = curveMode != CurveMode.Bezier;
 
-        for (int step = 0; step <= bezierResolution; step++) {
-            double t = (double) step / bezierResolution;
+        // Drop near-collinear control points so curve cost follows visible detail.
+        // Only the piecewise curves pass near their control points; removing points
+        // from a single Bézier would shift its Bernstein weights and thin the ribbon.
+        if (piecewise && simplifyTolerance > 0 && n > 2) {
+            LineSimplifier simplifier = new LineSimplifier();
+            int[] kept = simplifier.simplify(controlX, controlY, halfWidths, simplifyTolerance);
 
-            Point2D.Double pos = bezierInterpolate(controlPoints, binomialCoeffs, t);
-            double width = bezierInterpolate1D(halfWidths, binomialCoeffs, t);
+            if (kept.length < n) {
+                controlX = simplifier.select(controlX, kept);
+                controlY = simplifier.select(controlY, kept);
+                controlWidths = simplifier.select(halfWidths, kept);
+            }
+        }
+
+        double[] xs;
+        double[] ys;
+        double[] widths;
+
+        if (!piecewise) {
+            int resolution = bezierResolution;
+
+            if (adaptiveTessellation) {
+                resolution = createTessellator().bezierResolution(controlX, controlY, controlWidths);
+            }
+
+            double[][] basis = BezierBasisCache.get(controlX.length - 1, resolution);
+
+            xs = bezierInterpolate(controlX, basis);
+            ys = bezierInterpolate(controlY, basis);
+            widths = bezierInterpolate(controlWidths, basis);
+        } else {
+            PiecewiseCubicEvaluator evaluator = new PiecewiseCubicEvaluator(curveMode == CurveMode.BSpline);
 
-            result.add(new BezierPoint(pos, width));
+            if (adaptiveTessellation) {
+                int[] segmentSteps = createTessellator().segmentResolutions(evaluator, controlX, controlY, controlWidths);
+
+                xs = evaluator.sample(controlX, segmentSteps);
+                ys = evaluator.sample(controlY, segmentSteps);
+                widths = evaluator.sample(controlWidths, segmentSteps);
+            } else {
+                xs = evaluator.sample(controlX, bezierResolution);
+                ys = evaluator.sample(controlY, bezierResolution);
+                widths = evaluator.sample(controlWidths, bezierResolution);
+            }
         }
 
-        return result;
-    }
+        int sampleCount = xs.length;
+        List<BezierPoint> result = new ArrayList<>(sampleCount);
 
-    /**
-     * Calculates binomial coefficients C(n, k) for k = 0 to n.
-     */
-    private double[] calculateBinomialCoefficients(int n) {
-        double[] coeffs = new double[n + 1];
-        coeffs[0] = 1;
+        for (int step = 0; step < sampleCount; step++) {
+            // Catmull–Rom can overshoot below zero between thin and thick kernels
+            double width = Math.max(0.0, widths[step]);
 
-        for (int i = 1; i <= n; i++) {
-            coeffs[i] = coeffs[i - 1] * (n - i + 1) / i;
+            result.add(new BezierPoint(new Point2D.Double(xs[step], ys[step]), width));
         }
 
-        return coeffs;
+        return result;
+    }
+
+    private AdaptiveTessellator createTessellator() {
+        return new AdaptiveTessellator(tessellationTolerance, minResolution, maxResolution);
     }
 
     /**
-     * Performs Bézier curve interpolation for a list of 2D control points.
+     * Performs Bézier curve interpolation for a 1D array of control values
+     * using a precomputed Bernstein basis table.
      * B(t) = Σ(i=0 to n) [C(n,i) * (1-t)^(n-i) * t^i * P_i]
      */
-    private Point2D.Double bezierInterpolate(List<Point2D.Double> controlPoints,
-                                             double[] binomialCoeffs, double t) {
-        int n = controlPoints.size() - 1;
-        double x = 0.0;
-        double y = 0.0;
-
-        for (int i = 0; i <= n; i++) {
-            double basis = binomialCoeffs[i] * Math.pow(1 - t, n - i) * Math.pow(t, i);
-
-            Point2D.Double p = controlPoints.get(i);
-            x += basis * p.x;
-            y += basis * p.y;
-        }
+    private double[] bezierInterpolate(double[] values, double[][] basis) {
+        double[] result = new double[basis.length];
 
-        return new Point2D.Double(x, y);
-    }
+        for (int step = 0; step < basis.length; step++) {
+            double[] weights = basis[step];
+            double sum = 0.0;
 
-    /**
-     * Performs Bézier curve interpolation for a 1D array of scalar values (widths).
-     */
-    private double bezierInterpolate1D(double[] values, double[] binomialCoeffs, double t) {
-        int n = values.length - 1;
-        double result = 0.0;
+            for (int i = 0; i < values.length; i++) {
+                sum += weights[i] * values[i];
+            }
 
-        for (int i = 0; i <= n; i++) {
-            double basis = binomialCoeffs[i] * Math.pow(1 - t, n - i) * Math.pow(t, i);
-            result += basis * values[i];
+            result[step] = sum;
         }
 
         return result;
@@ -229,10 +315,10 @@ public class FlowLineRendererBezier {
      * Builds the final filled ribbon polygon from a list of interpolated Bézier
      * points by offsetting each point perpendicularly by its half-width to form
      * left and right edges, then connecting them into a closed path.
-     * End-cap dots are no longer appended here — they are drawn separately via
-     * drawEndCapDots() to avoid winding rule cancellation artifacts.
+     * End-cap dots are no longer appended here — they are created separately in
+     * buildGeometry() to avoid winding rule cancellation artifacts.
      */
-    private Path2D buildRibbonFromBezier(List<BezierPoint> bezierPoints, ImageData data) {
+    private Path2D buildRibbonFromBezier(List<BezierPoint> bezierPoints, AffineTransform inverse) {
         int n = bezierPoints.size();
 
         if (n < 2) return null;
@@ -273,13 +359,8 @@ public class FlowLineRendererBezier {
                 curr.position.y - normal.y * curr.halfWidth
             );
 
-            Point2D.Double leftImg = rotatedToImage(left, data);
-            Point2D.Double rightImg = rotatedToImage(right, data);
-
-            if (leftImg != null && rightImg != null) {
-                leftEdge.add(leftImg);
-                rightEdge.add(rightImg);
-            }
+            leftEdge.add(rotatedToImage(left, inverse));
+            rightEdge.add(rotatedToImage(right, inverse));
         }
 
         if (leftEdge.isEmpty()) return null;
@@ -315,16 +396,21 @@ public class FlowLineRendererBezier {
 
     /**
      * Transforms a point from rotated image space back to original image coordinates
-     * by inverting the rotation transform. Returns null if the transform is non-invertible.
+     * using the precomputed inverse of the rotation transform.
      */
-    private Point2D.Double rotatedToImage(Point2D.Double rotated, ImageData data) {
-        if (rotated == null) return null;
+    private Point2D.Double rotatedToImage(Point2D.Double rotated, AffineTransform inverse) {
+        Point2D.Double original = new Point2D.Double();
+        inverse.transform(rotated, original);
 
-        try {
-            Point2D.Double original = new Point2D.Double();
-            data.rotation.inverseTransform(rotated, original);
+        return original;
+    }
 
-            return original;
+    /**
+     * Returns the inverse of the given transform, or null if it is non-invertible.
+     */
+    private AffineTransform invert(AffineTransform t) {
+        try {
+            return t.createInverse();
         } catch (NoninvertibleTransformException e) {
             return null;
         }
@@ -344,8 +430,8 @@ public class FlowLineRendererBezier {
         double grayNorm = cell.getGrayScale() / 255.0;
         double darkness = 1.0 - grayNorm; // 1.0 = black, 0.0 = white
 
-        // Base width scaled by darkness (max width = half the kernel)
-        double baseWidth = (kernelSize / 2.0) * darkness;
+        // Base width scaled by darkness (max width = half the line spacing)
+        double baseWidth = (kernelSize * widthScale / 2.0) * darkness;
 
         // Sobel magnitude is low in solid black areas (no variance), so we use
         // darkness as a floor: black areas stay thick regardless of edge strength
@@ -0,0 +1,132 @@
+package Halftone.Util.FlowLine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Ramer–Douglas–Peucker simplification for flow line control points.
+ * Points are treated as (x, y, halfWidth) triples so that a kernel is only
+ * dropped when both its position and its ribbon width are predictable from
+ * its neighbours, keeping thickness changes along straight runs intact.
+ */
+public class LineSimplifier {
+    /**
+     * Marks which control points must be kept so that every removed point lies
+     * within the given tolerance of the simplified polyline.
+     *
+     * @param xs X coordinates of the control points (pixels).
+     * @param ys Y coordinates of the control points (pixels).
+     * @param widths Half-width associated with each control point (pixels).
+     * @param tolerance Maximum allowed deviation in pixels.
+     * @return Indices of the kept control points, in ascending order. The first
+     * and last points are always kept.
+     */
+    public int[] simplify(double[] xs, double[] ys, double[] widths, double tolerance) {
+        int n = xs.length;
+
+        if (n <= 2 || tolerance <= 0) {
+            return identity(n);
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        double toleranceSq = tolerance * tolerance;
+
+        // Iterative stack of [start, end] ranges to avoid deep recursion on long lines
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{0, n - 1});
+
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int start = range[0];
+            int end = range[1];
+
+            if (end - start < 2) continue;
+
+            double maxDistSq = -1.0;
+            int farthest = -1;
+
+            for (int i = start + 1; i < end; i++) {
+                double distSq = distanceToSegmentSq(xs, ys, widths, i, start, end);
+
+                if (distSq > maxDistSq) {
+                    maxDistSq = distSq;
+                    farthest = i;
+                }
+            }
+
+            if (maxDistSq > toleranceSq) {
+                keep[farthest] = true;
+                ranges.push(new int[]{start, farthest});
+                ranges.push(new int[]{farthest, end});
+            }
+        }
+
+        int count = 0;
+
+        for (boolean k : keep) {
+            if (k) count++;
+        }
+
+        int[] kept = new int[count];
+        int idx = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) kept[idx++] = i;
+        }
+
+        return kept;
+    }
+
+    /**
+     * Returns a new array holding values[indices[i]] for each kept index.
+     *
+     * @param values Source values.
+     * @param indices Indices to select, as returned by simplify().
+     * @return The selected values.
+     */
+    public double[] select(double[] values, int[] indices) {
+        double[] result = new double[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = values[indices[i]];
+        }
+
+        return result;
+    }
+
+    private int[] identity(int n) {
+        int[] indices = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+
+        return indices;
+    }
+
+    /**
+     * Squared distance from point i to the segment [a, b] in (x, y, width) space.
+     */
+    private double distanceToSegmentSq(double[] xs, double[] ys, double[] widths, int i, int a, int b) {
+        double dx = xs[b] - xs[a];
+        double dy = ys[b] - ys[a];
+        double dw = widths[b] - widths[a];
+
+        double px = xs[i] - xs[a];
+        double py = ys[i] - ys[a];
+        double pw = widths[i] - widths[a];
+
+        double lengthSq = dx * dx + dy * dy + dw * dw;
+        double t = (lengthSq > 1e-12) ? (px * dx + py * dy + pw * dw) / lengthSq : 0.0;
+        t = Math.max(0.0, Math.min(1.0, t));
+
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        double ew = pw - t * dw;
+
+        return ex * ex + ey * ey + ew * ew;
+    }
+}
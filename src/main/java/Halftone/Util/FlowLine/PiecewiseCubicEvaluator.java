@@ -0,0 +1,186 @@
+package Halftone.Util.FlowLine;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates piecewise cubic curves (uniform Catmull–Rom or uniform cubic
+ * B-spline) through a sequence of control values. Each sample only touches
+ * the four control points of its segment, so the cost is linear in the
+ * number of samples and control points, unlike a single Bézier curve whose
+ * degree grows with the line length.
+ *
+ * Both ends are extended with a reflected phantom point (P[-1] = 2P[0] - P[1])
+ * so that the curve starts and ends exactly on the first and last control
+ * points in both modes.
+ */
+public class PiecewiseCubicEvaluator {
+    private final boolean bSpline;
+
+    /**
+     * Creates a new evaluator.
+     *
+     * @param bSpline If true, uses the approximating uniform B-spline basis;
+     * otherwise uses the interpolating Catmull–Rom basis.
+     */
+    public PiecewiseCubicEvaluator(boolean bSpline) {
+        this.bSpline = bSpline;
+    }
+
+    /**
+     * Samples the curve defined by the given control values at
+     * resolution + 1 evenly spaced parameters across all segments.
+     *
+     * @param values Control values (one coordinate or scalar per control point).
+     * @param resolution Number of intervals sampled along the whole curve.
+     * @return Array of resolution + 1 sampled values.
+     */
+    public double[] sample(double[] values, int resolution) {
+        int n = values.length;
+        double[] result = new double[resolution + 1];
+
+        if (n == 1) {
+            Arrays.fill(result, values[0]);
+            
+            return result;
+        }
+
+        int segments = n - 1;
+
+        for (int step = 0; step <= resolution; step++) {
+            double s = (double) step * segments / resolution;
+            int seg = Math.min((int) s, segments - 1);
+            double u = s - seg;
+
+            double p0 = controlAt(values, seg - 1);
+            double p1 = values[seg];
+            double p2 = values[seg + 1];
+            double p3 = controlAt(values, seg + 2);
+
+            result[step] = bSpline ? evaluateBSpline(p0, p1, p2, p3, u) : evaluateCatmullRom(p0, p1, p2, p3, u);
+        }
+
+        return result;
+    }
+
+    /**
+     * Samples the curve with a separate number of intervals per segment, as
+     * produced by adaptive tessellation.
+     *
+     * @param values Control values (one coordinate or scalar per control point).
+     * @param segmentSteps Number of intervals for each of the values.length - 1
+     * segments.
+     * @return Array of sum(segmentSteps) + 1 sampled values.
+     */
+    public double[] sample(double[] values, int[] segmentSteps) {
+        int n = values.length;
+        int total = 0;
+
+        for (int steps : segmentSteps) {
+            total += steps;
+        }
+
+        double[] result = new double[total + 1];
+
+        if (n == 1) {
+            Arrays.fill(result, values[0]);
+            
+            return result;
+        }
+
+        int idx = 0;
+
+        for (int seg = 0; seg < n - 1; seg++) {
+            double p0 = controlAt(values, seg - 1);
+            double p1 = values[seg];
+            double p2 = values[seg + 1];
+            double p3 = controlAt(values, seg + 2);
+            int steps = segmentSteps[seg];
+
+            // The end of each segment is the start of the next one
+            for (int step = 0; step < steps; step++) {
+                double u = (double) step / steps;
+                result[idx++] = bSpline ? evaluateBSpline(p0, p1, p2, p3, u) : evaluateCatmullRom(p0, p1, p2, p3, u);
+            }
+        }
+
+        result[idx] = bSpline
+            ? evaluateBSpline(controlAt(values, n - 3), values[n - 2], values[n - 1], controlAt(values, n), 1.0)
+            : values[n - 1];
+
+        return result;
+    }
+
+    /**
+     * Writes the four cubic Bézier control values that describe the given
+     * segment exactly, used to bound its flattening error.
+     *
+     * @param values Control values of the whole curve.
+     * @param seg Segment index (0 .. values.length - 2).
+     * @param out Array of length 4 receiving the Bézier control values.
+     */
+    public void segmentBezierControls(double[] values, int seg, double[] out) {
+        double p0 = controlAt(values, seg - 1);
+        double p1 = values[seg];
+        double p2 = values[seg + 1];
+        double p3 = controlAt(values, seg + 2);
+
+        if (bSpline) {
+            out[0] = (p0 + 4 * p1 + p2) / 6.0;
+            out[1] = (2 * p1 + p2) / 3.0;
+            out[2] = (p1 + 2 * p2) / 3.0;
+            out[3] = (p1 + 4 * p2 + p3) / 6.0;
+        } else {
+            out[0] = p1;
+            out[1] = p1 + (p2 - p0) / 6.0;
+            out[2] = p2 - (p3 - p1) / 6.0;
+            out[3] = p2;
+        }
+    }
+
+    /**
+     * Returns the control value at index i, reflecting across the endpoints
+     * for indices just outside the valid range.
+     */
+    private double controlAt(double[] values, int i) {
+        int n = values.length;
+
+        if (i < 0) {
+            return 2 * values[0] - values[1];
+        }
+
+        if (i >= n) {
+            return 2 * values[n - 1] - values[n - 2];
+        }
+
+        return values[i];
+    }
+
+    /**
+     * Uniform Catmull–Rom segment between p1 and p2.
+     * C(u) = 0.5 * [2p1 + (-p0 + p2)u + (2p0 - 5p1 + 4p2 - p3)u^2 + (-p0 + 3p1 - 3p2 + p3)u^3]
+     */
+    private double evaluateCatmullRom(double p0, double p1, double p2, double p3, double u) {
+        double u2 = u * u;
+        double u3 = u2 * u;
+
+        return 0.5 * ((2 * p1)
+                + (-p0 + p2) * u
+                + (2 * p0 - 5 * p1 + 4 * p2 - p3) * u2
+                + (-p0 + 3 * p1 - 3 * p2 + p3) * u3);
+    }
+
+    /**
+     * Uniform cubic B-spline segment.
+     * S(u) = 1/6 * [(1-u)^3 p0 + (3u^3 - 6u^2 + 4) p1 + (-3u^3 + 3u^2 + 3u + 1) p2 + u^3 p3]
+     */
+    private double evaluateBSpline(double p0, double p1, double p2, double p3, double u) {
+        double u2 = u * u;
+        double u3 = u2 * u;
+        double oneMinusU = 1.0 - u;
+
+        return (oneMinusU * oneMinusU * oneMinusU * p0
+                + (3 * u3 - 6 * u2 + 4) * p1
+                + (-3 * u3 + 3 * u2 + 3 * u + 1) * p2
+                + u3 * p3) / 6.0;
+    }
+}
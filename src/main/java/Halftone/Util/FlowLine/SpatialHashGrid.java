@@ -0,0 +1,184 @@
+package Halftone.Util.FlowLine;
+
+import java.util.Arrays;
+
+/**
+ * Uniform spatial hash of streamline samples over a rectangular domain.
+ * The domain is split into square cells whose side equals the largest
+ * query radius, so every proximity check only visits the 3x3 block of cells
+ * around the query point and runs in constant time regardless of how many
+ * samples have been placed.
+ *
+ * Samples are stored in flat growable arrays and chained per cell through
+ * index links, avoiding one object per sample.
+ */
+public class SpatialHashGrid {
+    private final double originX;
+    private final double originY;
+    private final double maxX;
+    private final double maxY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+
+    // Index of the most recently inserted sample in each cell (-1 = empty)
+    private final int[] heads;
+
+    // Per-sample data, linked through next[]
+    private int[] next = new int[256];
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+    private int[] lineIds = new int[256];
+    private float[] params = new float[256];
+    private int size = 0;
+
+    // Lines whose samples no longer block other lines
+    private boolean[] removed = new boolean[64];
+
+    /**
+     * Creates an empty grid covering [x, x + width) x [y, y + height).
+     *
+     * @param x Left edge of the domain.
+     * @param y Top edge of the domain.
+     * @param width Domain width.
+     * @param height Domain height.
+     * @param cellSize Cell side; must be at least the largest query radius.
+     */
+    public SpatialHashGrid(double x, double y, double width, double height, double cellSize) {
+        this.originX = x;
+        this.originY = y;
+        this.maxX = x + width;
+        this.maxY = y + height;
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+        heads = new int[cols * rows];
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * Returns true if the point lies inside the grid's domain.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return True if inside.
+     */
+    public boolean contains(double x, double y) {
+        return x >= originX && x < maxX && y >= originY && y < maxY;
+    }
+
+    /**
+     * Inserts a sample. Points outside the domain are ignored.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param lineId Identifier of the streamline the sample belongs to.
+     * @param param Arc-length parameter of the sample along its streamline,
+     * used to skip nearby samples of the same line during self tests.
+     */
+    public void insert(double x, double y, int lineId, double param) {
+        if (!contains(x, y)) return;
+
+        ensureCapacity(size + 1);
+
+        int cell = cellIndex(x, y);
+
+        xs[size] = (float) x;
+        ys[size] = (float) y;
+        lineIds[size] = lineId;
+        params[size] = (float) param;
+        next[size] = heads[cell];
+        heads[cell] = size;
+
+        size++;
+    }
+
+    /**
+     * Marks all samples of the given line as non-blocking, used when a traced
+     * streamline is discarded for being too short.
+     *
+     * @param lineId Identifier of the discarded streamline.
+     */
+    public void remove(int lineId) {
+        if (lineId >= removed.length) {
+            removed = Arrays.copyOf(removed, Math.max(lineId + 1, removed.length * 2));
+        }
+
+        removed[lineId] = true;
+    }
+
+    /**
+     * Checks whether any sample lies within the given radius of (x, y).
+     * Samples of selfId are only considered when their arc-length parameter
+     * differs from selfParam by more than selfWindow, so a streamline does not
+     * collide with the samples it just placed but still stops when it loops
+     * back onto itself.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param radius Search radius (at most the cell size).
+     * @param selfId Identifier of the line being traced, or -1.
+     * @param selfParam Arc-length parameter of the query point along selfId.
+     * @param selfWindow Arc-length window in which own samples are ignored.
+     * @return True if a blocking sample is found.
+     */
+    public boolean hasNeighbor(double x, double y, double radius, int selfId, double selfParam, double selfWindow) {
+        double radiusSq = radius * radius;
+
+        int cx = (int) Math.floor((x - originX) / cellSize);
+        int cy = (int) Math.floor((y - originY) / cellSize);
+
+        for (int gy = Math.max(0, cy - 1); gy <= Math.min(rows - 1, cy + 1); gy++) {
+            for (int gx = Math.max(0, cx - 1); gx <= Math.min(cols - 1, cx + 1); gx++) {
+                for (int i = heads[gy * cols + gx]; i != -1; i = next[i]) {
+                    int id = lineIds[i];
+
+                    if (id < removed.length && removed[id]) continue;
+
+                    if (id == selfId && Math.abs(params[i] - selfParam) <= selfWindow) continue;
+
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+
+                    if (dx * dx + dy * dy < radiusSq) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Convenience overload without self-test handling.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param radius Search radius (at most the cell size).
+     * @return True if any non-removed sample is within the radius.
+     */
+    public boolean hasNeighbor(double x, double y, double radius) {
+        return hasNeighbor(x, y, radius, -1, 0, 0);
+    }
+
+    private int cellIndex(double x, double y) {
+        int cx = Math.min(cols - 1, (int) ((x - originX) / cellSize));
+        int cy = Math.min(rows - 1, (int) ((y - originY) / cellSize));
+
+        return cy * cols + cx;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= xs.length) return;
+
+        int newCapacity = Math.max(capacity, xs.length * 2);
+
+        next = Arrays.copyOf(next, newCapacity);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        lineIds = Arrays.copyOf(lineIds, newCapacity);
+        params = Arrays.copyOf(params, newCapacity);
+    }
+}
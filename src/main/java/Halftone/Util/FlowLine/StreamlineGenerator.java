@@ -0,0 +1,533 @@
+package Halftone.Util.FlowLine;
+
+import Data.ColorAccumulator;
+import Data.FlowLine.FlowLine;
+import Util.Scheduler;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Generates evenly-spaced streamlines through the blurred Sobel field, in the
+ * style of Jobard and Lebeau ("Creating Evenly-Spaced Streamlines of Arbitrary
+ * Density"). Unlike FlowLineGenerator, lines are integrated with sub-kernel
+ * steps and their spacing is set by a separation distance instead of by the
+ * kernel grid.
+ *
+ * Generation runs in three phases:
+ * 1. Seeding regions are traced in parallel, each against its own spatial hash.
+ * 2. A sequential conflict-resolution pass re-checks every candidate line, in
+ * region order, against the lines already accepted and keeps only the parts
+ * that respect the test distance.
+ * 3. A sequential gap-filling pass seeds new lines beside the accepted ones to
+ * cover the areas freed by trimmed candidates.
+ *
+ * Every proximity check goes through a SpatialHashGrid, so the total cost is
+ * close to linear in the total length of the generated lines.
+ */
+public class StreamlineGenerator {
+    public boolean followMaxChange = true;
+
+    public double separation = 1.0; // Distance between neighbouring lines, in kernels
+    public double testRatio = 0.5; // A line stops when closer than separation * testRatio to another
+    public double stepSize = 0.5; // Integration step, in kernels
+    public double outputSpacing = 1.0; // Spacing of the emitted FlowLine control points, in kernels
+    public int regionSize = 64; // Side of each parallel seeding region, in kernels
+    public int maxSamplesPerLine = 100000;
+    public int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // Doubled-angle field (cos 2θ, sin 2θ) so that opposite directions do not cancel when interpolated
+    private float[] fieldCos;
+    private float[] fieldSin;
+    private boolean[] fieldValid;
+    private int numKernels;
+    private int numSegments;
+
+    /**
+     * Generates evenly-spaced streamlines covering the image.
+     *
+     * @param avgGrid The grid of color accumulators with blurred Sobel data.
+     * @param numKernels Number of kernel rows in the grid.
+     * @param numSegments Number of kernel columns in the grid.
+     * @return A list of flow lines in kernel coordinates, in a deterministic order.
+     */
+    public List<FlowLine> generate(ColorAccumulator[][] avgGrid, int numKernels, int numSegments) {
+        this.numKernels = numKernels;
+        this.numSegments = numSegments;
+
+        buildField(avgGrid);
+
+        // 1) Trace candidate lines per region in parallel
+        List<int[]> regions = buildRegions();
+        List<List<Streamline>> candidates = traceRegions(regions);
+
+        // 2) Resolve conflicts between regions in region order
+        TraceContext global = new TraceContext(new SpatialHashGrid(0, 0, numSegments, numKernels, separation));
+
+        for (List<Streamline> regionLines : candidates) {
+            for (Streamline line : regionLines) {
+                acceptNonConflicting(line, global);
+            }
+        }
+
+        // 3) Fill the gaps left by trimmed candidates
+        fill(global, 0, 0, numKernels, numSegments);
+
+        List<FlowLine> result = new ArrayList<>(global.lines.size());
+
+        for (Streamline line : global.lines) {
+            FlowLine flowLine = toFlowLine(line);
+
+            if (flowLine.size() >= 2) {
+                result.add(flowLine);
+            }
+        }
+
+        return result;
+    }
+
+    // ---------------------- Phases ----------------------
+
+    /**
+     * Splits the grid into square seeding regions, as {row0, col0, row1, col1}
+     * with exclusive ends, in row-major order.
+     */
+    private List<int[]> buildRegions() {
+        int size = Math.max(1, regionSize);
+        List<int[]> regions = new ArrayList<>();
+
+        for (int r = 0; r < numKernels; r += size) {
+            for (int c = 0; c < numSegments; c += size) {
+                regions.add(new int[]{r, c, Math.min(numKernels, r + size), Math.min(numSegments, c + size)});
+            }
+        }
+
+        return regions;
+    }
+
+    /**
+     * Traces every region independently. Each region owns a spatial hash
+     * covering the region plus a margin, so lines may cross the region border
+     * before stopping; overlaps are resolved afterwards.
+     */
+    private List<List<Streamline>> traceRegions(List<int[]> regions) {
+        List<Callable<List<Streamline>>> tasks = new ArrayList<>();
+
+        for (int[] region : regions) {
+            tasks.add(() -> traceRegion(region));
+        }
+
+        List<List<Streamline>> results = new ArrayList<>();
+
+        if (threads <= 1 || tasks.size() <= 1) {
+            for (Callable<List<Streamline>> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (Exception e) {
+                    throw new RuntimeException("Error during streamline tracing", e);
+                }
+            }
+
+            return results;
+        }
+
+        return Scheduler.invokeAll(tasks, "streamline tracing");
+    }
+
+    private List<Streamline> traceRegion(int[] region) {
+        int margin = Math.max(1, (int) Math.ceil(regionSize / 4.0));
+
+        int r0 = Math.max(0, region[0] - margin);
+        int c0 = Math.max(0, region[1] - margin);
+        int r1 = Math.min(numKernels, region[2] + margin);
+        int c1 = Math.min(numSegments, region[3] + margin);
+
+        SpatialHashGrid grid = new SpatialHashGrid(c0, r0, c1 - c0, r1 - r0, separation);
+        TraceContext ctx = new TraceContext(grid);
+
+        fill(ctx, region[0], region[1], region[2], region[3]);
+
+        return ctx.lines;
+    }
+
+    /**
+     * Re-checks a candidate line against the accepted set and keeps every run
+     * of consecutive samples that stays at least the test distance away from
+     * accepted lines. Runs shorter than one output spacing are dropped.
+     */
+    private void acceptNonConflicting(Streamline line, TraceContext global) {
+        double testDistance = separation * testRatio;
+        List<int[]> runs = new ArrayList<>();
+        int runStart = -1;
+
+        for (int i = 0; i < line.size; i++) {
+            boolean free = !global.grid.hasNeighbor(line.xs[i], line.ys[i], testDistance);
+
+            if (free && runStart < 0) {
+                runStart = i;
+            } else if (!free && runStart >= 0) {
+                runs.add(new int[]{runStart, i});
+                runStart = -1;
+            }
+        }
+
+        if (runStart >= 0) {
+            runs.add(new int[]{runStart, line.size});
+        }
+
+        for (int[] run : runs) {
+            if ((run[1] - run[0] - 1) * stepSize < outputSpacing) continue;
+
+            Streamline accepted = new Streamline(global.nextId++);
+
+            for (int i = run[0]; i < run[1]; i++) {
+                accepted.add(line.xs[i], line.ys[i]);
+                global.grid.insert(line.xs[i], line.ys[i], accepted.id, (i - run[0]) * stepSize);
+            }
+
+            global.lines.add(accepted);
+        }
+    }
+
+    /**
+     * Jobard–Lebeau seeding loop. Seeds are first taken beside existing lines,
+     * at the separation distance on both sides of their samples; when none is
+     * left, the kernel centers of the scan area are visited in order so that
+     * disconnected parts of the image are also covered.
+     */
+    private void fill(TraceContext ctx, int scanRow0, int scanCol0, int scanRow1, int scanCol1) {
+        int seedStride = Math.max(1, (int) Math.round(separation / stepSize));
+        int lineCursor = 0;
+        int sampleCursor = 0;
+        Deque<double[]> pendingSeeds = new ArrayDeque<>();
+
+        int scanCols = scanCol1 - scanCol0;
+        long scanTotal = (long) (scanRow1 - scanRow0) * scanCols;
+        long scanCursor = 0;
+
+        while (true) {
+            double[] seed = null;
+
+            // 1) Seeds beside existing lines
+            while (seed == null) {
+                if (pendingSeeds.isEmpty()) {
+                    if (lineCursor >= ctx.lines.size()) break;
+
+                    Streamline source = ctx.lines.get(lineCursor);
+
+                    if (sampleCursor >= source.size) {
+                        lineCursor++;
+                        sampleCursor = 0;
+
+                        continue;
+                    }
+
+                    addSideSeeds(source, sampleCursor, pendingSeeds);
+                    sampleCursor += seedStride;
+                }
+
+                double[] candidate = pendingSeeds.poll();
+
+                if (candidate != null && isValidSeed(ctx, candidate[0], candidate[1], scanRow0, scanCol0, scanRow1, scanCol1)) {
+                    seed = candidate;
+                }
+            }
+
+            // 2) Scan kernel centers
+            while (seed == null && scanCursor < scanTotal) {
+                int r = scanRow0 + (int) (scanCursor / scanCols);
+                int c = scanCol0 + (int) (scanCursor % scanCols);
+                scanCursor++;
+
+                if (isValidSeed(ctx, c + 0.5, r + 0.5, scanRow0, scanCol0, scanRow1, scanCol1)) {
+                    seed = new double[]{c + 0.5, r + 0.5};
+                }
+            }
+
+            if (seed == null) break;
+
+            Streamline line = trace(ctx, seed[0], seed[1]);
+
+            if (line != null) {
+                ctx.lines.add(line);
+            }
+        }
+    }
+
+    private void addSideSeeds(Streamline line, int i, Deque<double[]> seeds) {
+        int prev = Math.max(0, i - 1);
+        int next = Math.min(line.size - 1, i + 1);
+
+        double tx = line.xs[next] - line.xs[prev];
+        double ty = line.ys[next] - line.ys[prev];
+        double length = Math.sqrt(tx * tx + ty * ty);
+
+        if (length < 1e-9) return;
+
+        double nx = -ty / length * separation;
+        double ny = tx / length * separation;
+
+        seeds.add(new double[]{line.xs[i] + nx, line.ys[i] + ny});
+        seeds.add(new double[]{line.xs[i] - nx, line.ys[i] - ny});
+    }
+
+    private boolean isValidSeed(TraceContext ctx, double x, double y, int row0, int col0, int row1, int col1) {
+        if (x < col0 || x >= col1 || y < row0 || y >= row1) return false;
+
+        if (!ctx.grid.contains(x, y) || !isInsideField(x, y)) return false;
+
+        return !ctx.grid.hasNeighbor(x, y, separation);
+    }
+
+    // ---------------------- Tracing ----------------------
+
+    /**
+     * Traces a streamline forward and backward from the seed. Samples are
+     * inserted into the context's grid while tracing so the line also avoids
+     * looping onto itself. Lines shorter than one output spacing are removed
+     * from the grid and discarded.
+     */
+    private Streamline trace(TraceContext ctx, double seedX, double seedY) {
+        double[] dir = direction(seedX, seedY, 1.0, 0.0);
+
+        if (dir == null) return null;
+
+        int id = ctx.nextId++;
+
+        ctx.grid.insert(seedX, seedY, id, 0.0);
+
+        Streamline forward = integrate(ctx, id, seedX, seedY, dir[0], dir[1], 1.0);
+        Streamline backward = integrate(ctx, id, seedX, seedY, -dir[0], -dir[1], -1.0);
+
+        int total = backward.size + 1 + forward.size;
+
+        if ((total - 1) * stepSize < outputSpacing) {
+            ctx.grid.remove(id);
+
+            return null;
+        }
+
+        Streamline line = new Streamline(id);
+
+        for (int i = backward.size - 1; i >= 0; i--) {
+            line.add(backward.xs[i], backward.ys[i]);
+        }
+
+        line.add(seedX, seedY);
+
+        for (int i = 0; i < forward.size; i++) {
+            line.add(forward.xs[i], forward.ys[i]);
+        }
+
+        return line;
+    }
+
+    /**
+     * Integrates the field with second-order Runge–Kutta (midpoint) steps until
+     * the line leaves the grid, reaches a kernel without data, or comes within
+     * the test distance of another line (or of a distant part of itself).
+     */
+    private Streamline integrate(TraceContext ctx, int id, double x, double y, double dx, double dy, double sign) {
+        Streamline samples = new Streamline(id);
+
+        double testDistance = separation * testRatio;
+        double selfWindow = 2.0 * separation;
+        double param = 0.0;
+
+        for (int i = 0; i < maxSamplesPerLine; i++) {
+            double[] d1 = direction(x, y, dx, dy);
+
+            if (d1 == null) break;
+
+            double[] d2 = direction(x + d1[0] * stepSize * 0.5, y + d1[1] * stepSize * 0.5, d1[0], d1[1]);
+
+            if (d2 == null) break;
+
+            double nx = x + d2[0] * stepSize;
+            double ny = y + d2[1] * stepSize;
+            param += sign * stepSize;
+
+            if (!ctx.grid.contains(nx, ny) || !isInsideField(nx, ny)) break;
+
+            if (ctx.grid.hasNeighbor(nx, ny, testDistance, id, param, selfWindow)) break;
+
+            samples.add(nx, ny);
+            ctx.grid.insert(nx, ny, id, param);
+
+            x = nx;
+            y = ny;
+            dx = d2[0];
+            dy = d2[1];
+        }
+
+        return samples;
+    }
+
+    // ---------------------- Field ----------------------
+
+    private void buildField(ColorAccumulator[][] avgGrid) {
+        int total = numKernels * numSegments;
+
+        fieldCos = new float[total];
+        fieldSin = new float[total];
+        fieldValid = new boolean[total];
+
+        for (int r = 0; r < numKernels; r++) {
+            for (int c = 0; c < numSegments; c++) {
+                ColorAccumulator cell = avgGrid[r][c];
+                int idx = r * numSegments + c;
+
+                if (cell.count == 0) continue;
+
+                double angle = cell.sobelAngle;
+
+                if (!followMaxChange) {
+                    angle += Math.PI / 2.0;
+                }
+
+                fieldCos[idx] = (float) Math.cos(2.0 * angle);
+                fieldSin[idx] = (float) Math.sin(2.0 * angle);
+                fieldValid[idx] = true;
+            }
+        }
+    }
+
+    private boolean isInsideField(double x, double y) {
+        int r = (int) Math.floor(y);
+        int c = (int) Math.floor(x);
+
+        return r >= 0 && r < numKernels && c >= 0 && c < numSegments && fieldValid[r * numSegments + c];
+    }
+
+    /**
+     * Bilinearly interpolates the doubled-angle field between kernel centers
+     * and returns the unit direction closest to (prevX, prevY), or null when
+     * no valid kernel contributes.
+     */
+    private double[] direction(double x, double y, double prevX, double prevY) {
+        double fx = x - 0.5;
+        double fy = y - 0.5;
+        int c0 = (int) Math.floor(fx);
+        int r0 = (int) Math.floor(fy);
+        double tx = fx - c0;
+        double ty = fy - r0;
+
+        double sumCos = 0.0;
+        double sumSin = 0.0;
+        double sumWeight = 0.0;
+
+        for (int dr = 0; dr <= 1; dr++) {
+            for (int dc = 0; dc <= 1; dc++) {
+                int r = r0 + dr;
+                int c = c0 + dc;
+
+                if (r < 0 || r >= numKernels || c < 0 || c >= numSegments) continue;
+
+                int idx = r * numSegments + c;
+
+                if (!fieldValid[idx]) continue;
+
+                double w = (dr == 0 ? 1.0 - ty : ty) * (dc == 0 ? 1.0 - tx : tx);
+                sumCos += fieldCos[idx] * w;
+                sumSin += fieldSin[idx] * w;
+                sumWeight += w;
+            }
+        }
+
+        if (sumWeight <= 0.0 || (sumCos == 0.0 && sumSin == 0.0)) return null;
+
+        double angle = 0.5 * Math.atan2(sumSin, sumCos);
+        double ux = Math.cos(angle);
+        double uy = Math.sin(angle);
+
+        // Orientation is ambiguous by PI; keep heading the same way
+        if (ux * prevX + uy * prevY < 0) {
+            ux = -ux;
+            uy = -uy;
+        }
+
+        return new double[]{ux, uy};
+    }
+
+    // ---------------------- Output ----------------------
+
+    /**
+     * Resamples a streamline to control points spaced outputSpacing apart,
+     * always keeping both endpoints.
+     */
+    private FlowLine toFlowLine(Streamline line) {
+        FlowLine flowLine = new FlowLine();
+
+        double lastX = line.xs[0];
+        double lastY = line.ys[0];
+        double travelled = 0.0;
+
+        flowLine.positions.add(new Point2D.Double(lastX, lastY));
+
+        for (int i = 1; i < line.size; i++) {
+            double dx = line.xs[i] - line.xs[i - 1];
+            double dy = line.ys[i] - line.ys[i - 1];
+            travelled += Math.sqrt(dx * dx + dy * dy);
+
+            boolean isLast = (i == line.size - 1);
+
+            if (travelled >= outputSpacing || isLast) {
+                lastX = line.xs[i];
+                lastY = line.ys[i];
+                flowLine.positions.add(new Point2D.Double(lastX, lastY));
+                travelled = 0.0;
+            }
+        }
+
+        Point2D.Double start = flowLine.getStart();
+        Point2D.Double end = flowLine.getEnd();
+        flowLine.averageAngle = Math.atan2(end.y - start.y, end.x - start.x);
+
+        return flowLine;
+    }
+
+    // ---------------------- Internal types ----------------------
+
+    /**
+     * Growable list of streamline sample positions in kernel coordinates.
+     */
+    private static class Streamline {
+        final int id;
+        float[] xs = new float[32];
+        float[] ys = new float[32];
+        int size = 0;
+
+        Streamline(int id) {
+            this.id = id;
+        }
+
+        void add(double x, double y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+
+            xs[size] = (float) x;
+            ys[size] = (float) y;
+            size++;
+        }
+    }
+
+    /**
+     * Grid, accepted lines and id counter shared by one seeding pass.
+     */
+    private static class TraceContext {
+        final SpatialHashGrid grid;
+        final List<Streamline> lines = new ArrayList<>();
+        int nextId = 0;
+
+        TraceContext(SpatialHashGrid grid) {
+            this.grid = grid;
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package Halftone.Util;
 
-import java.awt.Color;
+import Util.Scheduler;
+import Util.VectorKernels;
+import Util.VectorSupport;
+
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 
 public class ImageMerger {
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    // Number of image rows blended per parallel task
+    public int rowsPerBand = 64;
+
     /**
      * Merges an array of images by multiplying their color channels.
      *
@@ -15,37 +25,25 @@ public class ImageMerger {
      * images, or if image dimensions differ.
      */
     public BufferedImage mergeImagesMultiply(BufferedImage[] images) {
-        validateInputArray(images);
-        validateSameDimensions(images);
-
-        int width = images[0].getWidth();
-        int height = images[0].getHeight();
-
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int red = 255;
-                int green = 255;
-                int blue = 255;
-                int alpha = 255;
-
-                for (BufferedImage img : images) {
-                    Color color = new Color(img.getRGB(x, y), true);
-                    red = (red * color.getRed()) / 255;
-                    green = (green * color.getGreen()) / 255;
-                    blue = (blue * color.getBlue()) / 255;
-                    alpha = (alpha * color.getAlpha()) / 255;
-                }
-
-                Color multiplied = new Color(red, green, blue, alpha);
-                result.setRGB(x, y, multiplied.getRGB());
-            }
-        }
+        return mergeImagesMultiply(images, false);
+    }
 
-        return result;
+    /**
+     * Merges an array of images by multiplying their color channels.
+     *
+     * @param images An array of BufferedImages to merge. Must contain at least
+     * two images of identical dimensions.
+     * @param inPlace If true and the first image is TYPE_INT_ARGB, the result
+     * is written into the first image instead of a new one.
+     * @return The BufferedImage holding the channel-wise product (divided by
+     * 255) of all input images.
+     * @throws IllegalArgumentException if the array is null, has fewer than two
+     * images, or if image dimensions differ.
+     */
+    public BufferedImage mergeImagesMultiply(BufferedImage[] images, boolean inPlace) {
+        return merge(images, inPlace, false);
     }
-    
+
     /**
      * Merges an array of images using the "Screen" blending mode.
      * Each pixel's color is computed using the formula:
@@ -61,39 +59,132 @@ public class ImageMerger {
      * images, or if image dimensions differ.
     */
     public BufferedImage mergeImagesScreen(BufferedImage[] images) {
+        return mergeImagesScreen(images, false);
+    }
+
+    /**
+     * Merges an array of images using the "Screen" blending mode, see
+     * {@link #mergeImagesScreen(BufferedImage[])}.
+     *
+     * @param images An array of BufferedImages to merge. Must contain at least
+     * two images of identical dimensions.
+     * @param inPlace If true and the first image is TYPE_INT_ARGB, the result
+     * is written into the first image instead of a new one.
+     * @return The BufferedImage holding the screen blend of all input images.
+     * @throws IllegalArgumentException if the array is null, has fewer than two
+     * images, or if image dimensions differ.
+     */
+    public BufferedImage mergeImagesScreen(BufferedImage[] images, boolean inPlace) {
+        return merge(images, inPlace, true);
+    }
+
+    /**
+     * Blends all images row-major over their packed ARGB buffers, splitting
+     * the rows into bands that are processed in parallel.
+     */
+    private BufferedImage merge(BufferedImage[] images, boolean inPlace, boolean screen) {
         validateInputArray(images);
         validateSameDimensions(images);
 
         int width = images[0].getWidth();
         int height = images[0].getHeight();
 
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage result = (inPlace && getPixels(images[0]) != null)
+            ? images[0]
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        int[] dst = getPixels(result);
+        int[][] src = new int[images.length][];
+
+        for (int i = 0; i < images.length; i++) {
+            src[i] = getPixels(images[i]);
+
+            // Other image types are copied out once as packed ARGB
+            if (src[i] == null) {
+                src[i] = images[i].getRGB(0, 0, width, height, null, 0, width);
+            }
+        }
+
+        int bandRows = Math.max(1, rowsPerBand);
+
+        Scheduler.forEachRange(width * height, bandRows * width, threads, "image merging",
+            (from, to) -> blend(src, dst, from, to, screen));
+
+        return result;
+    }
+
+    /**
+     * Blends the pixel range [from, to) of all sources into dst. Each source
+     * pixel is read before dst is written, so dst may alias a source.
+     */
+    private static void blend(int[][] src, int[] dst, int from, int to, boolean screen) {
+        // The SIMD kernel covers whole vectors; the scalar loop finishes the tail
+        int start = VectorSupport.isEnabled() ? VectorKernels.blend(src, dst, from, to, screen) : from;
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int red = 0;
-                int green = 0;
-                int blue = 0;
-                int alpha = 255;
+        for (int i = start; i < to; i++) {
+            int alpha = 255;
+            int red;
+            int green;
+            int blue;
 
-                for (BufferedImage img : images) {
-                    Color color = new Color(img.getRGB(x, y), true);
+            if (screen) {
+                // Screen blending: brightens the combination
+                red = 0;
+                green = 0;
+                blue = 0;
 
-                    // Screen blending: brightens the combination
-                    red = 255 - ((255 - red) * (255 - color.getRed())) / 255;
-                    green = 255 - ((255 - green) * (255 - color.getGreen())) / 255;
-                    blue = 255 - ((255 - blue) * (255 - color.getBlue())) / 255;
+                for (int[] pixels : src) {
+                    int argb = pixels[i];
+
+                    red = 255 - div255((255 - red) * (255 - ((argb >> 16) & 0xFF)));
+                    green = 255 - div255((255 - green) * (255 - ((argb >> 8) & 0xFF)));
+                    blue = 255 - div255((255 - blue) * (255 - (argb & 0xFF)));
 
                     // Alpha accumulates multiplicatively
-                    alpha = (alpha * color.getAlpha()) / 255;
+                    alpha = div255(alpha * (argb >>> 24));
+                }
+            } else {
+                red = 255;
+                green = 255;
+                blue = 255;
+
+                for (int[] pixels : src) {
+                    int argb = pixels[i];
+
+                    red = div255(red * ((argb >> 16) & 0xFF));
+                    green = div255(green * ((argb >> 8) & 0xFF));
+                    blue = div255(blue * (argb & 0xFF));
+                    alpha = div255(alpha * (argb >>> 24));
                 }
-
-                Color screenColor = new Color(red, green, blue, alpha);
-                result.setRGB(x, y, screenColor.getRGB());
             }
+
+            dst[i] = (alpha << 24) | (red << 16) | (green << 8) | blue;
         }
+    }
 
-        return result;
+    /**
+     * Integer division by 255 as a multiply by its fixed-point reciprocal,
+     * exact for every product of two 8-bit values.
+     */
+    static int div255(int value) {
+        return (value * 0x8081) >>> 23;
+    }
+
+    /**
+     * Returns the backing pixel array of a TYPE_INT_ARGB image whose raster
+     * is laid out one row after another, or null for any other layout.
+     */
+    private static int[] getPixels(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) return null;
+        if (!(image.getRaster().getDataBuffer() instanceof DataBufferInt buffer)) return null;
+        if (!(image.getSampleModel() instanceof SinglePixelPackedSampleModel model)) return null;
+
+        boolean contiguous = model.getScanlineStride() == image.getWidth()
+            && image.getRaster().getSampleModelTranslateX() == 0
+            && image.getRaster().getSampleModelTranslateY() == 0
+            && buffer.getOffset() == 0;
+
+        return contiguous ? buffer.getData() : null;
     }
 
     private void validateInputArray(BufferedImage[] images) {
@@ -116,4 +207,4 @@ public class ImageMerger {
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,358 @@
+package Halftone.Util;
+
+import Data.Channel.ChannelBlend;
+import Data.OffHeapRaster;
+import Util.RasterPool;
+import Util.Scheduler;
+import Util.VectorKernels;
+import Util.VectorSupport;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.util.Arrays;
+
+/**
+ * Combines single-channel coverage planes into one ARGB image.
+ *
+ * Each plane is a TYPE_BYTE_GRAY rendering of black ink on white paper, so a
+ * gray value g stores an ink coverage of 255 - g. The compositor turns every
+ * plane back into its channel colors (background blended towards foreground by
+ * the coverage) and blends all channels in a single pass, with the same
+ * arithmetic as {@link ImageMerger}. Planes held off-heap in
+ * {@link OffHeapRaster}s are composited band by band into an off-heap result.
+ */
+public class PlaneCompositor {
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    // Number of image rows composited per parallel task
+    public int rowsPerBand = 64;
+
+    // Source of the composited images
+    public RasterPool pool = RasterPool.NONE;
+
+    /**
+     * Composites coverage planes by multiplying their channel colors.
+     *
+     * @param planes Coverage planes of identical dimensions.
+     * @param backgrounds Paper color of each plane.
+     * @param foregrounds Ink color of each plane.
+     * @return A new ARGB BufferedImage with the multiplied channels.
+     * @throws IllegalArgumentException if there are fewer than two planes, the
+     * color arrays do not match the planes, or plane dimensions differ.
+     */
+    public BufferedImage compositeMultiply(BufferedImage[] planes, Color[] backgrounds, Color[] foregrounds) {
+        return composite(planes, backgrounds, foregrounds, uniform(planes, ChannelBlend.Multiply));
+    }
+
+    /**
+     * Composites coverage planes using the "Screen" blending mode on their
+     * channel colors, with alpha combined multiplicatively.
+     *
+     * @param planes Coverage planes of identical dimensions.
+     * @param backgrounds Paper color of each plane.
+     * @param foregrounds Ink color of each plane.
+     * @return A new ARGB BufferedImage with the screened channels.
+     * @throws IllegalArgumentException if there are fewer than two planes, the
+     * color arrays do not match the planes, or plane dimensions differ.
+     */
+    public BufferedImage compositeScreen(BufferedImage[] planes, Color[] backgrounds, Color[] foregrounds) {
+        return composite(planes, backgrounds, foregrounds, uniform(planes, ChannelBlend.Screen));
+    }
+
+    /**
+     * Composites coverage planes in order, each blended over the planes
+     * before it with its own mode; the first plane is laid down as-is.
+     * Uniform modes give the same result as {@link #compositeMultiply} and
+     * {@link #compositeScreen}.
+     *
+     * @param planes Coverage planes of identical dimensions.
+     * @param backgrounds Paper color of each plane.
+     * @param foregrounds Ink color of each plane.
+     * @param blends Blend mode of each plane.
+     * @return A new ARGB BufferedImage with the blended channels.
+     * @throws IllegalArgumentException if there are fewer than two planes, the
+     * color or mode arrays do not match the planes, or plane dimensions differ.
+     */
+    public BufferedImage composite(BufferedImage[] planes, Color[] backgrounds, Color[] foregrounds, ChannelBlend[] blends) {
+        validateInput(planes, backgrounds, foregrounds);
+
+        return composite(planes, backgrounds, foregrounds, screenFlags(planes, blends));
+    }
+
+    /**
+     * Composites off-heap coverage planes by multiplying their channel colors
+     * into an off-heap ARGB raster, see {@link #compositeMultiply(BufferedImage[], Color[], Color[])}.
+     *
+     * @param planes Gray coverage rasters of identical dimensions.
+     * @param backgrounds Paper color of each plane.
+     * @param foregrounds Ink color of each plane.
+     * @param dest ARGB raster of the planes' dimensions that receives the result.
+     * @throws IllegalArgumentException if there are fewer than two planes, the
+     * color arrays do not match the planes, or raster dimensions or formats differ.
+     */
+    public void compositeMultiply(OffHeapRaster[] planes, Color[] backgrounds, Color[] foregrounds, OffHeapRaster dest) {
+        composite(planes, backgrounds, foregrounds, uniform(planes, ChannelBlend.Multiply), dest);
+    }
+
+    /**
+     * Composites off-heap coverage planes with the "Screen" blending mode
+     * into an off-heap ARGB raster, see {@link #compositeScreen(BufferedImage[], Color[], Color[])}.
+     *
+     * @param planes Gray coverage rasters of identical dimensions.
+     * @param backgrounds Paper color of each plane.
+     * @param foregrounds Ink color of each plane.
+     * @param dest ARGB raster of the planes' dimensions that receives the result.
+     * @throws IllegalArgumentException if there are fewer than two planes, the
+     * color arrays do not match the planes, or raster dimensions or formats differ.
+     */
+    public void compositeScreen(OffHeapRaster[] planes, Color[] backgrounds, Color[] foregrounds, OffHeapRaster dest) {
+        composite(planes, backgrounds, foregrounds, uniform(planes, ChannelBlend.Screen), dest);
+    }
+
+    /**
+     * Composites off-heap coverage planes in order with a blend mode per
+     * plane into an off-heap ARGB raster, see {@link #composite(BufferedImage[], Color[], Color[], ChannelBlend[])}.
+     *
+     * @param planes Gray coverage rasters of identical dimensions.
+     * @param backgrounds Paper color of each plane.
+     * @param foregrounds Ink color of each plane.
+     * @param blends Blend mode of each plane.
+     * @param dest ARGB raster of the planes' dimensions that receives the result.
+     * @throws IllegalArgumentException if there are fewer than two planes, the
+     * color or mode arrays do not match the planes, or raster dimensions or formats differ.
+     */
+    public void composite(OffHeapRaster[] planes, Color[] backgrounds, Color[] foregrounds, ChannelBlend[] blends, OffHeapRaster dest) {
+        validateInput(planes, backgrounds, foregrounds, dest);
+
+        composite(planes, backgrounds, foregrounds, dest, screenFlags(planes, blends));
+    }
+
+    private BufferedImage composite(BufferedImage[] planes, Color[] backgrounds, Color[] foregrounds, boolean[] screen) {
+        int width = planes[0].getWidth();
+        int height = planes[0].getHeight();
+
+        // Every pixel is blended, so a pooled image needs no clearing
+        BufferedImage result = pool.acquireImage(width, height, BufferedImage.TYPE_INT_ARGB, false);
+        int[] dst = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+
+        byte[][] coverage = new byte[planes.length][];
+        int[][] luts = new int[planes.length][];
+
+        for (int i = 0; i < planes.length; i++) {
+            coverage[i] = getSamples(planes[i]);
+            luts[i] = buildLut(backgrounds[i], foregrounds[i]);
+        }
+
+        int bandRows = Math.max(1, rowsPerBand);
+
+        Scheduler.forEachRange(width * height, bandRows * width, threads, "plane compositing",
+            (from, to) -> blend(coverage, luts, dst, from, to, screen));
+
+        return result;
+    }
+
+    private void composite(OffHeapRaster[] planes, Color[] backgrounds, Color[] foregrounds, OffHeapRaster dest, boolean[] screen) {
+        int width = dest.width;
+
+        int[][] luts = new int[planes.length][];
+
+        for (int i = 0; i < planes.length; i++) {
+            luts[i] = buildLut(backgrounds[i], foregrounds[i]);
+        }
+
+        // Bands of rows are copied onto the heap, blended and copied back
+        Scheduler.forEachRange(dest.height, Math.max(1, rowsPerBand), threads, "plane compositing", (from, to) -> {
+            int pixels = (to - from) * width;
+            byte[][] coverage = new byte[planes.length][pixels];
+            int[] dst = new int[pixels];
+
+            for (int p = 0; p < planes.length; p++) {
+                planes[p].readRegion(0, from, width, to - from, coverage[p], 0);
+            }
+
+            blend(coverage, luts, dst, 0, pixels, screen);
+
+            dest.writeRegion(0, from, width, to - from, dst, 0);
+        });
+    }
+
+    /**
+     * Blends the pixel range [from, to) of all planes into dst, looking up
+     * each plane's channel color from its gray value and blending it with
+     * the plane's own mode.
+     */
+    private static void blend(byte[][] coverage, int[][] luts, int[] dst, int from, int to, boolean[] screen) {
+        int planes = coverage.length;
+
+        // The SIMD kernel covers whole vectors; the scalar loop finishes the tail
+        int start = VectorSupport.isEnabled() ? VectorKernels.composite(coverage, luts, dst, from, to, screen) : from;
+
+        for (int i = start; i < to; i++) {
+            // Blending the first plane onto this start yields the plane's own color
+            int alpha = 255;
+            int red = screen[0] ? 0 : 255;
+            int green = screen[0] ? 0 : 255;
+            int blue = screen[0] ? 0 : 255;
+
+            for (int p = 0; p < planes; p++) {
+                int argb = luts[p][coverage[p][i] & 0xFF];
+
+                if (screen[p]) {
+                    red = 255 - ImageMerger.div255((255 - red) * (255 - ((argb >> 16) & 0xFF)));
+                    green = 255 - ImageMerger.div255((255 - green) * (255 - ((argb >> 8) & 0xFF)));
+                    blue = 255 - ImageMerger.div255((255 - blue) * (255 - (argb & 0xFF)));
+                } else {
+                    red = ImageMerger.div255(red * ((argb >> 16) & 0xFF));
+                    green = ImageMerger.div255(green * ((argb >> 8) & 0xFF));
+                    blue = ImageMerger.div255(blue * (argb & 0xFF));
+                }
+
+                alpha = ImageMerger.div255(alpha * (argb >>> 24));
+            }
+
+            dst[i] = (alpha << 24) | (red << 16) | (green << 8) | blue;
+        }
+    }
+
+    /**
+     * Maps every gray value of a plane to its packed ARGB channel color.
+     */
+    private static int[] buildLut(Color background, Color foreground) {
+        int[] lut = new int[256];
+
+        for (int gray = 0; gray < 256; gray++) {
+            int cov = 255 - gray;
+
+            int a = lerp(background.getAlpha(), foreground.getAlpha(), cov);
+            int r = lerp(background.getRed(), foreground.getRed(), cov);
+            int g = lerp(background.getGreen(), foreground.getGreen(), cov);
+            int b = lerp(background.getBlue(), foreground.getBlue(), cov);
+
+            lut[gray] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+
+        return lut;
+    }
+
+    private static int lerp(int from, int to, int cov) {
+        return from + Math.round((to - from) * cov / 255.0f);
+    }
+
+    /**
+     * Returns the gray samples of a plane row after row, sharing the raster's
+     * array when it is already laid out that way.
+     */
+    private static byte[] getSamples(BufferedImage plane) {
+        Raster raster = plane.getRaster();
+        int width = plane.getWidth();
+        int height = plane.getHeight();
+
+        if (plane.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && raster.getDataBuffer() instanceof DataBufferByte buffer
+                && raster.getSampleModel() instanceof ComponentSampleModel model
+                && model.getPixelStride() == 1
+                && model.getScanlineStride() == width
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && buffer.getOffset() == 0) {
+            return buffer.getData();
+        }
+
+        // Other planes are reduced to their first band, one row at a time
+        byte[] samples = new byte[width * height];
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+
+            for (int x = 0; x < width; x++) {
+                samples[y * width + x] = (byte) row[x];
+            }
+        }
+
+        return samples;
+    }
+
+    private void validateInput(OffHeapRaster[] planes, Color[] backgrounds, Color[] foregrounds, OffHeapRaster dest) {
+        if (planes == null || planes.length < 2) {
+            throw new IllegalArgumentException(
+                "Plane array must contain at least two planes."
+            );
+        }
+
+        if (backgrounds == null || foregrounds == null
+                || backgrounds.length != planes.length || foregrounds.length != planes.length) {
+            throw new IllegalArgumentException(
+                "Each plane needs a background and a foreground color."
+            );
+        }
+
+        if (dest.bytesPerPixel != 4) {
+            throw new IllegalArgumentException(
+                "Destination raster must hold ARGB pixels."
+            );
+        }
+
+        for (OffHeapRaster plane : planes) {
+            if (plane.bytesPerPixel != 1 || plane.width != dest.width || plane.height != dest.height) {
+                throw new IllegalArgumentException(
+                    "All planes must be gray rasters of the destination's dimensions."
+                );
+            }
+        }
+    }
+
+    // The same mode for every plane; null planes are left to validateInput
+    private static ChannelBlend[] uniform(Object[] planes, ChannelBlend blend) {
+        ChannelBlend[] blends = new ChannelBlend[(planes != null) ? planes.length : 0];
+        Arrays.fill(blends, blend);
+
+        return blends;
+    }
+
+    private static boolean[] screenFlags(Object[] planes, ChannelBlend[] blends) {
+        if (blends == null || blends.length != planes.length) {
+            throw new IllegalArgumentException(
+                "Each plane needs a blend mode."
+            );
+        }
+
+        boolean[] screen = new boolean[planes.length];
+
+        for (int i = 0; i < planes.length; i++) {
+            screen[i] = blends[i] == ChannelBlend.Screen;
+        }
+
+        return screen;
+    }
+
+    private void validateInput(BufferedImage[] planes, Color[] backgrounds, Color[] foregrounds) {
+        if (planes == null || planes.length < 2) {
+            throw new IllegalArgumentException(
+                "Plane array must contain at least two planes."
+            );
+        }
+
+        if (backgrounds == null || foregrounds == null
+                || backgrounds.length != planes.length || foregrounds.length != planes.length) {
+            throw new IllegalArgumentException(
+                "Each plane needs a background and a foreground color."
+            );
+        }
+
+        int width = planes[0].getWidth();
+        int height = planes[0].getHeight();
+
+        for (BufferedImage plane : planes) {
+            if (plane.getWidth() != width || plane.getHeight() != height) {
+                throw new IllegalArgumentException(
+                    "All planes must have the same dimensions."
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package Halftone.Util;
+
+import Util.RasterPool;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+public class RenderTarget {
+    /**
+     * Creates the output image of a halftone renderer.
+     *
+     * @param width Width of the input image in pixels.
+     * @param height Height of the input image in pixels.
+     * @param imageType BufferedImage type of the output (TYPE_INT_ARGB,
+     * TYPE_BYTE_GRAY coverage plane or TYPE_BYTE_BINARY plate).
+     * @param outputScale Output pixels per input pixel along each axis.
+     * @return A new BufferedImage of (width * outputScale) × (height * outputScale).
+     */
+    public static BufferedImage create(int width, int height, int imageType, int outputScale) {
+        return create(RasterPool.NONE, width, height, imageType, outputScale);
+    }
+
+    /**
+     * Creates the output image of a halftone renderer from a pool. A reused
+     * image is cleared first, as renderers draw their background over it.
+     *
+     * @param pool Pool the image is acquired from.
+     * @param width Width of the input image in pixels.
+     * @param height Height of the input image in pixels.
+     * @param imageType BufferedImage type of the output.
+     * @param outputScale Output pixels per input pixel along each axis.
+     * @return A blank BufferedImage of (width * outputScale) × (height * outputScale).
+     */
+    public static BufferedImage create(RasterPool pool, int width, int height, int imageType, int outputScale) {
+        int scale = Math.max(1, outputScale);
+
+        return pool.acquireImage(width * scale, height * scale, imageType, true);
+    }
+
+    /**
+     * Opens a Graphics2D on a renderer output that draws in input-pixel
+     * coordinates. Binary plates are rendered without antialiasing so every
+     * pixel is decided by exact scanline coverage of the shapes.
+     *
+     * @param image Output image created by {@link #create}.
+     * @param outputScale The scale the image was created with.
+     * @return A configured Graphics2D; the caller must dispose it.
+     */
+    public static Graphics2D createGraphics(BufferedImage image, int outputScale) {
+        Graphics2D g2d = image.createGraphics();
+
+        boolean binary = image.getType() == BufferedImage.TYPE_BYTE_BINARY;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+            binary ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
+
+        if (outputScale > 1) {
+            g2d.scale(outputScale, outputScale);
+        }
+
+        return g2d;
+    }
+}
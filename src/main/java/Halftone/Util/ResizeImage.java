@@ -1,9 +1,15 @@
 package Halftone.Util;
 
-import java.awt.Graphics2D;
+import Util.RasterPool;
+
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
 
 public class ResizeImage {
+    public RasterPool pool = RasterPool.NONE; // Source of the output images
+
     /**
      * Expands the border of the given image by replicating its edge pixels.
      * The new image will be (width + (2 * kernelSize)) × (height + 
@@ -27,57 +33,30 @@ public class ResizeImage {
         int newWidth = width + 2 * kernelSize;
         int newHeight = height + 2 * kernelSize;
 
-        BufferedImage output = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = output.createGraphics();
-
-        // Draw the original image at offset (kernelSize, kernelSize)
-        g2d.drawImage(input, kernelSize, kernelSize, null);
-
-        // Fill top and bottom borders by repeating the first/last row pixels
-        for (int x = 0; x < width; x++) {
-            int topPixel = input.getRGB(x, 0);
-            int bottomPixel = input.getRGB(x, height - 1);
-            for (int y = 0; y < kernelSize; y++) {
-                // Top border
-                output.setRGB(x + kernelSize, y, topPixel);
-                // Bottom border
-                output.setRGB(x + kernelSize, newHeight - y - 1, bottomPixel);
-            }
-        }
+        // Every pixel is written below, so a pooled image needs no clearing
+        BufferedImage output = pool.acquireImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB, false);
+        int[] out = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
+
+        // Read the original image straight into the center of the output buffer
+        input.getRGB(0, 0, width, height, out, kernelSize * newWidth + kernelSize, newWidth);
 
         // Fill left and right borders by repeating the first/last column pixels
-        for (int y = 0; y < height; y++) {
-            int leftPixel = input.getRGB(0, y);
-            int rightPixel = input.getRGB(width - 1, y);
-            for (int x = 0; x < kernelSize; x++) {
-                // Left border
-                output.setRGB(x, y + kernelSize, leftPixel);
-                // Right border
-                output.setRGB(newWidth - x - 1, y + kernelSize, rightPixel);
-            }
+        for (int y = kernelSize; y < kernelSize + height; y++) {
+            int row = y * newWidth;
+
+            Arrays.fill(out, row, row + kernelSize, out[row + kernelSize]);
+            Arrays.fill(out, row + kernelSize + width, row + newWidth, out[row + kernelSize + width - 1]);
         }
 
-        // Fill corner regions by repeating the corresponding corner pixel
-        int topLeftPixel = input.getRGB(0, 0);
-        int topRightPixel = input.getRGB(width - 1, 0);
-        int bottomLeftPixel = input.getRGB(0, height - 1);
-        int bottomRightPixel = input.getRGB(width - 1, height - 1);
-
-        for (int x = 0; x < kernelSize; x++) {
-            for (int y = 0; y < kernelSize; y++) {
-                // Top-left corner
-                output.setRGB(x, y, topLeftPixel);
-                // Top-right corner
-                output.setRGB(newWidth - x - 1, y, topRightPixel);
-                // Bottom-left corner
-                output.setRGB(x, newHeight - y - 1, bottomLeftPixel);
-                // Bottom-right corner
-                output.setRGB(newWidth - x - 1, newHeight - y - 1, bottomRightPixel);
-            }
+        // Fill top and bottom borders (corners included) by repeating the first/last full rows
+        int firstRow = kernelSize * newWidth;
+        int lastRow = (kernelSize + height - 1) * newWidth;
+
+        for (int y = 0; y < kernelSize; y++) {
+            System.arraycopy(out, firstRow, out, y * newWidth, newWidth);
+            System.arraycopy(out, lastRow, out, (newHeight - y - 1) * newWidth, newWidth);
         }
 
-        g2d.dispose();
-        
         return output;
     }
 
@@ -90,7 +69,8 @@ public class ResizeImage {
      * @param input The BufferedImage with an existing border.
      * @param kernelSize The thickness of the border to remove (in pixels).
      * @return A new BufferedImage with borders removed, restoring original
-     * dimensions.
+     * dimensions. Palette (TYPE_BYTE_INDEXED) and 1-bit (TYPE_BYTE_BINARY)
+     * images keep their type and palette.
      * @throws IllegalArgumentException if kernelSize is too large for the
      * input dimensions.
      */
@@ -110,15 +90,20 @@ public class ResizeImage {
             );
         }
 
-        BufferedImage output = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
+        // Palette and 1-bit images keep their type and palette; the indices are copied as-is
+        if (input.getColorModel() instanceof IndexColorModel palette) {
+            BufferedImage output = new BufferedImage(newWidth, newHeight, input.getType(), palette);
+            output.getRaster().setRect(-kernelSize, -kernelSize, input.getRaster());
 
-        for (int y = 0; y < newHeight; y++) {
-            for (int x = 0; x < newWidth; x++) {
-                int rgb = input.getRGB(x + kernelSize, y + kernelSize);
-                output.setRGB(x, y, rgb);
-            }
+            return output;
         }
 
+        BufferedImage output = pool.acquireImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB, false);
+        int[] out = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
+
+        // Copy the inner region row by row into the output buffer
+        input.getRGB(kernelSize, kernelSize, newWidth, newHeight, out, 0, newWidth);
+
         return output;
     }
 }
\ No newline at end of file
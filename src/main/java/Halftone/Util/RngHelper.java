@@ -4,62 +4,60 @@ import Data.ConfigData;
 import java.util.Random;
 
 /**
- * Helper class for Random Number Generation using ConfigData seed.
+ * Per-job random number context built from a ConfigData seed.
+ *
+ * Each job owns its own instance and hands it to the pattern generators, so
+ * jobs with different seeds can run at the same time without sharing state.
  */
-public class RngHelper {
-    private static ConfigData currentConfig = null;
-    private static Random rngInstance = null;
-    
-    private RngHelper() {
-        // Prevent instantiation
-    }
-    
+public final class RngHelper {
     /**
-     * Initialize RNG with the given configuration.
-     * Must be called before using getRng() or getNewRng().
-     * 
-     * @param config Configuration containing RNG seed
+     * Context with the seed of a default configuration, used by generators
+     * that were not given one.
+     */
+    public static final RngHelper DEFAULT = new RngHelper(new ConfigData().rngSeed);
+
+    public final long seed;
+
+    /**
+     * @param seed Seed of every sequence created by this context.
      */
-    public static void initialize(ConfigData config) {
-        currentConfig = config;
-        rngInstance = new Random(config.rngSeed);
+    public RngHelper(long seed) {
+        this.seed = seed;
     }
-    
+
     /**
-     * Returns the shared Random instance using the configured seed.
-     * This RNG is global and stateful: each call to next() advances its sequence.
-     * 
-     * @return Shared Random instance
-     * @throws IllegalStateException if initialize() was not called
+     * Creates the context of a configuration.
+     *
+     * @param config Configuration containing RNG seed
+     * @return Context using the configuration's seed
      */
-    public static Random getRng() {
-        if (rngInstance == null) {
-            throw new IllegalStateException("RngHelper not initialized. Call initialize(config) first.");
-        }
-        return rngInstance;
+    public static RngHelper of(ConfigData config) {
+        return new RngHelper(config.rngSeed);
     }
-    
+
     /**
-     * Returns a new Random instance initialized with the configured seed.
+     * Returns a new Random instance initialized with the context's seed.
      * This ensures identical reproducible sequences regardless of prior RNG usage.
-     * 
-     * @return New Random instance with the configured seed
-     * @throws IllegalStateException if initialize() was not called
+     *
+     * @return New Random instance with the context's seed
      */
-    public static Random getNewRng() {
-        if (currentConfig == null) {
-            throw new IllegalStateException("RngHelper not initialized. Call initialize(config) first.");
-        }
-        return new Random(currentConfig.rngSeed);
+    public Random getNewRng() {
+        return new Random(seed);
     }
-    
+
     /**
-     * Reset the RNG instance to its initial state using the current seed.
-     * Useful for restarting reproducible sequences.
+     * Returns a Random instance for one kernel of the grid, derived from the
+     * context's seed and the kernel's position. Unlike the single sequence of
+     * {@link #getNewRng()}, its values do not depend on the kernels drawn
+     * before it, so separately rendered tiles produce the same values.
+     *
+     * @param row Kernel row in the grid.
+     * @param col Kernel column in the grid.
+     * @return New Random instance for that kernel
      */
-    public static void reset() {
-        if (currentConfig != null) {
-            rngInstance = new Random(currentConfig.rngSeed);
-        }
+    public Random getKernelRng(int row, int col) {
+        long position = ((long) row << 32) | (col & 0xffffffffL);
+
+        return new Random(seed ^ (position * 0x9E3779B97F4A7C15L));
     }
-}
\ No newline at end of file
+}
@@ -136,7 +136,7 @@ public class StipplingDensityTester {
                 id = new ImageData(expanded, kernelSize, ANGLE);
                 
                 avgRef = TestMethods.applyAvgColorsTest(expanded, ANGLE, kernelSize, id);
-                stippled = dotGen.applyStipplingPattern(expanded, kernelSize, id, density);
+                stippled = dotGen.applyStipplingPattern(kernelSize, id, density);
 
                 double delta = computeDifference(stippled, avgRef, kernelSize);
 
@@ -0,0 +1,58 @@
+package Halftone.Util;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+public class TwoTonePalette {
+    /**
+     * Builds a 256-entry palette that blends from the background color at
+     * index 255 to the foreground color at index 0, matching the gray values
+     * of a black-on-white coverage plane.
+     *
+     * @param background Color of uncovered (white) pixels.
+     * @param foreground Color of fully covered (black) pixels.
+     * @return An 8-bit IndexColorModel with alpha.
+     */
+    public static IndexColorModel createPalette(Color background, Color foreground) {
+        byte[] r = new byte[256];
+        byte[] g = new byte[256];
+        byte[] b = new byte[256];
+        byte[] a = new byte[256];
+
+        for (int gray = 0; gray < 256; gray++) {
+            double t = (255 - gray) / 255.0;
+
+            r[gray] = (byte) lerp(background.getRed(), foreground.getRed(), t);
+            g[gray] = (byte) lerp(background.getGreen(), foreground.getGreen(), t);
+            b[gray] = (byte) lerp(background.getBlue(), foreground.getBlue(), t);
+            a[gray] = (byte) lerp(background.getAlpha(), foreground.getAlpha(), t);
+        }
+
+        return new IndexColorModel(8, 256, r, g, b, a);
+    }
+
+    /**
+     * Reinterprets a TYPE_BYTE_GRAY coverage plane as a TYPE_BYTE_INDEXED
+     * image with a two-tone palette. The pixel data is shared, not copied.
+     *
+     * @param plane Black-on-white coverage plane of type TYPE_BYTE_GRAY.
+     * @param background Color of uncovered pixels.
+     * @param foreground Color of fully covered pixels.
+     * @return A palette image backed by the plane's raster.
+     * @throws IllegalArgumentException if the plane is not TYPE_BYTE_GRAY.
+     */
+    public static BufferedImage toIndexed(BufferedImage plane, Color background, Color foreground) {
+        if (plane.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            throw new IllegalArgumentException(
+                "Coverage plane must be of type TYPE_BYTE_GRAY."
+            );
+        }
+
+        return new BufferedImage(createPalette(background, foreground), plane.getRaster(), false, null);
+    }
+
+    private static int lerp(int from, int to, double t) {
+        return (int) Math.round(from + (to - from) * t);
+    }
+}
@@ -0,0 +1,216 @@
+package Util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Keeps released pixel buffers of a job for reuse by its next images.
+ *
+ * A batch usually holds images of the same size, so every image allocates
+ * the same multi-megabyte rasters (expanded input, coverage planes, merged
+ * and cropped output, decode bands). Without reuse each of them survives
+ * long enough to be promoted and is then collected from the old generation.
+ * Stages acquire their buffers here instead and release them once consumed;
+ * an acquire returns a released buffer of exactly the same size (and image
+ * type) if there is one, and allocates a new one otherwise.
+ *
+ * Retention is bounded: once the idle buffers exceed the byte budget, the
+ * ones released longest ago are dropped and left to the garbage collector.
+ * Only TYPE_INT_ARGB, TYPE_INT_RGB and TYPE_BYTE_GRAY images are pooled;
+ * palette images (1-bit plates included) are ignored on release. The pool
+ * is thread-safe. A buffer must not be used after it was released, and must
+ * be released at most once.
+ */
+public class RasterPool {
+    // Retains nothing: every acquire allocates and every release is dropped
+    public static final RasterPool NONE = new RasterPool(0);
+
+    private static final int INT_ARRAY = -1;
+    private static final int BYTE_ARRAY = -2;
+
+    private record Key(int kind, int width, int height) {} // Kind: image type or array kind
+    private record Entry(Key key, Object buffer, long bytes) {}
+
+    private final long maxRetainedBytes;
+    private final Deque<Entry> idle = new ArrayDeque<>(); // Least recently released first
+
+    private long retainedBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maxRetainedBytes Bytes of idle buffers kept at most.
+     */
+    public RasterPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = Math.max(0, maxRetainedBytes);
+    }
+
+    /**
+     * @param length Number of elements.
+     * @return An int array of the length; a reused one holds stale values.
+     */
+    public int[] acquireInts(int length) {
+        Object buffer = take(new Key(INT_ARRAY, length, 1));
+
+        return (buffer != null) ? (int[]) buffer : new int[length];
+    }
+
+    /**
+     * @param length Number of elements.
+     * @return A byte array of the length; a reused one holds stale values.
+     */
+    public byte[] acquireBytes(int length) {
+        Object buffer = take(new Key(BYTE_ARRAY, length, 1));
+
+        return (buffer != null) ? (byte[]) buffer : new byte[length];
+    }
+
+    /**
+     * Acquires an image of a pooled type.
+     *
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @param imageType TYPE_INT_ARGB, TYPE_INT_RGB or TYPE_BYTE_GRAY; other types are always allocated.
+     * @param clear If true, a reused image is zeroed like a new one; leave it
+     * false if the caller overwrites every pixel.
+     * @return The image.
+     */
+    public BufferedImage acquireImage(int width, int height, int imageType, boolean clear) {
+        Object buffer = isPooledType(imageType) ? take(new Key(imageType, width, height)) : null;
+
+        if (buffer == null) {
+            return new BufferedImage(width, height, imageType);
+        }
+
+        BufferedImage image = (BufferedImage) buffer;
+
+        if (clear) {
+            if (image.getRaster().getDataBuffer() instanceof DataBufferInt ints) {
+                Arrays.fill(ints.getData(), 0);
+            } else {
+                Arrays.fill(((DataBufferByte) image.getRaster().getDataBuffer()).getData(), (byte) 0);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns an array to the pool. Null is ignored.
+     */
+    public void release(int[] buffer) {
+        if (buffer != null) {
+            put(new Key(INT_ARRAY, buffer.length, 1), buffer, 4L * buffer.length);
+        }
+    }
+
+    /**
+     * Returns an array to the pool. Null is ignored.
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null) {
+            put(new Key(BYTE_ARRAY, buffer.length, 1), buffer, buffer.length);
+        }
+    }
+
+    /**
+     * Returns an image to the pool. Null, palette images and images that
+     * share their raster with another image (subimages) are ignored.
+     */
+    public void release(BufferedImage image) {
+        if (image == null || !isPooledType(image.getType())) return;
+
+        WritableRaster raster = image.getRaster();
+
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) return;
+
+        long bytes = (long) image.getWidth() * image.getHeight() * ((image.getType() == BufferedImage.TYPE_BYTE_GRAY) ? 1 : 4);
+
+        put(new Key(image.getType(), image.getWidth(), image.getHeight()), image, bytes);
+    }
+
+    /**
+     * @return Bytes of idle buffers currently kept.
+     */
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return Acquires served with a released buffer.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Acquires that had to allocate.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Drops every idle buffer.
+     */
+    public synchronized void clear() {
+        idle.clear();
+        retainedBytes = 0;
+    }
+
+    private static boolean isPooledType(int imageType) {
+        return imageType == BufferedImage.TYPE_INT_ARGB
+            || imageType == BufferedImage.TYPE_INT_RGB
+            || imageType == BufferedImage.TYPE_BYTE_GRAY;
+    }
+
+    // Removes the most recently released buffer of the key, or returns null
+    private Object take(Key key) {
+        if (maxRetainedBytes == 0) return null;
+
+        synchronized (this) {
+            Iterator<Entry> iterator = idle.descendingIterator();
+
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+
+                if (entry.key.equals(key)) {
+                    iterator.remove();
+                    retainedBytes -= entry.bytes;
+                    hits++;
+
+                    return entry.buffer;
+                }
+            }
+
+            misses++;
+
+            return null;
+        }
+    }
+
+    private void put(Key key, Object buffer, long bytes) {
+        if (bytes > maxRetainedBytes) return;
+
+        synchronized (this) {
+            // A buffer released twice would be handed out twice
+            for (Entry entry : idle) {
+                if (entry.buffer == buffer) return;
+            }
+
+            idle.addLast(new Entry(key, buffer, bytes));
+            retainedBytes += bytes;
+
+            // Drop the buffers released longest ago until the rest fit the budget
+            while (retainedBytes > maxRetainedBytes) {
+                retainedBytes -= idle.removeFirst().bytes;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Engine-wide work-stealing scheduler shared by all parallel passes.
+ *
+ * Every parallel stage (channels, flow line tiles, streamline regions,
+ * geometry batches, merge and conversion bands) submits its tasks to one
+ * ForkJoinPool instead of creating a thread pool per call. Tasks submitted
+ * from inside the pool are forked onto the calling worker's own queue, so a
+ * worker waiting for its subtasks runs or steals them instead of blocking,
+ * and idle workers pick up the bands of whichever stage still has work.
+ *
+ * The pool is created on first use with {@link #parallelism} workers and
+ * lives as long as the application: concurrent jobs share it, so no job or
+ * batch tears it down. {@link #shutdown()} is called when the application
+ * exits. Workers are daemon threads and never keep the application alive.
+ */
+public class Scheduler {
+    /**
+     * Number of worker threads of the pool. Changes take effect when the pool
+     * is created, i.e. on first use.
+     */
+    public static int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private static ForkJoinPool pool;
+
+    /**
+     * @return The shared pool, created on first use.
+     */
+    public static synchronized ForkJoinPool pool() {
+        if (pool == null || pool.isShutdown()) {
+            pool = new ForkJoinPool(Math.max(1, parallelism), new WorkerFactory(), null, false);
+        }
+
+        return pool;
+    }
+
+    /**
+     * @return The number of workers of the shared pool.
+     */
+    public static int parallelism() {
+        return pool().getParallelism();
+    }
+
+    /**
+     * Stops accepting new work and lets running tasks finish. Called once
+     * when the application exits; a job still submitting work would have it
+     * rejected or split across a fresh pool, so jobs never call it.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Schedules a single task. From a worker of the shared pool the task is
+     * forked onto that worker's queue, otherwise it is submitted externally.
+     *
+     * @param task The task to run.
+     * @param <T> task result type
+     * @return The scheduled task, to be waited on with {@link #await(ForkJoinTask, String)}.
+     */
+    public static <T> ForkJoinTask<T> submit(Callable<T> task) {
+        ForkJoinPool shared = pool();
+        ForkJoinTask<T> forkJoinTask = ForkJoinTask.adapt(task);
+
+        if (ForkJoinTask.getPool() == shared) {
+            forkJoinTask.fork();
+        } else {
+            shared.execute(forkJoinTask);
+        }
+
+        return forkJoinTask;
+    }
+
+    /**
+     * Waits for a task scheduled with {@link #submit(Callable)}.
+     *
+     * @param task The scheduled task.
+     * @param label Lower-case description of the stage, used in error messages.
+     * @param <T> task result type
+     * @return The task result.
+     * @throws RuntimeException if the wait is interrupted or the task failed.
+     */
+    public static <T> T await(ForkJoinTask<T> task, String label) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException(capitalize(label) + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error during " + label, e.getCause());
+        }
+    }
+
+    /**
+     * Runs all tasks on the shared pool and waits for them.
+     *
+     * @param tasks The tasks to run.
+     * @param label Lower-case description of the stage, used in error messages.
+     * @param <T> task result type
+     * @return The task results, in task order.
+     * @throws RuntimeException if the wait is interrupted or any task failed;
+     * tasks that have not started yet are cancelled.
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, String label) {
+        List<ForkJoinTask<T>> scheduled = new ArrayList<>(tasks.size());
+
+        for (Callable<T> task : tasks) {
+            scheduled.add(submit(task));
+        }
+
+        Object[] results = new Object[scheduled.size()];
+
+        try {
+            // Joining the most recently forked task first lets a worker run its
+            // own queue in place; older tasks are the ones other workers steal
+            for (int i = scheduled.size() - 1; i >= 0; i--) {
+                results[i] = scheduled.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            cancelAll(scheduled);
+
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException(capitalize(label) + " interrupted", e);
+        } catch (ExecutionException e) {
+            cancelAll(scheduled);
+
+            throw new RuntimeException("Error during " + label, e.getCause());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+
+        return list;
+    }
+
+    /**
+     * Runs [0, length) split into consecutive ranges of at most chunk
+     * elements on the shared pool. Runs inline when there is only one range
+     * or parallel work is disabled by threads &lt;= 1.
+     *
+     * @param length Number of elements.
+     * @param chunk Maximum number of elements per task.
+     * @param threads Parallelism requested by the caller.
+     * @param label Lower-case description of the stage, used in error messages.
+     * @param task The work for one range.
+     */
+    public static void forEachRange(int length, int chunk, int threads, String label, RangeTask task) {
+        int size = Math.max(1, chunk);
+        int ranges = (length + size - 1) / size;
+
+        if (threads <= 1 || ranges <= 1) {
+            task.run(0, length);
+
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>(ranges);
+
+        for (int from = 0; from < length; from += size) {
+            final int start = from;
+            final int end = Math.min(length, from + size);
+
+            tasks.add(() -> {
+                task.run(start, end);
+
+                return null;
+            });
+        }
+
+        invokeAll(tasks, label);
+    }
+
+    /**
+     * Work on the element range [from, to).
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private static void cancelAll(List<? extends ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    private static String capitalize(String label) {
+        return label.isEmpty() ? label : Character.toUpperCase(label.charAt(0)) + label.substring(1);
+    }
+
+    private static class WorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("halftone-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package Util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the per-pixel hot loops, built on the incubating Vector
+ * API. Only touch this class when {@link VectorSupport#isEnabled()} is true,
+ * otherwise it fails to load.
+ *
+ * Every kernel processes whole vectors from the start of the range and
+ * returns the index of the first pixel it did not process; the caller
+ * finishes the tail with its scalar loop. Results are bit-identical to the
+ * scalar loops.
+ */
+public class VectorKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    // Byte species with one lane per int lane; there is no 32-bit shape, so 128-bit machines go without
+    private static final VectorSpecies<Byte> BYTES = INTS.vectorBitSize() >= 256
+        ? VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.vectorBitSize() / 4))
+        : null;
+
+    /**
+     * Multiply or screen blend of packed ARGB buffers, see ImageMerger.
+     *
+     * @return Index of the first pixel left for the scalar loop.
+     */
+    public static int blend(int[][] src, int[] dst, int from, int to, boolean screen) {
+        int lanes = INTS.length();
+        int upper = from + INTS.loopBound(to - from);
+        IntVector full = IntVector.broadcast(INTS, 255);
+
+        int i = from;
+
+        for (; i < upper; i += lanes) {
+            IntVector alpha = full;
+            IntVector red = screen ? IntVector.zero(INTS) : full;
+            IntVector green = red;
+            IntVector blue = red;
+
+            for (int[] pixels : src) {
+                IntVector argb = IntVector.fromArray(INTS, pixels, i);
+
+                red = blendChannel(red, argb.lanewise(VectorOperators.LSHR, 16).and(0xff), full, screen);
+                green = blendChannel(green, argb.lanewise(VectorOperators.LSHR, 8).and(0xff), full, screen);
+                blue = blendChannel(blue, argb.and(0xff), full, screen);
+                alpha = div255(alpha.mul(argb.lanewise(VectorOperators.LSHR, 24)));
+            }
+
+            pack(alpha, red, green, blue).intoArray(dst, i);
+        }
+
+        return i;
+    }
+
+    /**
+     * Multiply or screen blend of gray coverage planes through per-plane
+     * ARGB lookup tables, each plane with its own mode, see PlaneCompositor.
+     *
+     * @return Index of the first pixel left for the scalar loop.
+     */
+    public static int composite(byte[][] coverage, int[][] luts, int[] dst, int from, int to, boolean[] screen) {
+        if (BYTES == null) return from;
+
+        int lanes = INTS.length();
+        int upper = from + INTS.loopBound(to - from);
+        IntVector full = IntVector.broadcast(INTS, 255);
+        int[] indices = new int[lanes];
+
+        int i = from;
+
+        for (; i < upper; i += lanes) {
+            IntVector alpha = full;
+            // Blending the first plane onto this start yields the plane's own color
+            IntVector red = screen[0] ? IntVector.zero(INTS) : full;
+            IntVector green = red;
+            IntVector blue = red;
+
+            for (int p = 0; p < coverage.length; p++) {
+                ByteVector gray = ByteVector.fromArray(BYTES, coverage[p], i);
+                ((IntVector) gray.convertShape(VectorOperators.B2I, INTS, 0)).and(0xff).intoArray(indices, 0);
+
+                IntVector argb = IntVector.fromArray(INTS, luts[p], 0, indices, 0);
+
+                red = blendChannel(red, argb.lanewise(VectorOperators.LSHR, 16).and(0xff), full, screen[p]);
+                green = blendChannel(green, argb.lanewise(VectorOperators.LSHR, 8).and(0xff), full, screen[p]);
+                blue = blendChannel(blue, argb.and(0xff), full, screen[p]);
+                alpha = div255(alpha.mul(argb.lanewise(VectorOperators.LSHR, 24)));
+            }
+
+            pack(alpha, red, green, blue).intoArray(dst, i);
+        }
+
+        return i;
+    }
+
+    /**
+     * Weighted-sum luminance into 8-bit gray levels, see Grayscale.
+     *
+     * @return Index of the first pixel left for the scalar loop.
+     */
+    public static int luminance(int[] argb, int from, int to, byte[] out, int wr, int wg, int wb) {
+        if (BYTES == null) return from;
+
+        int lanes = INTS.length();
+        int upper = from + INTS.loopBound(to - from);
+
+        int i = from;
+
+        for (; i < upper; i += lanes) {
+            IntVector gray = weightedGray(IntVector.fromArray(INTS, argb, i), wr, wg, wb);
+
+            ((ByteVector) gray.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(out, i);
+        }
+
+        return i;
+    }
+
+    /**
+     * Weighted-sum luminance into packed gray ARGB pixels that keep their
+     * alpha, see Grayscale.
+     *
+     * @return Index of the first pixel left for the scalar loop.
+     */
+    public static int grayArgb(int[] argb, int from, int to, int[] out, int wr, int wg, int wb) {
+        int lanes = INTS.length();
+        int upper = from + INTS.loopBound(to - from);
+
+        int i = from;
+
+        for (; i < upper; i += lanes) {
+            IntVector pixel = IntVector.fromArray(INTS, argb, i);
+            IntVector gray = weightedGray(pixel, wr, wg, wb);
+
+            pixel.and(0xff000000)
+                .or(gray.lanewise(VectorOperators.LSHL, 16))
+                .or(gray.lanewise(VectorOperators.LSHL, 8))
+                .or(gray)
+                .intoArray(out, i);
+        }
+
+        return i;
+    }
+
+    //---------------------- Helper Methods ----------------------
+
+    // Folds one layer's channel into the accumulated channel
+    private static IntVector blendChannel(IntVector acc, IntVector value, IntVector full, boolean screen) {
+        if (screen) {
+            return full.sub(div255(full.sub(acc).mul(full.sub(value))));
+        }
+
+        return div255(acc.mul(value));
+    }
+
+    private static IntVector pack(IntVector alpha, IntVector red, IntVector green, IntVector blue) {
+        return alpha.lanewise(VectorOperators.LSHL, 24)
+            .or(red.lanewise(VectorOperators.LSHL, 16))
+            .or(green.lanewise(VectorOperators.LSHL, 8))
+            .or(blue);
+    }
+
+    // Same fixed-point reciprocal as ImageMerger.div255
+    private static IntVector div255(IntVector value) {
+        return value.mul(0x8081).lanewise(VectorOperators.LSHR, 23);
+    }
+
+    private static IntVector weightedGray(IntVector argb, int wr, int wg, int wb) {
+        IntVector r = argb.lanewise(VectorOperators.LSHR, 16).and(0xff);
+        IntVector g = argb.lanewise(VectorOperators.LSHR, 8).and(0xff);
+        IntVector b = argb.and(0xff);
+
+        return r.mul(wr).add(g.mul(wg)).add(b.mul(wb)).lanewise(VectorOperators.LSHR, 16);
+    }
+}
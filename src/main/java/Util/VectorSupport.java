@@ -0,0 +1,24 @@
+package Util;
+
+public class VectorSupport {
+    /**
+     * True when the JVM was started with the incubating Vector API module
+     * (--add-modules jdk.incubator.vector).
+     */
+    public static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Selects the SIMD kernels in {@link VectorKernels} for the per-pixel
+     * passes. Defaults to on when the module is present; start with
+     * -Dhalftone.vector=false (or clear this flag) to run the scalar loops
+     * for comparison.
+     */
+    public static boolean enabled = !"false".equalsIgnoreCase(System.getProperty("halftone.vector"));
+
+    /**
+     * @return True if the SIMD kernels should be used.
+     */
+    public static boolean isEnabled() {
+        return enabled && AVAILABLE;
+    }
+}
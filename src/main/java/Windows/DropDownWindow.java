@@ -3,12 +3,17 @@ package Windows;
 import Data.ConfigData;
 import Data.OpType;
 import Data.TYPE;
+import FileManager.PnmReader;
+import Halftone.BatchPipeline;
 import Halftone.Operations;
+import Util.Scheduler;
 import Windows.Util.UI.*;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.datatransfer.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -19,7 +24,8 @@ import static Windows.Util.UI.UIConstants.*;
 /**
  * Main application window.
  * Accepts image files via drag-and-drop, exposes halftone configuration controls,
- * and dispatches processing to {@link Operations} on a background thread.
+ * and dispatches processing to {@link Operations} on a background thread
+ * through a {@link BatchPipeline}.
  */
 public class DropDownWindow {
     private JFrame frame;
@@ -68,6 +74,14 @@ public class DropDownWindow {
         frame.setResizable(false);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setLayout(new BorderLayout());
+
+        // The shared scheduler lives as long as the application; release its workers on exit
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                Scheduler.shutdown();
+            }
+        });
     }
 
     // Creates the central drop area label and attaches the file drag-and-drop handler
@@ -220,8 +234,8 @@ public class DropDownWindow {
                     for (File file : files) {
                         String name = file.getName().toLowerCase();
 
-                        if (!name.endsWith(".png") && !name.endsWith(".jpg") && !name.endsWith(".jpeg")) {
-                            WindowHelper.showError(frame, "Incorrect image format, use: png, jpg or jpeg");
+                        if (!name.endsWith(".png") && !name.endsWith(".jpg") && !name.endsWith(".jpeg") && !PnmReader.isPnm(name)) {
+                            WindowHelper.showError(frame, "Incorrect image format, use: png, jpg, jpeg, pgm, ppm, pnm or pam");
                             return false;
                         }
                     }
@@ -260,8 +274,8 @@ public class DropDownWindow {
         advancedConfigButton.setEnabled(enabled);
     }
 
-    // Processes a list of image files sequentially on a background thread,
-    // updating the drop label with progress and handling per-file errors
+    // Processes a list of image files on a background thread through the batch
+    // pipeline, updating the drop label with progress and handling per-file errors
     private void processFiles(List<File> files) {
         final int total = files.size();
         dropLabel.setText("LOADING (1/" + total + ")");
@@ -270,29 +284,17 @@ public class DropDownWindow {
         SwingWorker<Void, Integer> worker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() throws InterruptedException, InvocationTargetException {
-                Operations op = new Operations(config);
-
-                for (int i = 0; i < total; i++) {
-                    final File file = files.get(i);
-                    final int num = i + 1;
-
-                    try {
-                        op.startProcess(file.getPath());
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
+                BatchPipeline pipeline = new BatchPipeline(new Operations(config));
 
-                        // Show error on the EDT and abort the batch
-                        SwingUtilities.invokeAndWait(() ->
-                            WindowHelper.showError(frame, "Error processing file (" + num + "/" + total + "): " + file.getName())
-                        );
-
-                        break;
-                    }
-
-                    // Stop the batch early if the user chose to skip remaining images
-                    if (!op.save && op.skip) break;
-
-                    publish(i + 2);
+                try {
+                    pipeline.run(files, done -> publish(Math.min(done + 1, total)));
+                } catch (BatchPipeline.FileException ex) {
+                    ex.printStackTrace();
+
+                    // Show error on the EDT and abort the batch
+                    SwingUtilities.invokeAndWait(() ->
+                        WindowHelper.showError(frame, "Error processing file (" + (ex.index + 1) + "/" + total + "): " + ex.file.getName())
+                    );
                 }
 
                 return null;
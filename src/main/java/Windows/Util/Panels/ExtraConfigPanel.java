@@ -1,19 +1,50 @@
 package Windows.Util.Panels;
 
 import Data.ConfigData;
+import Data.PngFilter;
+import Data.PngPreset;
+import FileManager.TiledTiffWriter;
 import Windows.Util.ConfigPanel;
 import Windows.Util.UI.*;
 
 import javax.swing.*;
 
+import static Windows.Util.UI.UIConstants.*;
+
 /**
  * Configuration panel for miscellaneous global settings.
- * Handles RNG seed input and debug image generation toggle.
+ * Handles RNG seed input, the indexed, plate, tiled, streamed and off-heap
+ * output toggles, disk-backed raster settings, PNG compression settings, the streamed input and fast analysis
+ * toggles and debug image generation toggle.
  */
 public class ExtraConfigPanel extends ConfigPanel {
     private JTextField seedField;
     private JButton debugToggle;
     private boolean debugState;
+    private JButton indexedToggle;
+    private boolean indexedState;
+    private JButton plateToggle;
+    private boolean plateState;
+    private JTextField plateScaleField;
+    private JButton streamingToggle;
+    private boolean streamingState;
+    private JButton fastAnalysisToggle;
+    private boolean fastAnalysisState;
+    private JTextField errorBudgetField;
+    private JButton tiledToggle;
+    private boolean tiledState;
+    private JTextField tileSizeField;
+    private JButton bandedToggle;
+    private boolean bandedState;
+    private JButton offHeapToggle;
+    private boolean offHeapState;
+    private JButton diskBackedToggle;
+    private boolean diskBackedState;
+    private JTextField scratchDirectoryField;
+    private JTextField residentField;
+    private JComboBox<PngPreset> pngPresetComboBox;
+    private JTextField pngLevelField;
+    private JComboBox<PngFilter> pngFilterComboBox;
 
     /**
      * Initializes the panel with existing configuration values.
@@ -23,6 +54,14 @@ public class ExtraConfigPanel extends ConfigPanel {
     public ExtraConfigPanel(ConfigData config) {
         super(config);
         this.debugState = config.debugState;
+        this.indexedState = config.indexedOutput;
+        this.plateState = config.plateOutput;
+        this.streamingState = config.streamingInput;
+        this.fastAnalysisState = config.fastAnalysis;
+        this.tiledState = config.tiledOutput;
+        this.bandedState = config.streamingOutput;
+        this.offHeapState = config.offHeapRasters;
+        this.diskBackedState = config.diskBackedRasters;
     }
 
     /**
@@ -46,6 +85,179 @@ public class ExtraConfigPanel extends ConfigPanel {
         contentPanel.add(PanelHelper.createDivider());
         contentPanel.add(PanelHelper.createVerticalSpace(20));
 
+        // === OUTPUT SECTION ===
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Two-Tone Palette Output (Grayscale mode, smaller files):",
+            availableWidth
+        ));
+
+        Object[] indexedComponents = ButtonHelper.createToggleButton(
+            indexedState,
+            () -> indexedState = !indexedState
+        );
+
+        indexedToggle = (JButton) indexedComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Indexed:", indexedToggle));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "1-Bit Plate Output (Grayscale mode, G4 TIFF, no antialiasing):",
+            availableWidth
+        ));
+
+        Object[] plateComponents = ButtonHelper.createToggleButton(
+            plateState,
+            () -> plateState = !plateState
+        );
+
+        plateToggle = (JButton) plateComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Plate:", plateToggle));
+
+        plateScaleField = TextFieldHelper.createBorderedTextField(String.valueOf(config.plateScale), 200, 30);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Upscale:", plateScaleField));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Tiled BigTIFF Output (Grayscale mode, very large images, saved without preview):",
+            availableWidth
+        ));
+
+        Object[] tiledComponents = ButtonHelper.createToggleButton(
+            tiledState,
+            () -> tiledState = !tiledState
+        );
+
+        tiledToggle = (JButton) tiledComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Tiled:", tiledToggle));
+
+        tileSizeField = TextFieldHelper.createBorderedTextField(String.valueOf(config.tileSize), 200, 30);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Tile Size:", tileSizeField));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Streamed PNG Output (Grayscale mode, encodes while rendering, saved without preview):",
+            availableWidth
+        ));
+
+        Object[] bandedComponents = ButtonHelper.createToggleButton(
+            bandedState,
+            () -> bandedState = !bandedState
+        );
+
+        bandedToggle = (JButton) bandedComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Streamed:", bandedToggle));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Off-Heap Rasters (very large outputs, memory freed after each image):",
+            availableWidth
+        ));
+
+        Object[] offHeapComponents = ButtonHelper.createToggleButton(
+            offHeapState,
+            () -> offHeapState = !offHeapState
+        );
+
+        offHeapToggle = (JButton) offHeapComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Off-Heap:", offHeapToggle));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Disk-Backed Rasters (memory-mapped scratch files, empty directory = system temp, resident MB):",
+            availableWidth
+        ));
+
+        Object[] diskBackedComponents = ButtonHelper.createToggleButton(
+            diskBackedState,
+            () -> diskBackedState = !diskBackedState
+        );
+
+        diskBackedToggle = (JButton) diskBackedComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Disk-Backed:", diskBackedToggle));
+
+        scratchDirectoryField = TextFieldHelper.createBorderedTextField(config.scratchDirectory, 200, 30);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Scratch Dir:", scratchDirectoryField));
+
+        residentField = TextFieldHelper.createBorderedTextField(String.valueOf(config.residentTileMegabytes), 200, 30);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Resident:", residentField));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        // === PNG COMPRESSION SECTION ===
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "PNG Compression (a preset fills in the level 0-9 and filter):",
+            availableWidth
+        ));
+
+        pngPresetComboBox = new JComboBox<>(PngPreset.values());
+        pngPresetComboBox.setSelectedItem(null);
+        ComboBoxHelper.styleComboBox(pngPresetComboBox, BG_COLOR, FG_COLOR, true);
+        ComboBoxHelper.customizeComboBoxUI(pngPresetComboBox);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Preset:", pngPresetComboBox));
+
+        pngLevelField = TextFieldHelper.createBorderedTextField(String.valueOf(config.pngCompressionLevel), 200, 30);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Level:", pngLevelField));
+
+        pngFilterComboBox = new JComboBox<>(PngFilter.values());
+        pngFilterComboBox.setSelectedItem(config.pngFilter);
+        ComboBoxHelper.styleComboBox(pngFilterComboBox, BG_COLOR, FG_COLOR, true);
+        ComboBoxHelper.customizeComboBoxUI(pngFilterComboBox);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Filter:", pngFilterComboBox));
+
+        pngPresetComboBox.addActionListener(e -> {
+            PngPreset preset = (PngPreset) pngPresetComboBox.getSelectedItem();
+
+            if (preset != null) {
+                pngLevelField.setText(String.valueOf(preset.level));
+                pngFilterComboBox.setSelectedItem(preset.filter);
+            }
+        });
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+        contentPanel.add(PanelHelper.createDivider());
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        // === INPUT SECTION ===
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Streamed Input (Grayscale mode, reads large images in bands):",
+            availableWidth
+        ));
+
+        Object[] streamingComponents = ButtonHelper.createToggleButton(
+            streamingState,
+            () -> streamingState = !streamingState
+        );
+
+        streamingToggle = (JButton) streamingComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Streamed:", streamingToggle));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Fast Analysis (subsampled decode for large kernels, error budget 0-1):",
+            availableWidth
+        ));
+
+        Object[] fastAnalysisComponents = ButtonHelper.createToggleButton(
+            fastAnalysisState,
+            () -> fastAnalysisState = !fastAnalysisState
+        );
+
+        fastAnalysisToggle = (JButton) fastAnalysisComponents[0];
+        contentPanel.add(PanelHelper.createLabeledInputRow("Fast:", fastAnalysisToggle));
+
+        errorBudgetField = TextFieldHelper.createBorderedTextField(String.valueOf(config.analysisErrorBudget), 200, 30);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Budget:", errorBudgetField));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+        contentPanel.add(PanelHelper.createDivider());
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
         // === DEBUG SECTION ===
         contentPanel.add(LabelHelper.createConfigTitle(
             "Generate Debug Images:",
@@ -74,6 +286,71 @@ public class ExtraConfigPanel extends ConfigPanel {
         } catch (NumberFormatException e) {
             seedField.setText(String.valueOf(config.rngSeed));
         }
+        // Validate and apply plate upscale; reset the field if the value is not a positive int
+        try {
+            int plateScale = Integer.parseInt(plateScaleField.getText().trim());
+
+            if (plateScale < 1) throw new NumberFormatException();
+
+            config.plateScale = plateScale;
+        } catch (NumberFormatException e) {
+            plateScaleField.setText(String.valueOf(config.plateScale));
+        }
+
+        // Validate and apply the tile size; reset the field if the value is outside 16 to 4096 pixels
+        try {
+            int tileSize = Integer.parseInt(tileSizeField.getText().trim());
+
+            if (tileSize < 16 || tileSize > TiledTiffWriter.MAX_TILE_SIZE) throw new NumberFormatException();
+
+            config.tileSize = tileSize;
+        } catch (NumberFormatException e) {
+            tileSizeField.setText(String.valueOf(config.tileSize));
+        }
+
+        // Validate and apply the resident tile budget; reset the field if the value is not a positive int
+        try {
+            int resident = Integer.parseInt(residentField.getText().trim());
+
+            if (resident < 1) throw new NumberFormatException();
+
+            config.residentTileMegabytes = resident;
+        } catch (NumberFormatException e) {
+            residentField.setText(String.valueOf(config.residentTileMegabytes));
+        }
+
+        // Validate and apply the PNG compression level; reset the field if the value is not in 0-9
+        try {
+            int level = Integer.parseInt(pngLevelField.getText().trim());
+
+            if (level < 0 || level > 9) throw new NumberFormatException();
+
+            config.pngCompressionLevel = level;
+        } catch (NumberFormatException e) {
+            pngLevelField.setText(String.valueOf(config.pngCompressionLevel));
+        }
+
+        // Validate and apply the error budget; reset the field if the value is not in (0, 1]
+        try {
+            double budget = Double.parseDouble(errorBudgetField.getText().trim());
+
+            if (!(budget > 0 && budget <= 1)) throw new NumberFormatException();
+
+            config.analysisErrorBudget = budget;
+        } catch (NumberFormatException e) {
+            errorBudgetField.setText(String.valueOf(config.analysisErrorBudget));
+        }
+
+        config.indexedOutput = indexedState;
+        config.plateOutput = plateState;
+        config.tiledOutput = tiledState;
+        config.streamingOutput = bandedState;
+        config.offHeapRasters = offHeapState;
+        config.diskBackedRasters = diskBackedState;
+        config.scratchDirectory = scratchDirectoryField.getText().trim();
+        config.pngFilter = (PngFilter) pngFilterComboBox.getSelectedItem();
+        config.streamingInput = streamingState;
+        config.fastAnalysis = fastAnalysisState;
         config.debugState = debugState;
     }
 
@@ -96,6 +373,22 @@ public class ExtraConfigPanel extends ConfigPanel {
     public void setEnabled(boolean enabled) {
         super.setEnabled(enabled);
         seedField.setEnabled(enabled);
+        indexedToggle.setEnabled(enabled);
+        plateToggle.setEnabled(enabled);
+        plateScaleField.setEnabled(enabled);
+        tiledToggle.setEnabled(enabled);
+        tileSizeField.setEnabled(enabled);
+        bandedToggle.setEnabled(enabled);
+        offHeapToggle.setEnabled(enabled);
+        diskBackedToggle.setEnabled(enabled);
+        scratchDirectoryField.setEnabled(enabled);
+        residentField.setEnabled(enabled);
+        pngPresetComboBox.setEnabled(enabled);
+        pngLevelField.setEnabled(enabled);
+        pngFilterComboBox.setEnabled(enabled);
+        streamingToggle.setEnabled(enabled);
+        fastAnalysisToggle.setEnabled(enabled);
+        errorBudgetField.setEnabled(enabled);
         debugToggle.setEnabled(enabled);
     }
 }
\ No newline at end of file
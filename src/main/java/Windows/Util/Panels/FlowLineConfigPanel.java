@@ -1,6 +1,8 @@
 package Windows.Util.Panels;
 
 import Data.ConfigData;
+import Data.FlowLine.CurveMode;
+import Data.FlowLine.FlowLineEngine;
 import Windows.Util.ConfigPanel;
 import Windows.Util.UI.*;
 
@@ -13,7 +15,8 @@ import static Windows.Util.UI.UIConstants.*;
  * Configuration panel for FlowLine TYPE.
  * Provides controls to configure minimum and maximum step sizes,
  * an option to follow maximum changes in step size, the line smoothing radius,
- * the minimum line size, and the Sobel blur radius.
+ * the minimum line size, the Sobel blur radius, the ribbon curve mode, and the
+ * line generation engine with its streamline separation.
  */
 public class FlowLineConfigPanel extends ConfigPanel {
     private JSlider minStepSlider;
@@ -27,6 +30,10 @@ public class FlowLineConfigPanel extends ConfigPanel {
     private JTextField minLineSizeField;
     private JSlider blurRadiusSlider;
     private JTextField blurRadiusField;
+    private JComboBox<CurveMode> curveModeComboBox;
+    private JComboBox<FlowLineEngine> engineComboBox;
+    private JSlider separationSlider;
+    private JTextField separationField;
 
     private boolean followMaxChangeState;
 
@@ -38,6 +45,8 @@ public class FlowLineConfigPanel extends ConfigPanel {
     private static final int MIN_LINE_SIZE_MAX = 10;
     private static final int MIN_BLUR_RADIUS = 0;
     private static final int MAX_BLUR_RADIUS = 10;
+    private static final int MIN_SEPARATION = 25;
+    private static final int MAX_SEPARATION = 400;
 
     /**
      * Creates a new FlowLine configuration panel.
@@ -52,13 +61,46 @@ public class FlowLineConfigPanel extends ConfigPanel {
     /**
      * Initializes all UI components and layout.
      * Builds min/max step sliders with cross-validation, a smoothing radius slider,
-     * a minimum line size slider, a Sobel blur radius slider, and a follow-max-change
-     * toggle placed into the standard config container.
+     * a minimum line size slider, a Sobel blur radius slider, a curve mode selector,
+     * an engine selector with a separation slider and a follow-max-change toggle
+     * placed into the standard config container.
      */
     @Override
     public void initializeComponents() {
         JPanel contentPanel = PanelHelper.createConfigPanelContainer(this);
 
+        // === ENGINE SECTION ===
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Line generation (KernelLinking = joins whole kernels, EvenlySpaced = sub-kernel streamlines at a fixed separation):",
+            availableWidth
+        ));
+
+        engineComboBox = new JComboBox<>(FlowLineEngine.values());
+        engineComboBox.setSelectedItem(config.flowLineEngine);
+        ComboBoxHelper.styleComboBox(engineComboBox, BG_COLOR, FG_COLOR, true);
+        ComboBoxHelper.customizeComboBoxUI(engineComboBox);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Engine:", engineComboBox));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(10));
+
+        Component[] separationComponents = SliderHelper.createSliderPanel(
+            "EvenlySpaced Separation (" + MIN_SEPARATION + "-" + MAX_SEPARATION + "% of kernel)",
+            MIN_SEPARATION, MAX_SEPARATION, (int) Math.round(config.flowLineSeparation * 100),
+            BG_COLOR, FG_COLOR
+        );
+
+        JPanel separationPanel = (JPanel) separationComponents[0];
+        PanelHelper.setupFullWidth(separationPanel);
+
+        separationSlider = (JSlider) separationComponents[1];
+        separationField = (JTextField) separationComponents[2];
+
+        contentPanel.add(separationPanel);
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+        contentPanel.add(PanelHelper.createDivider());
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
         // === MIN/MAX STEP SIZE SECTION ===
         contentPanel.add(LabelHelper.createConfigTitle(
             "Step size range based on kernel magnitude (min cannot exceed max, and max cannot be less than min):",
@@ -182,6 +224,22 @@ public class FlowLineConfigPanel extends ConfigPanel {
         contentPanel.add(PanelHelper.createDivider());
         contentPanel.add(PanelHelper.createVerticalSpace(20));
 
+        // === CURVE MODE SECTION ===
+        contentPanel.add(LabelHelper.createConfigTitle(
+            "Curve used to draw each line (Bezier = single smooth curve, CatmullRom/BSpline = faster piecewise cubic):",
+            availableWidth
+        ));
+
+        curveModeComboBox = new JComboBox<>(CurveMode.values());
+        curveModeComboBox.setSelectedItem(config.flowLineCurveMode);
+        ComboBoxHelper.styleComboBox(curveModeComboBox, BG_COLOR, FG_COLOR, true);
+        ComboBoxHelper.customizeComboBoxUI(curveModeComboBox);
+        contentPanel.add(PanelHelper.createLabeledInputRow("Curve Mode:", curveModeComboBox));
+
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+        contentPanel.add(PanelHelper.createDivider());
+        contentPanel.add(PanelHelper.createVerticalSpace(20));
+
         // === FOLLOW MAX CHANGE SECTION ===
         contentPanel.add(LabelHelper.createConfigTitle(
             "Direction of flow:",
@@ -208,6 +266,9 @@ public class FlowLineConfigPanel extends ConfigPanel {
         config.minLineSize = minLineSizeSlider.getValue();
         config.blurRadius = blurRadiusSlider.getValue();
         config.followMaxChange = followMaxChangeState;
+        config.flowLineCurveMode = (CurveMode) curveModeComboBox.getSelectedItem();
+        config.flowLineEngine = (FlowLineEngine) engineComboBox.getSelectedItem();
+        config.flowLineSeparation = separationSlider.getValue() / 100.0;
     }
 
     /**
@@ -238,6 +299,10 @@ public class FlowLineConfigPanel extends ConfigPanel {
         minLineSizeField.setEnabled(enabled);
         blurRadiusSlider.setEnabled(enabled);
         blurRadiusField.setEnabled(enabled);
+        curveModeComboBox.setEnabled(enabled);
+        engineComboBox.setEnabled(enabled);
+        separationSlider.setEnabled(enabled);
+        separationField.setEnabled(enabled);
         followMaxChangeToggle.setEnabled(enabled);
     }
 }
\ No newline at end of file